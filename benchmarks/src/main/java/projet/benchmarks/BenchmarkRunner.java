@@ -0,0 +1,58 @@
+package projet.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler ({@code -prof gc}) and writes the results as JSON
+ * to {@code jmh-result.json}, so the results of two commits can be compared, for instance with a JMH visualizer.
+ * The usual JMH options are accepted and take precedence, for instance {@code -rff} to choose the result file.
+ * <pre>
+ *   mvn -B package &amp;&amp; java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regex]
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+	/**
+     * The default result file.
+     */
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    /**
+     * Private constructor, this class only holds the entry point.
+     */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args the JMH command-line options
+     * @throws RunnerException if a benchmark fails
+     * @throws CommandLineOptionException if the options are invalid
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions command = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(command);
+        if (command.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*");
+        }
+        if (command.getProfilers().stream().noneMatch(profiler -> profiler.getKlass().equals("gc")
+                || profiler.getKlass().equals(GCProfiler.class.getName()))) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!command.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!command.getResult().hasValue()) {
+            options.result(RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
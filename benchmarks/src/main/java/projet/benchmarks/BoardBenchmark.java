@@ -0,0 +1,132 @@
+package projet.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projet.Board;
+import projet.GameManager;
+import projet.Placement;
+import projet.Position;
+import projet.Tile;
+import projet.TileType;
+
+/**
+ * Benchmarks of the board operations, on empty, half-full and full boards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+	/**
+     * The fill level of the board.
+     */
+    @Param({"EMPTY", "HALF", "FULL"})
+    public String fill;
+
+    /**
+     * The board.
+     */
+    private Board board;
+
+    /**
+     * The game wrapping the board.
+     */
+    private GameManager game;
+
+    /**
+     * Every cell of the board.
+     */
+    private Position[] positions;
+
+    /**
+     * One tile of each type.
+     */
+    private Tile[] tiles;
+
+    /**
+     * A legal placement on the board, or {@code null} if there is none.
+     */
+    private Placement legal;
+
+    /**
+     * The tile of the legal placement.
+     */
+    private Tile legalTile;
+
+    /**
+     * The counter cycling through the positions and tiles.
+     */
+    private int next;
+
+    /**
+     * Builds the board.
+     */
+    @Setup
+    public void setUp() {
+        board = Boards.filled(fill);
+        game = new GameManager(board);
+        positions = new Position[Board.SIZE * Board.SIZE];
+        for (int cell = 0; cell < positions.length; cell++) {
+            positions[cell] = new Position(cell / Board.SIZE, cell % Board.SIZE);
+        }
+        TileType[] types = TileType.values();
+        tiles = new Tile[types.length];
+        for (int i = 0; i < types.length; i++) {
+            tiles[i] = new Tile(types[i]);
+        }
+        legal = board.legalMoves().findFirst().orElse(null);
+        legalTile = legal == null ? null : legal.toTile();
+    }
+
+    /**
+     * Checks a placement, cycling through the cells and tile types.
+     *
+     * @return the result of the check
+     */
+    @Benchmark
+    public boolean isValidPlacement() {
+        int i = next++;
+        return board.isValidPlacement(positions[i % positions.length], tiles[i % tiles.length]);
+    }
+
+    /**
+     * Places a legal tile and undoes it, so the board is unchanged. On a full board the placement is rejected.
+     *
+     * @return whether the tile was placed
+     */
+    @Benchmark
+    public boolean placeTile() {
+        if (legal == null) {
+            return board.placeTile(positions[0], tiles[0]);
+        }
+        boolean placed = board.placeTile(legal.getPosition(), legalTile);
+        board.undo();
+        return placed;
+    }
+
+    /**
+     * Reads the state of the board as a map of arrays.
+     *
+     * @return the state
+     */
+    @Benchmark
+    public Map<String, Object> getBoardState() {
+        return game.getBoardState();
+    }
+}
@@ -0,0 +1,58 @@
+package projet.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import projet.Board;
+import projet.Placement;
+
+/**
+ * Boards filled to a given level, shared by the benchmarks.
+ * The boards are filled with random legal placements from a fixed seed, so every run measures the same positions.
+ */
+public final class Boards {
+
+	/**
+     * The seed of the random placements.
+     */
+    private static final long SEED = 42;
+
+    /**
+     * Private constructor, this class only holds static helpers.
+     */
+    private Boards() {
+    }
+
+    /**
+     * Builds a board with random legal placements.
+     *
+     * @param fill {@code EMPTY}, {@code HALF} for half of the cells, or {@code FULL} to place tiles until no move is legal
+     * @return the board
+     */
+    public static Board filled(String fill) {
+        int target;
+        switch (fill) {
+            case "EMPTY":
+                target = 0;
+                break;
+            case "HALF":
+                target = Board.SIZE * Board.SIZE / 2;
+                break;
+            case "FULL":
+                target = Board.SIZE * Board.SIZE;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown fill level " + fill);
+        }
+        Random random = new Random(SEED);
+        Board board = new Board();
+        for (int placed = 0; placed < target; placed++) {
+            List<Placement> moves = board.legalMoves().collect(Collectors.toList());
+            if (moves.isEmpty()) break;
+            Placement move = moves.get(random.nextInt(moves.size()));
+            board.placeTile(move.getPosition(), move.toTile());
+        }
+        return board;
+    }
+}
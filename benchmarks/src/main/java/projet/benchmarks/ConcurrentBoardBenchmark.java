@@ -0,0 +1,156 @@
+package projet.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projet.Board;
+import projet.BoardSnapshot;
+import projet.ConcurrentBoard;
+import projet.Placement;
+import projet.Tile;
+
+/**
+ * Contention benchmark of one writer placing tiles while seven readers scan the whole board.
+ * The {@code snapshot} group reads the immutable snapshots of a {@link ConcurrentBoard}; the {@code locked} group
+ * is the baseline, a {@link Board} whose writer and readers all synchronize on it.
+ * The writer plays a fixed game and rolls it back when it is over, so both groups do the same work.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBoardBenchmark {
+
+	/**
+     * The placements of the game played by the writer.
+     */
+    private List<Placement> game;
+
+    /**
+     * The board of the {@code snapshot} group.
+     */
+    private ConcurrentBoard concurrent;
+
+    /**
+     * The board of the {@code locked} group.
+     */
+    private Board locked;
+
+    /**
+     * The next placement of the writer.
+     */
+    private int next;
+
+    /**
+     * Plays a random game from a fixed seed and builds the boards.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Board board = new Board();
+        game = new ArrayList<>();
+        while (true) {
+            List<Placement> moves = board.legalMoves().collect(Collectors.toList());
+            if (moves.isEmpty()) break;
+            Placement move = moves.get(random.nextInt(moves.size()));
+            board.placeTile(move.getPosition(), move.toTile());
+            game.add(move);
+        }
+        concurrent = new ConcurrentBoard();
+        locked = new Board();
+    }
+
+    /**
+     * Places the next tile of the game on the concurrent board, or rolls the game back when it is over.
+     *
+     * @return whether the tile was placed
+     */
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public boolean snapshotWriter() {
+        if (next == game.size()) {
+            concurrent.rollbackTo(0);
+            next = 0;
+        }
+        Placement move = game.get(next++);
+        return concurrent.placeTile(move.getPosition(), move.toTile());
+    }
+
+    /**
+     * Scans every cell of the latest snapshot.
+     *
+     * @return the sum of the combinations, so the scan is not eliminated
+     */
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(7)
+    public int snapshotReader() {
+        BoardSnapshot snapshot = concurrent.snapshot();
+        int sum = snapshot.getScore().getTotal();
+        for (int row = 0; row < snapshot.getSize(); row++) {
+            for (int col = 0; col < snapshot.getSize(); col++) {
+                sum += snapshot.getCombination(row, col);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Places the next tile of the game on the locked board, or rolls the game back when it is over.
+     *
+     * @return whether the tile was placed
+     */
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public boolean lockedWriter() {
+        synchronized (locked) {
+            if (next == game.size()) {
+                locked.rollbackTo(0);
+                next = 0;
+            }
+            Placement move = game.get(next++);
+            return locked.placeTile(move.getPosition(), move.toTile());
+        }
+    }
+
+    /**
+     * Scans every cell of the locked board.
+     *
+     * @return the sum of the orientations, so the scan is not eliminated
+     */
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(7)
+    public int lockedReader() {
+        synchronized (locked) {
+            int sum = locked.getScore().getTotal();
+            for (int row = 0; row < locked.getSize(); row++) {
+                for (int col = 0; col < locked.getSize(); col++) {
+                    Tile tile = locked.getTileAt(row, col);
+                    sum += tile == null ? -1 : tile.getOrientation().ordinal();
+                }
+            }
+            return sum;
+        }
+    }
+}
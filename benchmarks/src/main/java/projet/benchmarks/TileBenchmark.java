@@ -0,0 +1,120 @@
+package projet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projet.Board;
+import projet.Orientation;
+import projet.Position;
+import projet.Tile;
+import projet.TileType;
+
+/**
+ * Benchmarks of the tile, orientation and position operations, which do not depend on the board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileBenchmark {
+
+	/**
+     * The tile types, in declaration order.
+     */
+    private static final TileType[] TYPES = TileType.values();
+
+    /**
+     * The angles passed to {@link Orientation#fromDegrees(int)}.
+     */
+    private static final int[] DEGREES = {0, 90, 180, 270};
+
+    /**
+     * The notation of every cell of the board.
+     */
+    private String[] notations;
+
+    /**
+     * The tile rotated by {@link #rotate()}.
+     */
+    private Tile tile;
+
+    /**
+     * The counter cycling through the inputs.
+     */
+    private int next;
+
+    /**
+     * Builds the inputs.
+     */
+    @Setup
+    public void setUp() {
+        tile = new Tile(TileType.HIGHWAY_JUNCTION);
+        notations = new String[Board.SIZE * Board.SIZE];
+        for (int cell = 0; cell < notations.length; cell++) {
+            notations[cell] = new Position(cell / Board.SIZE, cell % Board.SIZE).toBoardNotation();
+        }
+    }
+
+    /**
+     * Rotates a tile a quarter turn.
+     *
+     * @return the tile
+     */
+    @Benchmark
+    public Tile rotate() {
+        tile.rotate();
+        return tile;
+    }
+
+    /**
+     * Converts an angle to an orientation.
+     *
+     * @return the orientation
+     */
+    @Benchmark
+    public Orientation fromDegrees() {
+        return Orientation.fromDegrees(DEGREES[next++ & 3]);
+    }
+
+    /**
+     * Creates a tile, cycling through the types.
+     *
+     * @return the tile
+     */
+    @Benchmark
+    public Tile newTile() {
+        return new Tile(TYPES[next++ % TYPES.length]);
+    }
+
+    /**
+     * Parses a position in algebraic notation, cycling through the cells.
+     *
+     * @return the position
+     */
+    @Benchmark
+    public Position parsePosition() {
+        return new Position(notations[next++ % notations.length]);
+    }
+
+    /**
+     * Looks up the shared position of a notation, cycling through the cells.
+     *
+     * @return the position
+     */
+    @Benchmark
+    public Position parseCachedPosition() {
+        return Position.parse(notations[next++ % notations.length]);
+    }
+}
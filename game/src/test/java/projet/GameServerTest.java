@@ -0,0 +1,155 @@
+package projet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives a {@link GameServer} in-process over HTTP: the life of a few sessions, invalid requests and idle eviction.
+ */
+class GameServerTest {
+
+	/**
+     * The number of sessions played side by side.
+     */
+    private static final int SESSIONS = 4;
+
+    /**
+     * The identifier in the response to the creation of a session.
+     */
+    private static final Pattern ID = Pattern.compile("\\{\"id\":\"([^\"]+)\"}");
+
+    /**
+     * The client sending the requests.
+     */
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    /**
+     * Creates, plays, reads and deletes several sessions, checking every response.
+     *
+     * @throws Exception if a request fails
+     */
+    @Test
+    void playsSessions() throws Exception {
+        try (GameServer server = new GameServer(0, new SessionRegistry(Duration.ofMinutes(10)))) {
+            server.start();
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < SESSIONS; i++) {
+                ids.add(create(server));
+            }
+            for (String id : ids) {
+                String place = "/sessions/" + id + "/place?type=HIGHWAY_CURVE&position=B2&rotation=90";
+                assertResponse(200, "{\"placed\":true}", send(server, "POST", place));
+                assertResponse(200, "{\"placed\":false}", send(server, "POST", place));
+
+                HttpResponse<String> state = send(server, "GET", "/sessions/" + id);
+                assertEquals(200, state.statusCode());
+                assertTrue(state.body().contains("\"HIGHWAY_CURVE\""), state.body());
+                assertTrue(state.body().contains("90"), state.body());
+
+                HttpResponse<String> moves = send(server, "GET", "/sessions/" + id + "/moves");
+                assertEquals(200, moves.statusCode());
+                assertTrue(moves.body().matches("\\{\"moves\":\\d+}"), moves.body());
+            }
+            for (String id : ids) {
+                assertEquals(204, send(server, "DELETE", "/sessions/" + id).statusCode());
+                assertEquals(404, send(server, "GET", "/sessions/" + id).statusCode());
+            }
+        }
+    }
+
+    /**
+     * Checks the errors sent for unknown sessions, invalid parameters and unsupported requests.
+     *
+     * @throws Exception if a request fails
+     */
+    @Test
+    void refusesInvalidRequests() throws Exception {
+        try (GameServer server = new GameServer(0, new SessionRegistry(Duration.ofMinutes(10)))) {
+            server.start();
+            String id = create(server);
+            assertEquals(404, send(server, "GET", "/sessions/unknown").statusCode());
+            assertEquals(400, send(server, "POST", "/sessions/" + id + "/place?type=NOPE&position=A1").statusCode());
+            assertEquals(400, send(server, "POST", "/sessions/" + id + "/place?type=HIGHWAY_CURVE&position=A1&rotation=x").statusCode());
+            assertResponse(200, "{\"placed\":false}", send(server, "POST", "/sessions/" + id + "/place?type=HIGHWAY_CURVE&position=%3F"));
+            assertEquals(405, send(server, "PUT", "/sessions/" + id).statusCode());
+        }
+    }
+
+    /**
+     * Checks that a session left idle is evicted, and no longer answers.
+     *
+     * @throws Exception if a request fails
+     */
+    @Test
+    void evictsIdleSessions() throws Exception {
+        SessionRegistry registry = new SessionRegistry(Duration.ofMillis(200));
+        try (GameServer server = new GameServer(0, registry)) {
+            server.start();
+            String id = create(server);
+            assertEquals(1, registry.size());
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (registry.size() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, registry.size());
+            assertEquals(404, send(server, "GET", "/sessions/" + id).statusCode());
+        }
+    }
+
+    /**
+     * Creates a session.
+     *
+     * @param server the server
+     * @return the identifier of the session
+     * @throws Exception if the request fails
+     */
+    private String create(GameServer server) throws Exception {
+        HttpResponse<String> response = send(server, "POST", "/sessions");
+        assertEquals(201, response.statusCode());
+        Matcher matcher = ID.matcher(response.body());
+        assertTrue(matcher.matches(), response.body());
+        return matcher.group(1);
+    }
+
+    /**
+     * Sends a request without a body.
+     *
+     * @param server the server
+     * @param method the HTTP method
+     * @param path the path and query of the request
+     * @return the response
+     * @throws IOException if the request fails
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private HttpResponse<String> send(GameServer server, String method, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Checks the status and the body of a response.
+     *
+     * @param status the expected status
+     * @param body the expected body
+     * @param response the response
+     */
+    private static void assertResponse(int status, String body, HttpResponse<String> response) {
+        assertEquals(status, response.statusCode(), response.body());
+        assertEquals(body, response.body());
+    }
+}
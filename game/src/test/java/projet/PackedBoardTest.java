@@ -0,0 +1,81 @@
+package projet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that {@link PackedBoard} behaves exactly like {@link Board} on random sequences of placements,
+ * under every variant of the connection rules, and reads no cell outside the board.
+ */
+class PackedBoardTest {
+
+	/**
+     * The number of random sequences played for each variant.
+     */
+    private static final int SEQUENCES = 500;
+
+    /**
+     * The number of placements tried in each sequence, inside and just outside the board.
+     */
+    private static final int ATTEMPTS = 200;
+
+    /**
+     * Plays the same random placements on both boards and compares every answer and every cell.
+     *
+     * @param variant the name of the connection rules
+     * @throws IOException if the rules cannot be loaded
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"standard", "stations-join", "strict"})
+    void matchesBoard(String variant) throws IOException {
+        ConnectionRules rules = ConnectionRules.load(variant);
+        TileType[] types = TileType.values();
+        Orientation[] orientations = Orientation.values();
+        Random random = new Random(variant.hashCode());
+        for (int sequence = 0; sequence < SEQUENCES; sequence++) {
+            Board board = new Board(Board.SIZE, Board.defaultExits(Board.SIZE), rules);
+            PackedBoard packed = new PackedBoard(rules);
+            for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+                Position pos = Position.of(random.nextInt(Board.SIZE + 2) - 1, random.nextInt(Board.SIZE + 2) - 1);
+                Tile tile = new Tile(types[random.nextInt(types.length)]);
+                tile.setOrientation(orientations[random.nextInt(orientations.length)]);
+                String where = variant + ", sequence " + sequence + ", attempt " + attempt;
+                assertEquals(board.isValidPlacement(pos, tile), packed.isValidPlacement(pos, tile), where);
+                assertEquals(board.placeTile(pos, tile.copy()), packed.placeTile(pos, tile.copy()), where);
+            }
+            for (int row = 0; row < Board.SIZE; row++) {
+                for (int col = 0; col < Board.SIZE; col++) {
+                    Tile expected = board.getTileAt(row, col);
+                    Tile actual = packed.getTileAt(row, col);
+                    if (expected == null) {
+                        assertNull(actual);
+                    } else {
+                        assertEquals(expected.getType(), actual.getType());
+                        assertEquals(expected.getOrientation(), actual.getOrientation());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that both boards refuse to read a cell outside the board, including the padding of the chunks.
+     */
+    @Test
+    void readsNoCellOutsideTheBoard() {
+        Board board = new Board();
+        PackedBoard packed = new PackedBoard(ConnectionRules.standard());
+        int[][] outside = {{-1, 0}, {0, -1}, {0, Board.SIZE}, {Board.SIZE, 0}, {0, 15}, {15, 15}, {0, 16}, {100, 100}};
+        for (int[] cell : outside) {
+            assertThrows(ArrayIndexOutOfBoundsException.class, () -> board.getTileAt(cell[0], cell[1]));
+            assertThrows(ArrayIndexOutOfBoundsException.class, () -> packed.getTileAt(cell[0], cell[1]));
+        }
+    }
+}
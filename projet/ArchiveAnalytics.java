@@ -0,0 +1,634 @@
+package projet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Statistics over an archive of recorded games, read from the segments of an {@link EventLog}: the usage of each
+ * tile type, the cells and reasons of the refused placements, and the distribution of the final scores, overall
+ * and for the games using each tile type.
+ * <p>
+ * The segments are read once, in order, in chunks of a fixed size. Each chunk is handed to every worker, and each
+ * worker only replays the sessions it owns, chosen by hash, so the events of a game are replayed in order by a single
+ * thread without any lock. A game is replayed on a light board, one {@link BoardCodec} code per cell, and scored with
+ * a {@link NetworkScorer} when its end is read. Each worker fills its own statistics, which are merged at the end.
+ * <p>
+ * The memory used does not depend on the size of the archive: a fixed number of chunks circulate between the reader
+ * and the workers, and a game only holds its board, 49 bytes, between its first event and its end. The games
+ * recorded without an end, such as those of archives written before the end events existed, keep their board until
+ * the archive is over and are scored then: for such archives the memory grows with the number of games.
+ * {@link SessionRegistry} ends the games of the sessions it removes or evicts.
+ */
+public final class ArchiveAnalytics {
+
+	/**
+     * The tile types.
+     */
+    private static final TileType[] TYPES = TileType.values();
+
+    /**
+     * The rejection reasons.
+     */
+    private static final RejectionReason[] REASONS = RejectionReason.values();
+
+    /**
+     * The number of cells of a recorded board.
+     */
+    private static final int CELLS = Board.SIZE * Board.SIZE;
+
+    /**
+     * The default size of a chunk.
+     */
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+
+    /**
+     * The chunk telling the workers that the archive is over.
+     */
+    private static final Chunk END_OF_ARCHIVE = new Chunk(0);
+
+    /**
+     * The number of workers.
+     */
+    private final int workers;
+
+    /**
+     * The size of a chunk, a multiple of {@link EventLog#RECORD_BYTES}.
+     */
+    private final int chunkBytes;
+
+    /**
+     * Constructs an analysis.
+     *
+     * @param workers the number of threads replaying the games
+     * @param chunkBytes the size of a chunk, rounded down to a multiple of {@link EventLog#RECORD_BYTES}
+     */
+    public ArchiveAnalytics(int workers, int chunkBytes) {
+        if (workers <= 0) throw new IllegalArgumentException("At least one worker is needed");
+        this.workers = workers;
+        this.chunkBytes = Math.max(EventLog.RECORD_BYTES, chunkBytes - chunkBytes % EventLog.RECORD_BYTES);
+    }
+
+    /**
+     * Constructs an analysis with one worker per processor and chunks of {@link #DEFAULT_CHUNK_BYTES}.
+     */
+    public ArchiveAnalytics() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Analyzes the games of an event log. The log should not be written during the analysis.
+     *
+     * @param directory the directory of the log
+     * @return the statistics of its games
+     * @throws IOException if a segment cannot be read
+     */
+    public Result analyze(Path directory) throws IOException {
+        long start = System.nanoTime();
+        // Deux tampons par worker : l'un est lu pendant que l'autre se remplit
+        BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(2 * workers);
+        for (int i = 0; i < 2 * workers; i++) {
+            free.add(new Chunk(chunkBytes));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "archive-analytics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<BlockingQueue<Chunk>> queues = new ArrayList<>();
+        List<Future<Statistics>> results = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(2 * workers + 1);
+            queues.add(queue);
+            results.add(executor.submit(new Worker(i, queue, free)::run));
+        }
+        try {
+            try {
+                read(directory, free, queues);
+            } finally {
+                for (BlockingQueue<Chunk> queue : queues) {
+                    queue.put(END_OF_ARCHIVE);
+                }
+            }
+            Statistics statistics = new Statistics();
+            for (Future<Statistics> result : results) {
+                statistics.merge(result.get());
+            }
+            return new Result(statistics, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted analysis", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the valid records of every segment, in order, and hands each chunk to every worker.
+     *
+     * @param directory the directory of the log
+     * @param free the chunks not used by any worker
+     * @param queues the chunks waiting for each worker
+     * @throws IOException if a segment cannot be read
+     * @throws InterruptedException if the reader is interrupted
+     */
+    private void read(Path directory, BlockingQueue<Chunk> free, List<BlockingQueue<Chunk>> queues)
+            throws IOException, InterruptedException {
+        for (int index = 0; Files.exists(EventLog.segmentPath(directory, index)); index++) {
+            try (FileChannel in = FileChannel.open(EventLog.segmentPath(directory, index), StandardOpenOption.READ)) {
+                boolean over = false;
+                while (!over) {
+                    Chunk chunk = free.take();
+                    ByteBuffer buffer = chunk.buffer.clear();
+                    while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                        // Lit jusqu'à remplir le tampon ou atteindre la fin du segment
+                    }
+                    int valid = 0;
+                    while (valid + EventLog.RECORD_BYTES <= buffer.position() && EventLog.isValid(buffer, valid)) {
+                        valid += EventLog.RECORD_BYTES;
+                    }
+                    // Un segment s'arrête à son premier enregistrement invalide, comme pour la reprise du journal
+                    over = valid < buffer.position() || buffer.hasRemaining();
+                    buffer.limit(valid).position(0);
+                    if (valid == 0) {
+                        free.add(chunk);
+                        continue;
+                    }
+                    chunk.pending.set(queues.size());
+                    for (BlockingQueue<Chunk> queue : queues) {
+                        queue.put(chunk);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A buffer of records shared by the workers.
+     */
+    private static final class Chunk {
+
+    	/** The records, from 0 to the limit. */
+        final ByteBuffer buffer;
+
+        /** The number of workers that have not read the chunk yet. */
+        final AtomicInteger pending = new AtomicInteger();
+
+        Chunk(int bytes) {
+            this.buffer = ByteBuffer.allocate(bytes);
+        }
+    }
+
+    /**
+     * Replays the sessions owned by one worker.
+     */
+    private final class Worker {
+
+    	/** The index of the worker. */
+        private final int index;
+
+        /** The chunks to read. */
+        private final BlockingQueue<Chunk> queue;
+
+        /** The chunks not used by any worker. */
+        private final BlockingQueue<Chunk> free;
+
+        /** The board of each game being replayed, one code per cell. */
+        private final Map<Long, byte[]> games = new HashMap<>();
+
+        /** The scorer of the finished games, emptied after each one. */
+        private final NetworkScorer scorer = new NetworkScorer(Board.SIZE, Board.defaultExits(Board.SIZE));
+
+        /** The statistics of the worker. */
+        private final Statistics statistics = new Statistics();
+
+        Worker(int index, BlockingQueue<Chunk> queue, BlockingQueue<Chunk> free) {
+            this.index = index;
+            this.queue = queue;
+            this.free = free;
+        }
+
+        /**
+         * Reads the chunks until the end of the archive, then scores the games left without an end.
+         * After a failure, the chunks are still released so the reader does not wait for this worker.
+         *
+         * @return the statistics of the sessions of the worker
+         * @throws InterruptedException if the worker is interrupted
+         */
+        Statistics run() throws InterruptedException {
+            RuntimeException failure = null;
+            Chunk chunk;
+            while ((chunk = queue.take()) != END_OF_ARCHIVE) {
+                try {
+                    if (failure == null) replay(chunk.buffer);
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    if (chunk.pending.decrementAndGet() == 0) free.add(chunk);
+                }
+            }
+            if (failure != null) throw failure;
+            for (byte[] cells : games.values()) {
+                finish(cells);
+                statistics.unfinishedGames++;
+            }
+            games.clear();
+            return statistics;
+        }
+
+        /**
+         * Replays the records of a chunk that belong to the sessions of the worker.
+         *
+         * @param records the records, from 0 to the limit, not modified
+         */
+        private void replay(ByteBuffer records) {
+            for (int position = 0; position < records.limit(); position += EventLog.RECORD_BYTES) {
+                long session = records.getLong(position);
+                if (Math.floorMod(Long.hashCode(session), workers) != index) continue;
+                int cell = records.getInt(position + 12);
+                byte code = records.get(position + 17);
+                statistics.records++;
+                byte kind = records.get(position + 16);
+                if (!fits(kind, cell, code, records.get(position + 18))) {
+                    // L'archive peut venir d'une autre version : un enregistrement hors du plateau est ignoré
+                    statistics.skipped++;
+                    continue;
+                }
+                switch (kind) {
+                    case EventLog.PLACE:
+                        games.computeIfAbsent(session, id -> empty())[cell] = code;
+                        statistics.placed[RotationTable.typeOf(code).ordinal()]++;
+                        break;
+                    case EventLog.UNDO:
+                        games.computeIfAbsent(session, id -> empty())[cell] = BoardCodec.EMPTY;
+                        statistics.undone++;
+                        break;
+                    case EventLog.REJECT:
+                        statistics.rejectedCells[cell]++;
+                        statistics.rejectedTypes[RotationTable.typeOf(code).ordinal()]++;
+                        statistics.rejectedReasons[records.get(position + 18)]++;
+                        break;
+                    case EventLog.END:
+                        byte[] cells = games.remove(session);
+                        finish(cells != null ? cells : empty());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Checks that the fields of a record fit a standard board, so a damaged archive cannot stop the analysis.
+         *
+         * @param kind the kind of the record
+         * @param cell the cell of the record, ignored for an end
+         * @param code the combination index of the tile, only read for a placement or a refusal
+         * @param reason the ordinal of the rejection reason, only read for a refusal
+         * @return {@code true} if the record can be replayed
+         */
+        private boolean fits(byte kind, int cell, byte code, byte reason) {
+            if (kind == EventLog.END) return true;
+            if (cell < 0 || cell >= CELLS) return false;
+            if (kind == EventLog.UNDO) return true;
+            if ((code & 0xFF) >= RotationTable.COMBINATIONS) return false;
+            return kind != EventLog.REJECT || reason >= 0 && reason < REASONS.length;
+        }
+
+        /**
+         * Records the final board of a game.
+         *
+         * @param cells the code of each cell
+         */
+        private void finish(byte[] cells) {
+            int tiles = 0;
+            boolean[] used = new boolean[TYPES.length];
+            for (int cell = 0; cell < CELLS; cell++) {
+                if (cells[cell] == BoardCodec.EMPTY) continue;
+                TileType type = RotationTable.typeOf(cells[cell]);
+                scorer.place(cell / Board.SIZE, cell % Board.SIZE, type,
+                        RotationTable.signature(type, RotationTable.orientationOf(cells[cell])));
+                statistics.used[type.ordinal()]++;
+                used[type.ordinal()] = true;
+                tiles++;
+            }
+            int score = scorer.report().getTotal();
+            for (int i = 0; i < tiles; i++) {
+                scorer.undo();
+            }
+            statistics.games++;
+            statistics.scores.record(score);
+            for (int type = 0; type < TYPES.length; type++) {
+                if (used[type]) statistics.scoresByType[type].record(score);
+            }
+        }
+
+        /**
+         * Returns the cells of an empty board.
+         *
+         * @return a new array of {@link BoardCodec#EMPTY} codes
+         */
+        private byte[] empty() {
+            byte[] cells = new byte[CELLS];
+            Arrays.fill(cells, BoardCodec.EMPTY);
+            return cells;
+        }
+    }
+
+    /**
+     * The statistics filled by one worker, merged into the result.
+     */
+    private static final class Statistics {
+
+    	/** The number of records read. */
+        private long records;
+
+        /** The number of records skipped because they do not fit a standard board. */
+        private long skipped;
+
+        /** The number of games scored. */
+        private long games;
+
+        /** The number of games scored at the end of the archive, without an end event. */
+        private long unfinishedGames;
+
+        /** The number of placements of each tile type, including those undone later. */
+        private final long[] placed = new long[TYPES.length];
+
+        /** The number of tiles of each type on the final boards. */
+        private final long[] used = new long[TYPES.length];
+
+        /** The number of undone placements. */
+        private long undone;
+
+        /** The number of refused placements in each cell. */
+        private final long[] rejectedCells = new long[CELLS];
+
+        /** The number of refused placements of each tile type. */
+        private final long[] rejectedTypes = new long[TYPES.length];
+
+        /** The number of refused placements for each reason. */
+        private final long[] rejectedReasons = new long[REASONS.length];
+
+        /** The final scores. */
+        private final Histogram scores = new Histogram();
+
+        /** The final scores of the games using each tile type. */
+        private final Histogram[] scoresByType = new Histogram[TYPES.length];
+
+        Statistics() {
+            for (int i = 0; i < scoresByType.length; i++) {
+                scoresByType[i] = new Histogram();
+            }
+        }
+
+        /**
+         * Adds the statistics of another worker.
+         *
+         * @param other the statistics to add
+         */
+        void merge(Statistics other) {
+            records += other.records;
+            skipped += other.skipped;
+            games += other.games;
+            unfinishedGames += other.unfinishedGames;
+            undone += other.undone;
+            for (int i = 0; i < TYPES.length; i++) {
+                placed[i] += other.placed[i];
+                used[i] += other.used[i];
+                rejectedTypes[i] += other.rejectedTypes[i];
+                scoresByType[i].merge(other.scoresByType[i]);
+            }
+            for (int i = 0; i < CELLS; i++) {
+                rejectedCells[i] += other.rejectedCells[i];
+            }
+            for (int i = 0; i < REASONS.length; i++) {
+                rejectedReasons[i] += other.rejectedReasons[i];
+            }
+            scores.merge(other.scores);
+        }
+    }
+
+    /**
+     * The results of an analysis.
+     */
+    public static final class Result {
+
+    	/** The merged statistics. */
+        private final Statistics statistics;
+
+        /** The duration of the analysis in nanoseconds. */
+        private final long elapsedNanos;
+
+        Result(Statistics statistics, long elapsedNanos) {
+            this.statistics = statistics;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of games analyzed.
+         *
+         * @return the number of games
+         */
+        public long getGames() {
+            return statistics.games;
+        }
+
+        /**
+         * Returns the number of games without an end event, scored as they were at the end of the archive.
+         *
+         * @return the number of games
+         */
+        public long getUnfinishedGames() {
+            return statistics.unfinishedGames;
+        }
+
+        /**
+         * Returns the number of records read.
+         *
+         * @return the number of records
+         */
+        public long getRecords() {
+            return statistics.records;
+        }
+
+        /**
+         * Returns the number of records skipped because their cell, tile or reason does not fit a standard board.
+         *
+         * @return the number of records
+         */
+        public long getSkippedRecords() {
+            return statistics.skipped;
+        }
+
+        /**
+         * Returns the number of placements of a tile type, including those undone later.
+         *
+         * @param type the type
+         * @return the number of placements
+         */
+        public long getPlacements(TileType type) {
+            return statistics.placed[type.ordinal()];
+        }
+
+        /**
+         * Returns the number of tiles of a type on the final boards.
+         *
+         * @param type the type
+         * @return the number of tiles
+         */
+        public long getUsage(TileType type) {
+            return statistics.used[type.ordinal()];
+        }
+
+        /**
+         * Returns the number of undone placements.
+         *
+         * @return the number of undos
+         */
+        public long getUndos() {
+            return statistics.undone;
+        }
+
+        /**
+         * Returns the number of refused placements in a cell.
+         *
+         * @param position the cell
+         * @return the number of refusals
+         */
+        public long getRejections(Position position) {
+            return statistics.rejectedCells[position.toIndex(Board.SIZE)];
+        }
+
+        /**
+         * Returns the number of refused placements of a tile type.
+         *
+         * @param type the type
+         * @return the number of refusals
+         */
+        public long getRejections(TileType type) {
+            return statistics.rejectedTypes[type.ordinal()];
+        }
+
+        /**
+         * Returns the number of refused placements for a reason.
+         *
+         * @param reason the reason
+         * @return the number of refusals
+         */
+        public long getRejections(RejectionReason reason) {
+            return statistics.rejectedReasons[reason.ordinal()];
+        }
+
+        /**
+         * Returns the cells with the most refused placements.
+         *
+         * @param count the maximum number of cells
+         * @return the number of refusals of each cell, in decreasing order, without the cells never refused
+         */
+        public Map<Position, Long> getRejectionHotspots(int count) {
+            Map<Position, Long> hotspots = new LinkedHashMap<>();
+            Integer[] cells = new Integer[CELLS];
+            Arrays.setAll(cells, cell -> cell);
+            Arrays.sort(cells, (a, b) -> Long.compare(statistics.rejectedCells[b], statistics.rejectedCells[a]));
+            for (int i = 0; i < Math.min(count, CELLS) && statistics.rejectedCells[cells[i]] > 0; i++) {
+                hotspots.put(Position.fromIndex(cells[i], Board.SIZE), statistics.rejectedCells[cells[i]]);
+            }
+            return hotspots;
+        }
+
+        /**
+         * Returns the histogram of the final scores. It must not be modified.
+         *
+         * @return the scores
+         */
+        public Histogram getScores() {
+            return statistics.scores;
+        }
+
+        /**
+         * Returns the histogram of the final scores of the games with at least one tile of a type.
+         * It must not be modified.
+         *
+         * @param type the type
+         * @return the scores
+         */
+        public Histogram getScores(TileType type) {
+            return statistics.scoresByType[type.ordinal()];
+        }
+
+        /**
+         * Returns the mean final score of the games using each tile type that was used.
+         *
+         * @return the mean scores, in the order of the types
+         */
+        public Map<TileType, Double> getMeanScores() {
+            Map<TileType, Double> means = new EnumMap<>(TileType.class);
+            for (TileType type : TYPES) {
+                if (getScores(type).getCount() > 0) means.put(type, getScores(type).getMean());
+            }
+            return means;
+        }
+
+        /**
+         * Returns the number of records read per second of the analysis.
+         *
+         * @return the throughput
+         */
+        public double getRecordsPerSecond() {
+            return statistics.records * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games (%d without an end), %d records (%d skipped) in %.2f s (%.0f records/s)%n"
+                    + "scores: %s%nundos: %d, refusals: %d, hotspots: %s",
+                    getGames(), getUnfinishedGames(), getRecords(), getSkippedRecords(), elapsedNanos / 1e9, getRecordsPerSecond(),
+                    getScores(), getUndos(), Arrays.stream(statistics.rejectedReasons).sum(),
+                    getRejectionHotspots(5).entrySet().stream()
+                            .map(hotspot -> hotspot.getKey().toBoardNotation() + "=" + hotspot.getValue())
+                            .collect(Collectors.joining(", ")));
+        }
+    }
+
+    /**
+     * Analyzes an event log and prints its statistics.
+     *
+     * @param args the directory of the log, then optionally the number of workers
+     * @throws IOException if the log cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ArchiveAnalytics <directory> [workers]");
+            return;
+        }
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Result result = new ArchiveAnalytics(workers, DEFAULT_CHUNK_BYTES).analyze(Path.of(args[0]));
+        System.out.println(result);
+        for (TileType type : TYPES) {
+            if (result.getPlacements(type) == 0 && result.getRejections(type) == 0) continue;
+            System.out.printf("  %-26s placed %10d  kept %10d  refused %10d  mean score %6.2f%n", type,
+                    result.getPlacements(type), result.getUsage(type), result.getRejections(type), result.getScores(type).getMean());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package projet;
+
+import java.util.Arrays;
+
+/**
+ * The outcome of {@link Board#placeTiles(java.util.List)}: either every placement of the batch was committed,
+ * or none was and the reason of each refused placement is given.
+ */
+public final class BatchResult {
+
+	/**
+     * The reason of each placement of the batch, {@code null} for an acceptable placement.
+     */
+    private final RejectionReason[] reasons;
+
+    /**
+     * Whether the batch was committed.
+     */
+    private final boolean committed;
+
+    /**
+     * Constructs a result.
+     *
+     * @param reasons the reason of each placement, {@code null} for an acceptable one
+     * @param committed whether the batch was committed
+     */
+    BatchResult(RejectionReason[] reasons, boolean committed) {
+        this.reasons = reasons;
+        this.committed = committed;
+    }
+
+    /**
+     * Returns whether the batch was committed, which happens only when no placement was refused.
+     *
+     * @return {@code true} if every placement is now on the board
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * Returns the number of placements in the batch.
+     *
+     * @return the size of the batch
+     */
+    public int size() {
+        return reasons.length;
+    }
+
+    /**
+     * Returns why a placement of the batch was refused.
+     *
+     * @param index the index of the placement in the batch
+     * @return the reason, or {@code null} if the placement itself was acceptable
+     */
+    public RejectionReason getReason(int index) {
+        return reasons[index];
+    }
+
+    /**
+     * Returns the number of refused placements.
+     *
+     * @return the number of placements with a reason
+     */
+    public int getRejectedCount() {
+        int count = 0;
+        for (RejectionReason reason : reasons) {
+            if (reason != null) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult[committed=" + committed + ", reasons=" + Arrays.toString(reasons) + "]";
+    }
+}
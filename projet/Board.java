@@ -1,48 +1,197 @@
 package projet;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Represents the game board where tiles are placed.
- * The board is a square grid of size defined by {@link Board#SIZE}.
+ * The board is a square grid, of size {@link Board#SIZE} for the standard game or of any size up to {@link #MAX_SIZE}.
+ * The tiles and candidate masks are stored in chunks allocated around the placed tiles, so the memory used
+ * and the cost of a placement follow the number of tiles, not the area of the board.
  */
 public class Board {
 	
 	/**
-     * The grid representing the game board, a 2D array of tiles with size {@link Board#SIZE} x {@link Board#SIZE}.
+     * The grid representing the game board, the tiles in chunks of {@link ChunkedGrid#CHUNK} x {@link ChunkedGrid#CHUNK} cells.
      */
-    private final Tile[][] grid;
+    private final ChunkedGrid<Tile> grid;
     
     /**
-     * The size of the board, defined as a constant.
+     * The size of the standard board.
      */
     public static final int SIZE = 7;
-    
+
+    /**
+     * The largest supported size, so that every cell index {@code row * size + col} fits in an {@code int}.
+     */
+    public static final int MAX_SIZE = 46_340;
+
+    /**
+     * The number of rows and columns of the board.
+     */
+    private final int size;
+
+    /**
+     * The candidate mask of each cell.
+     * Bit {@code i} is set when the combination {@code i} of {@link RotationTable#index(TileType, Orientation)}
+     * can legally be placed in the cell. Occupied cells have an empty mask, cells far from any tile have every bit set.
+     * The masks follow the connections tiles have when they are placed.
+     */
+    private final ChunkedLongGrid candidates;
+
+    /**
+     * The number of legal placements, the sum of the bit counts of the candidate masks.
+     */
+    private long moveCount;
+
+    /**
+     * The rules deciding which edges may face each other.
+     */
+    private final ConnectionRules rules;
+
+    /**
+     * The incremental scorer of the networks built on the board.
+     */
+    private final NetworkScorer scorer;
+
+    /**
+     * The version of the board, incremented on every change.
+     */
+    private int version;
+
+    /**
+     * The cell changed by each version, {@code changes[v - 1]} for version {@code v}, indexed by {@code row * size + col}.
+     */
+    private int[] changes;
+
+    /**
+     * The {@link Zobrist} hash of the tiles on the board.
+     */
+    private long hash;
+
+    /**
+     * The placements that can be undone, the most recent first.
+     */
+    private final Deque<JournalEntry> journal = new ArrayDeque<>();
+
+    /**
+     * The undone placements that can be redone, the most recently undone first.
+     */
+    private final Deque<JournalEntry> redoJournal = new ArrayDeque<>();
+
     /**
-     * The set of exit positions on the board.
-     * Initialized with predefined positions.
+     * The number of placements ever recorded in the journal, numbering its entries for {@link #mark()}.
      */
-    private static final Set<Position> EXITS = initializeExits();
+    private long journaled;
+
+    /**
+     * The listeners notified of the changes of the board. They are not copied by {@link #copy()}.
+     */
+    private final List<BoardListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructs a new {@link Board} instance.
      * Initializes the grid with a size of {@link Board#SIZE} x {@link Board#SIZE}.
      */
     public Board() {
-        grid = new Tile[SIZE][SIZE];
+        this(SIZE);
+    }
+
+    /**
+     * Constructs an empty board of a given size, with the default exits of {@link #defaultExits(int)}.
+     * 
+     * @param size the number of rows and columns.
+     */
+    public Board(int size) {
+        this(size, defaultExits(size));
+    }
+
+    /**
+     * Constructs an empty board of a given size and with given exits, played with the standard rules.
+     * 
+     * @param size the number of rows and columns, between 2 and {@link #MAX_SIZE}.
+     * @param exits the exit positions, each on the border of the board.
+     * @throws IllegalArgumentException if the size is not supported or an exit is not on the border.
+     */
+    public Board(int size, Collection<Position> exits) {
+        this(size, exits, ConnectionRules.standard());
     }
 
     /**
-     * Initializes the set of exit positions on the board.
+     * Constructs an empty board of a given size and with given exits, played with a variant of the connection rules.
      * 
+     * @param size the number of rows and columns, between 2 and {@link #MAX_SIZE}.
+     * @param exits the exit positions, each on the border of the board.
+     * @param rules the rules deciding which edges may face each other.
+     * @throws IllegalArgumentException if the size is not supported or an exit is not on the border.
+     */
+    public Board(int size, Collection<Position> exits, ConnectionRules rules) {
+        if (size < 2 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("The size " + size + " is not between 2 and " + MAX_SIZE);
+        }
+        this.size = size;
+        this.rules = rules;
+        grid = new ChunkedGrid<>(size);
+        candidates = new ChunkedLongGrid(size, RotationTable.ALL_COMBINATIONS);
+        moveCount = (long) size * size * RotationTable.COMBINATIONS;
+        scorer = new NetworkScorer(size, exits);
+        changes = new int[16];
+    }
+
+    /**
+     * Constructs an independent copy of another board.
+     * The tiles are copied too, so the two boards share no mutable state.
+     * 
+     * @param other the board to copy.
+     */
+    private Board(Board other) {
+        size = other.size;
+        rules = other.rules;
+        grid = new ChunkedGrid<>(other.grid, Tile::copy);
+        candidates = new ChunkedLongGrid(other.candidates);
+        moveCount = other.moveCount;
+        scorer = new NetworkScorer(other.scorer);
+        version = other.version;
+        changes = other.changes.clone();
+        hash = other.hash;
+    }
+
+    /**
+     * Creates an independent copy of the board, for simulations and "what if" explorations.
+     * The journal is not copied: the copy starts with nothing to undo.
+     * 
+     * @return the copy of the board.
+     */
+    public Board copy() {
+        return new Board(this);
+    }
+
+    /**
+     * Returns the default exit positions of a board: the second cell of the top row and the middle of the bottom row.
+     * 
+     * @param size the size of the board.
      * @return a set of exit positions.
      */
-    private static Set<Position> initializeExits() {
+    public static Set<Position> defaultExits(int size) {
         Set<Position> exits = new HashSet<>();
         // Exemple d'ajout de sorties pour le jeu
-        exits.add(new Position(0, 1));
-        exits.add(new Position(6, 3));
+        exits.add(Position.of(0, 1));
+        exits.add(Position.of(size - 1, size / 2));
         return exits;
     }
 
@@ -57,7 +206,7 @@ public class Board {
      */
     public boolean isValidPlacement(Position pos, Tile tile) {
         if (!isPositionValid(pos)) return false;
-        if (grid[pos.getRow()][pos.getCol()] != null) return false;
+        if (grid.get(pos.getRow(), pos.getCol()) != null) return false;
         return checkConnections(pos, tile);
     }
 
@@ -68,7 +217,7 @@ public class Board {
      * @return {@code true} if the position is valid, otherwise {@code false}.
      */
     private boolean isPositionValid(Position pos) {
-        return pos.getRow() >= 0 && pos.getRow() < SIZE && pos.getCol() >= 0 && pos.getCol() < SIZE;
+        return pos.getRow() >= 0 && pos.getRow() < size && pos.getCol() >= 0 && pos.getCol() < size;
     }
 
     /**
@@ -80,34 +229,34 @@ public class Board {
      */
     private boolean checkConnections(Position pos, Tile tile) {
         // Vérification des connexions vers le haut (Nord)
-        if (pos.getRow() > 0 && grid[pos.getRow() - 1][pos.getCol()] != null) {
-            if (!areConnectionsCompatible(
-                tile.getConnections()[0], 
-                grid[pos.getRow() - 1][pos.getCol()].getConnections()[2])) {
+        if (pos.getRow() > 0 && grid.get(pos.getRow() - 1, pos.getCol()) != null) {
+            if (!rules.isCompatible(
+                tile.getConnection(0), 
+                grid.get(pos.getRow() - 1, pos.getCol()).getConnection(2))) {
                 return false;
             }
         }
         // Vérification des connexions vers la droite (Est)
-        if (pos.getCol() < SIZE - 1 && grid[pos.getRow()][pos.getCol() + 1] != null) {
-            if (!areConnectionsCompatible(
-                tile.getConnections()[1], 
-                grid[pos.getRow()][pos.getCol() + 1].getConnections()[3])) {
+        if (pos.getCol() < size - 1 && grid.get(pos.getRow(), pos.getCol() + 1) != null) {
+            if (!rules.isCompatible(
+                tile.getConnection(1), 
+                grid.get(pos.getRow(), pos.getCol() + 1).getConnection(3))) {
                 return false;
             }
         }
         // Vérification des connexions vers le bas (Sud)
-        if (pos.getRow() < SIZE - 1 && grid[pos.getRow() + 1][pos.getCol()] != null) {
-            if (!areConnectionsCompatible(
-                tile.getConnections()[2], 
-                grid[pos.getRow() + 1][pos.getCol()].getConnections()[0])) {
+        if (pos.getRow() < size - 1 && grid.get(pos.getRow() + 1, pos.getCol()) != null) {
+            if (!rules.isCompatible(
+                tile.getConnection(2), 
+                grid.get(pos.getRow() + 1, pos.getCol()).getConnection(0))) {
                 return false;
             }
         }
         // Vérification des connexions vers la gauche (Ouest)
-        if (pos.getCol() > 0 && grid[pos.getRow()][pos.getCol() - 1] != null) {
-            if (!areConnectionsCompatible(
-                tile.getConnections()[3], 
-                grid[pos.getRow()][pos.getCol() - 1].getConnections()[1])) {
+        if (pos.getCol() > 0 && grid.get(pos.getRow(), pos.getCol() - 1) != null) {
+            if (!rules.isCompatible(
+                tile.getConnection(3), 
+                grid.get(pos.getRow(), pos.getCol() - 1).getConnection(1))) {
                 return false;
             }
         }
@@ -116,47 +265,615 @@ public class Board {
 
 
     /**
-     * Checks if two connection types are compatible.
+     * Places a tile on the board at the given position.
+     * The board keeps a copy of the tile, so rotating the tile afterwards does not change the board.
      * 
-     * @param newConn the new connection to check.
-     * @param existingConn the existing connection to check.
-     * @return {@code true} if the connections are compatible, otherwise {@code false}.
+     * @param pos the position where to place the tile.
+     * @param tile the tile to place.
+     * @return {@code true} if the tile was successfully placed, otherwise {@code false}.
      */
-    private boolean areConnectionsCompatible(ConnectionType newConn, ConnectionType existingConn) {
-        return newConn == existingConn || newConn == ConnectionType.NONE || existingConn == ConnectionType.NONE;
+    public boolean placeTile(Position pos, Tile tile) {
+        long start = GameMetrics.ENABLED ? System.nanoTime() : -1;
+        if (!isValidPlacement(pos, tile)) {
+            if (GameMetrics.ENABLED) recordRejection(pos, tile, start);
+            return false;
+        }
+        redoJournal.clear();
+        apply(new JournalEntry(pos.getRow() * size + pos.getCol(), tile.copy()));
+        for (BoardListener listener : listeners) {
+            listener.tilePlaced(pos.getRow(), pos.getCol(), tile);
+        }
+        if (GameMetrics.ENABLED) GameMetrics.get().placed(start);
+        return true;
     }
 
     /**
-     * Places a tile on the board at the given position.
+     * Returns why placing a tile at the given position would be refused.
      * 
-     * @param pos the position where to place the tile.
+     * @param pos the position to check.
      * @param tile the tile to place.
-     * @return {@code true} if the tile was successfully placed, otherwise {@code false}.
+     * @return the reason, or {@code null} if the placement is valid.
      */
-    public boolean placeTile(Position pos, Tile tile) {
-        if (!isValidPlacement(pos, tile)) return false;
-        grid[pos.getRow()][pos.getCol()] = tile;
+    public RejectionReason rejectionReason(Position pos, Tile tile) {
+        if (!isPositionValid(pos)) return RejectionReason.OUT_OF_BOUNDS;
+        if (grid.get(pos.getRow(), pos.getCol()) != null) return RejectionReason.OCCUPIED;
+        return mismatchedSide(pos, tile) >= 0 ? RejectionReason.INCOMPATIBLE_NEIGHBOUR : null;
+    }
+
+    /**
+     * Finds the first side of a tile whose connection conflicts with the neighbouring tile.
+     * 
+     * @param pos the position of the tile, inside the board.
+     * @param tile the tile.
+     * @return the side, 0 = North, 1 = East, 2 = South, 3 = West, or -1 if every edge matches.
+     */
+    private int mismatchedSide(Position pos, Tile tile) {
+        for (int side = 0; side < 4; side++) {
+            Tile neighbour = neighbourTile(pos, side);
+            if (neighbour != null && !rules.isCompatible(tile.getConnection(side),
+                    neighbour.getConnection(ConnectionSignature.opposite(side)))) {
+                return side;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the tile next to a position on one side.
+     * 
+     * @param pos the position, inside the board.
+     * @param side the side, 0 = North, 1 = East, 2 = South, 3 = West.
+     * @return the neighbouring tile, or {@code null} if the cell is empty or outside the board.
+     */
+    private Tile neighbourTile(Position pos, int side) {
+        int row = pos.getRow() + (side == ConnectionSignature.SOUTH ? 1 : side == ConnectionSignature.NORTH ? -1 : 0);
+        int col = pos.getCol() + (side == ConnectionSignature.EAST ? 1 : side == ConnectionSignature.WEST ? -1 : 0);
+        return row < 0 || row >= size || col < 0 || col >= size ? null : grid.get(row, col);
+    }
+
+    /**
+     * Classifies a refused placement for the {@link GameMetrics}.
+     * 
+     * @param pos the position of the placement.
+     * @param tile the refused tile.
+     * @param start the {@link System#nanoTime()} at the start of the placement.
+     */
+    private void recordRejection(Position pos, Tile tile, long start) {
+        RejectionReason reason = rejectionReason(pos, tile);
+        if (reason == RejectionReason.INCOMPATIBLE_NEIGHBOUR) {
+            int side = mismatchedSide(pos, tile);
+            GameMetrics.get().mismatched(side, tile.getConnection(side),
+                    neighbourTile(pos, side).getConnection(ConnectionSignature.opposite(side)));
+        }
+        GameMetrics.get().rejected(reason, start);
+    }
+
+    /**
+     * Places a batch of tiles, all or nothing.
+     * The whole batch is validated first, against the tiles of the board and against the other placements of the
+     * batch, so placements that neighbour each other must match too. If any placement is refused, the board is left
+     * unchanged; otherwise every tile is placed and the listeners are notified once for the batch.
+     * Each tile can then be undone on its own, or the whole batch with {@link #mark()} and {@link #rollbackTo(long)}.
+     * 
+     * @param placements the placements of the batch.
+     * @return whether the batch was committed, and the reason of each refused placement.
+     */
+    public BatchResult placeTiles(List<Placement> placements) {
+        int count = placements.size();
+        RejectionReason[] reasons = new RejectionReason[count];
+        int[] cells = new int[count];
+        int[] combinations = new int[count];
+        Map<Integer, Integer> batchCells = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            Placement placement = placements.get(i);
+            Position pos = placement.getPosition();
+            combinations[i] = RotationTable.index(placement.getType(), placement.getOrientation());
+            if (!isPositionValid(pos)) {
+                reasons[i] = RejectionReason.OUT_OF_BOUNDS;
+                continue;
+            }
+            cells[i] = pos.toIndex(size);
+            if (grid.get(pos.getRow(), pos.getCol()) != null) {
+                reasons[i] = RejectionReason.OCCUPIED;
+            } else if (batchCells.putIfAbsent(cells[i], i) != null) {
+                reasons[i] = RejectionReason.DUPLICATE_IN_BATCH;
+            }
+        }
+        boolean valid = true;
+        for (int i = 0; i < count; i++) {
+            if (reasons[i] == null) reasons[i] = batchConflict(cells[i], combinations[i], batchCells, combinations);
+            valid &= reasons[i] == null;
+        }
+        if (GameMetrics.ENABLED) {
+            for (RejectionReason reason : reasons) {
+                if (reason != null) GameMetrics.get().rejected(reason, -1);
+                else if (valid) GameMetrics.get().placed(-1);
+                else GameMetrics.get().aborted();
+            }
+        }
+        if (!valid) return new BatchResult(reasons, false);
+
+        redoJournal.clear();
+        List<Position> positions = new ArrayList<>(count);
+        List<Tile> tiles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Tile tile = placements.get(i).toTile();
+            apply(new JournalEntry(cells[i], tile.copy()));
+            positions.add(placements.get(i).getPosition());
+            tiles.add(tile);
+        }
+        for (BoardListener listener : listeners) {
+            listener.tilesPlaced(positions, tiles);
+        }
+        return new BatchResult(reasons, true);
+    }
+
+    /**
+     * Checks the four edges of a placement of a batch against the board and the other placements of the batch.
+     * 
+     * @param cell the index of the cell.
+     * @param combination the combination index of the tile.
+     * @param batchCells the placement of the batch in each targeted cell.
+     * @param combinations the combination index of each placement of the batch.
+     * @return the reason why the placement is refused, or {@code null} if every edge matches.
+     */
+    private RejectionReason batchConflict(int cell, int combination, Map<Integer, Integer> batchCells, int[] combinations) {
+        int row = cell / size;
+        int col = cell % size;
+        for (int side = 0; side < 4; side++) {
+            int neighbourRow = row + (side == ConnectionSignature.SOUTH ? 1 : side == ConnectionSignature.NORTH ? -1 : 0);
+            int neighbourCol = col + (side == ConnectionSignature.EAST ? 1 : side == ConnectionSignature.WEST ? -1 : 0);
+            if (neighbourRow < 0 || neighbourRow >= size || neighbourCol < 0 || neighbourCol >= size) continue;
+            int opposite = ConnectionSignature.opposite(side);
+            Tile neighbour = grid.get(neighbourRow, neighbourCol);
+            if (neighbour != null) {
+                if ((rules.compatibleWith(side, neighbour.getConnection(opposite)) >>> combination & 1) == 0) {
+                    return RejectionReason.INCOMPATIBLE_NEIGHBOUR;
+                }
+                continue;
+            }
+            Integer other = batchCells.get(neighbourRow * size + neighbourCol);
+            if (other != null) {
+                int otherCombination = combinations[other];
+                ConnectionType facing = RotationTable.connection(RotationTable.typeOf(otherCombination),
+                        RotationTable.orientationOf(otherCombination), opposite);
+                if ((rules.compatibleWith(side, facing) >>> combination & 1) == 0) {
+                    return RejectionReason.INCOMPATIBLE_IN_BATCH;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies a validated placement and records it in the journal. The listeners are notified by the caller.
+     * 
+     * @param entry the placement, whose saved state is filled here.
+     */
+    private void apply(JournalEntry entry) {
+        int cell = entry.cell;
+        int row = cell / size;
+        int col = cell % size;
+        Tile tile = entry.tile;
+        entry.save(this);
+        if (entry.number == 0) entry.number = ++journaled;
+        journal.push(entry);
+        grid.set(row, col, tile);
+        updateCandidates(row, col, tile);
+        scorer.place(row, col, tile.getType(), tile.getSignature());
+        recordChange(cell);
+        hash ^= Zobrist.key(cell, tile.getType(), entry.orientation);
+    }
+
+    /**
+     * Undoes the last placement, restoring the grid, the candidate masks, the score and the hash as they were before it.
+     * The board gets a new version, so deltas report the emptied cell.
+     * 
+     * @return {@code true} if a placement was undone, {@code false} if there was nothing to undo.
+     */
+    public boolean undo() {
+        JournalEntry entry = journal.poll();
+        if (entry == null) return false;
+        int cell = entry.cell;
+        grid.set(cell / size, cell % size, null);
+        entry.restore(this);
+        scorer.undo();
+        recordChange(cell);
+        hash ^= Zobrist.key(cell, entry.tile.getType(), entry.orientation);
+        redoJournal.push(entry);
+        for (BoardListener listener : listeners) {
+            listener.tileRemoved(cell / size, cell % size);
+        }
         return true;
     }
 
+    /**
+     * Redoes the last undone placement, with the tile in the orientation it had when it was first placed.
+     * Placing a new tile clears the placements that can be redone.
+     * 
+     * @return {@code true} if a placement was redone, {@code false} if there was nothing to redo.
+     */
+    public boolean redo() {
+        JournalEntry entry = redoJournal.poll();
+        if (entry == null) return false;
+        apply(entry);
+        for (BoardListener listener : listeners) {
+            listener.tilePlaced(entry.cell / size, entry.cell % size, entry.tile.copy());
+        }
+        return true;
+    }
+
+    /**
+     * Registers a listener notified of every later change of the board.
+     * 
+     * @param listener the listener.
+     */
+    public void addBoardListener(BoardListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     * 
+     * @param listener the listener.
+     */
+    public void removeBoardListener(BoardListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns a mark of the current point of the journal, to come back to it with {@link #rollbackTo(long)}.
+     * The mark names the last placement that can be undone, not the depth of the journal, so it stays valid
+     * only while that placement is in the journal: once it is undone and another tile is placed, the mark is stale.
+     * 
+     * @return the number of the last placement that can be undone, or 0 if there is none.
+     */
+    public long mark() {
+        JournalEntry last = journal.peek();
+        return last == null ? 0 : last.number;
+    }
+
+    /**
+     * Undoes every placement made after a mark. The undone placements can be redone one at a time.
+     * 
+     * @param mark a mark returned by {@link #mark()}, or 0 to undo every placement.
+     * @throws IllegalArgumentException if the placement of the mark is no longer in the journal,
+     *         for instance after an earlier rollback or an undo followed by another placement.
+     */
+    public void rollbackTo(long mark) {
+        if (mark != 0 && !isJournaled(mark)) {
+            throw new IllegalArgumentException("Mark " + mark + " is stale, its placement is no longer in the journal");
+        }
+        while (!journal.isEmpty() && journal.peek().number != mark) {
+            undo();
+        }
+    }
+
+    /**
+     * Checks whether a placement is in the journal, whose numbers decrease from the most recent placement.
+     * 
+     * @param number the number of the placement.
+     * @return {@code true} if the placement can be undone.
+     */
+    private boolean isJournaled(long number) {
+        for (JournalEntry entry : journal) {
+            if (entry.number <= number) return entry.number == number;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the {@link Zobrist} hash of the board, the same for identical boards whatever the order of the moves.
+     * 
+     * @return the 64-bit hash.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Records that a cell changed, creating a new version of the board.
+     * 
+     * @param cell the index of the changed cell.
+     */
+    private void recordChange(int cell) {
+        if (version == changes.length) {
+            changes = Arrays.copyOf(changes, version * 2);
+        }
+        changes[version++] = cell;
+    }
+
+    /**
+     * Returns the version of the board, incremented on every change. An empty board has version 0.
+     * 
+     * @return the current version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the cell changed by a given version.
+     * 
+     * @param version the version, between 1 and {@link #getVersion()}.
+     * @return the index {@code row * size + col} of the changed cell.
+     */
+    public int getChangedCell(int version) {
+        if (version < 1 || version > this.version) {
+            throw new IllegalArgumentException("Unknown version " + version + ", current version is " + this.version);
+        }
+        return changes[version - 1];
+    }
+
+    /**
+     * Returns the current score of the board, maintained incrementally as tiles are placed.
+     * 
+     * @return the score report.
+     */
+    public ScoreReport getScore() {
+        return scorer.report();
+    }
+
+    /**
+     * Updates the candidate masks after a tile was placed.
+     * Only the placed cell and its four neighbours are touched.
+     * 
+     * @param row the row of the placed tile.
+     * @param col the column of the placed tile.
+     * @param tile the placed tile.
+     */
+    private void updateCandidates(int row, int col, Tile tile) {
+        moveCount -= Long.bitCount(candidates.get(row, col));
+        candidates.set(row, col, 0);
+        if (row > 0) {
+            restrictCandidates(row - 1, col, ConnectionSignature.SOUTH, tile.getConnection(ConnectionSignature.NORTH));
+        }
+        if (col < size - 1) {
+            restrictCandidates(row, col + 1, ConnectionSignature.WEST, tile.getConnection(ConnectionSignature.EAST));
+        }
+        if (row < size - 1) {
+            restrictCandidates(row + 1, col, ConnectionSignature.NORTH, tile.getConnection(ConnectionSignature.SOUTH));
+        }
+        if (col > 0) {
+            restrictCandidates(row, col - 1, ConnectionSignature.EAST, tile.getConnection(ConnectionSignature.WEST));
+        }
+    }
+
+    /**
+     * Removes from a cell's candidate mask the combinations whose edge on the given side conflicts with the facing connection.
+     * 
+     * @param row the row of the neighbouring cell.
+     * @param col the column of the neighbouring cell.
+     * @param side the side of that cell facing the placed tile.
+     * @param facing the connection of the placed tile on the shared edge.
+     */
+    private void restrictCandidates(int row, int col, int side, ConnectionType facing) {
+        long mask = candidates.get(row, col);
+        long restricted = mask & rules.compatibleWith(side, facing);
+        if (restricted != mask) {
+            moveCount -= Long.bitCount(mask) - Long.bitCount(restricted);
+            candidates.set(row, col, restricted);
+        }
+    }
+
+    /**
+     * Returns the candidate mask of a cell.
+     * Bit {@code i} is set when the combination {@code i} of {@link RotationTable#index(TileType, Orientation)}
+     * would be a valid placement in that cell.
+     * 
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the candidate mask, 0 for an occupied or blocked cell.
+     */
+    public long getCandidates(int row, int col) {
+        return candidates.get(row, col);
+    }
+
+    /**
+     * Returns the number of legal placements on the board.
+     * 
+     * @return the number of legal (position, type, orientation) placements.
+     * @throws ArithmeticException if the board is so large that the count does not fit in an {@code int}.
+     */
+    public int legalMoveCount() {
+        return Math.toIntExact(moveCount);
+    }
+
+    /**
+     * Streams every legal placement on the board, read from the candidate masks.
+     * The board must not be modified while the stream is consumed.
+     * 
+     * @return a stream of the legal placements, ordered by cell then by combination index.
+     */
+    public Stream<Placement> legalMoves() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new LegalMoveIterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * A placement recorded in the journal, with the state of the candidate masks it overwrote.
+     * Only the placed cell and its four neighbours are saved, never the whole board.
+     */
+    private static class JournalEntry {
+
+    	/** The index of the placed cell. */
+        private final int cell;
+
+        /** The placed tile. */
+        private final Tile tile;
+
+        /** The orientation of the tile when it was placed. */
+        private final Orientation orientation;
+
+        /** The number of the placement in the journal, given when it is first applied and kept when it is redone. */
+        private long number;
+
+        /** The candidate masks of the cell and of its northern, eastern, southern and western neighbours before the placement. */
+        private final long[] savedCandidates = new long[5];
+
+        /** The number of legal placements before the placement. */
+        private long savedMoveCount;
+
+        JournalEntry(int cell, Tile tile) {
+            this.cell = cell;
+            this.tile = tile;
+            this.orientation = tile.getOrientation();
+        }
+
+        /**
+         * Saves the candidate masks about to be modified by the placement.
+         * 
+         * @param board the board.
+         */
+        void save(Board board) {
+            savedMoveCount = board.moveCount;
+            for (int i = 0; i < savedCandidates.length; i++) {
+                int neighbour = neighbour(board.size, i);
+                if (neighbour >= 0) savedCandidates[i] = board.candidates.get(neighbour / board.size, neighbour % board.size);
+            }
+        }
+
+        /**
+         * Restores the candidate masks saved before the placement.
+         * 
+         * @param board the board.
+         */
+        void restore(Board board) {
+            board.moveCount = savedMoveCount;
+            for (int i = 0; i < savedCandidates.length; i++) {
+                int neighbour = neighbour(board.size, i);
+                if (neighbour >= 0) board.candidates.set(neighbour / board.size, neighbour % board.size, savedCandidates[i]);
+            }
+        }
+
+        /**
+         * Returns the cell saved at a given index: the placed cell, then its neighbours.
+         * 
+         * @param size the size of the board.
+         * @param index 0 for the cell, 1 to 4 for its North, East, South and West neighbours.
+         * @return the index of that cell, or -1 if it is outside the board.
+         */
+        private int neighbour(int size, int index) {
+            int row = cell / size;
+            int col = cell % size;
+            switch (index) {
+                case 0:
+                    return cell;
+                case 1:
+                    return row > 0 ? cell - size : -1;
+                case 2:
+                    return col < size - 1 ? cell + 1 : -1;
+                case 3:
+                    return row < size - 1 ? cell + size : -1;
+                default:
+                    return col > 0 ? cell - 1 : -1;
+            }
+        }
+    }
+
+    /**
+     * Iterates over the set bits of the candidate masks of the cells.
+     */
+    private class LegalMoveIterator implements Iterator<Placement> {
+
+    	/** The next cell to visit. */
+        private int nextCell;
+
+        /** The index of the cell being visited. */
+        private int cell;
+
+        /** The combinations of the current cell not yet returned. */
+        private long combinations;
+
+        @Override
+        public boolean hasNext() {
+            while (combinations == 0 && nextCell < size * size) {
+                cell = nextCell++;
+                combinations = candidates.get(cell / size, cell % size);
+            }
+            return combinations != 0;
+        }
+
+        @Override
+        public Placement next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int index = Long.numberOfTrailingZeros(combinations);
+            combinations &= combinations - 1;
+            return new Placement(Position.of(cell / size, cell % size),
+                    RotationTable.typeOf(index), RotationTable.orientationOf(index));
+        }
+    }
+
     /**
      * Gets the tile at a given position on the board.
+     * The tile is a copy: changing it does not change the board.
      * 
      * @param row the row of the tile.
      * @param col the column of the tile.
-     * @return the tile at the specified position.
+     * @return a copy of the tile at the specified position, or {@code null} if the cell is empty.
+     * @throws ArrayIndexOutOfBoundsException if the position is outside the board.
      */
     public Tile getTileAt(int row, int col) {
-        return grid[row][col];
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            throw new ArrayIndexOutOfBoundsException("Position (" + row + ", " + col + ") is outside the board");
+        }
+        Tile tile = grid.get(row, col);
+        return tile == null ? null : tile.copy();
+    }
+
+    /**
+     * Gets the tile stored by the board at a given position, without copying it, for the readers of this package.
+     * The tile must not be modified: the candidate masks, the score and the hash depend on it.
+     * 
+     * @param row the row of the tile.
+     * @param col the column of the tile.
+     * @return the tile at the specified position, or {@code null} if the cell is empty.
+     */
+    Tile peekTile(int row, int col) {
+        return grid.get(row, col);
     }
     
     /**
-     * Gets the entire grid representing the board.
+     * Copies the tiles of the board into a new 2D array, each tile being a copy too.
+     * The array follows the area of the board, prefer {@link #getTileAt(int, int)} on large boards.
      * 
-     * @return the grid of tiles.
+     * @return the grid of tiles, {@code null} for an empty cell.
      */
     public Tile[][] getGrid() {
-        return grid;
+        Tile[][] tiles = new Tile[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                tiles[row][col] = getTileAt(row, col);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns the size of the board.
+     * 
+     * @return the number of rows and columns.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the rules the board is played with.
+     *
+     * @return the rules deciding which edges may face each other.
+     */
+    public ConnectionRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the exit positions of the board.
+     *
+     * @return a new set of the exit positions.
+     */
+    public Set<Position> getExits() {
+        return scorer.getExits();
     }
 
 }
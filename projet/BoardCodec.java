@@ -0,0 +1,363 @@
+package projet;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Versioned binary encoding of a board, read and written directly in {@link ByteBuffer}s.
+ * <p>
+ * A full state holds a header followed by one byte per cell, in {@code row * size + col} order:
+ * the combination index of {@link RotationTable#index(TileType, Orientation)} for a tile, {@link #EMPTY} for an empty cell.
+ * <pre>
+ *   format (1) | FULL (1) | size (4) | version (4) | cells (size * size)
+ * </pre>
+ * A delta holds only the cells changed after a given version, with their final content:
+ * <pre>
+ *   format (1) | DELTA (1) | size (4) | from version (4) | to version (4) | count (4) | count * (cell (4) | code (1))
+ * </pre>
+ * All multi-byte values are big-endian. Readers use absolute accesses from the buffer's position and leave it unchanged.
+ */
+public final class BoardCodec {
+
+	/**
+     * The version of the encoding format.
+     */
+    public static final byte FORMAT = 1;
+
+    /**
+     * The kind of a full state.
+     */
+    public static final byte FULL = 0;
+
+    /**
+     * The kind of a delta.
+     */
+    public static final byte DELTA = 1;
+
+    /**
+     * The code of an empty cell.
+     */
+    public static final byte EMPTY = (byte) 0xFF;
+
+    /**
+     * The length of the header of a full state.
+     */
+    public static final int FULL_HEADER = 10;
+
+    /**
+     * The length of the header of a delta.
+     */
+    public static final int DELTA_HEADER = 18;
+
+    /**
+     * The length of one cell of a delta.
+     */
+    public static final int DELTA_ENTRY = 5;
+
+    /**
+     * The changed cells gathered by {@link #encodeDelta(Board, int, ByteBuffer)}, reused by each thread.
+     */
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[64]);
+
+    /**
+     * Private constructor, this class only holds static helpers.
+     */
+    private BoardCodec() {
+    }
+
+    /**
+     * Returns the length of the full state of a board.
+     *
+     * @param size the size of the board
+     * @return the number of bytes written by {@link #encode(Board, ByteBuffer)}
+     */
+    public static int fullLength(int size) {
+        return FULL_HEADER + size * size;
+    }
+
+    /**
+     * Returns the code of the tile in a cell.
+     *
+     * @param board the board
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the combination index of the tile, or {@link #EMPTY}
+     */
+    private static byte code(Board board, int row, int col) {
+        Tile tile = board.peekTile(row, col);
+        return tile == null ? EMPTY : (byte) RotationTable.index(tile.getType(), tile.getOrientation());
+    }
+
+    /**
+     * Writes the full state of a board at the position of the buffer, and advances it.
+     *
+     * @param board the board
+     * @param out the buffer receiving the state
+     * @throws BufferOverflowException if the buffer has less than {@link #fullLength(int)} bytes remaining
+     */
+    public static void encode(Board board, ByteBuffer out) {
+        int size = board.getSize();
+        if (out.remaining() < fullLength(size)) throw new BufferOverflowException();
+        out.put(FORMAT).put(FULL).putInt(size).putInt(board.getVersion());
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                out.put(code(board, row, col));
+            }
+        }
+    }
+
+    /**
+     * Writes the cells changed after a given version at the position of the buffer, and advances it.
+     * Each changed cell appears once, with its current content, in increasing cell order.
+     * Nothing is written if the buffer is too small.
+     *
+     * @param board the board
+     * @param sinceVersion the version already known by the reader
+     * @param out the buffer receiving the delta
+     * @return the number of cells in the delta
+     * @throws IllegalArgumentException if the version is negative or newer than the board
+     * @throws BufferOverflowException if the buffer has less than {@link #deltaLength(int)} bytes remaining
+     */
+    public static int encodeDelta(Board board, int sinceVersion, ByteBuffer out) {
+        int version = board.getVersion();
+        if (sinceVersion < 0 || sinceVersion > version) {
+            throw new IllegalArgumentException("Version " + sinceVersion + " is not between 0 and " + version);
+        }
+        int changes = version - sinceVersion;
+        int[] cells = SCRATCH.get();
+        if (cells.length < changes) {
+            cells = new int[Math.max(changes, 2 * cells.length)];
+            SCRATCH.set(cells);
+        }
+        for (int v = version; v > sinceVersion; v--) {
+            cells[version - v] = board.getChangedCell(v);
+        }
+        // Trier puis dédoublonner sur place : chaque case n'apparaît qu'une fois
+        Arrays.sort(cells, 0, changes);
+        int count = 0;
+        for (int i = 0; i < changes; i++) {
+            if (count == 0 || cells[count - 1] != cells[i]) cells[count++] = cells[i];
+        }
+        if (out.remaining() < deltaLength(count)) throw new BufferOverflowException();
+        int size = board.getSize();
+        out.put(FORMAT).put(DELTA).putInt(size).putInt(sinceVersion).putInt(version).putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putInt(cells[i]).put(code(board, cells[i] / size, cells[i] % size));
+        }
+        return count;
+    }
+
+    /**
+     * Writes the full state of a snapshot at the position of the buffer, and advances it.
+     *
+     * @param snapshot the snapshot
+     * @param out the buffer receiving the state
+     * @throws BufferOverflowException if the buffer has less than {@link #fullLength(int)} bytes remaining
+     */
+    public static void encode(BoardSnapshot snapshot, ByteBuffer out) {
+        int size = snapshot.getSize();
+        if (out.remaining() < fullLength(size)) throw new BufferOverflowException();
+        out.put(FORMAT).put(FULL).putInt(size).putInt(snapshot.getVersion());
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                out.put((byte) snapshot.getCombination(row, col));
+            }
+        }
+    }
+
+    /**
+     * Writes the cells that differ between two snapshots of a board at the position of the buffer, and advances it.
+     * The cells changed back and forth in between are not written.
+     *
+     * @param from the snapshot already known by the reader
+     * @param to the newer snapshot
+     * @param out the buffer receiving the delta
+     * @return the number of cells in the delta
+     * @throws IllegalArgumentException if the snapshots have different sizes or {@code from} is the newer one
+     * @throws BufferOverflowException if the buffer is too small
+     */
+    public static int encodeDelta(BoardSnapshot from, BoardSnapshot to, ByteBuffer out) {
+        int[] cells = to.changedCells(from);
+        encodeDelta(from.getVersion(), to, cells, out);
+        return cells.length;
+    }
+
+    /**
+     * Writes a delta from a version to a snapshot, given the cells that changed in between.
+     *
+     * @param fromVersion the version already known by the reader
+     * @param to the newer snapshot
+     * @param cells the changed cells, indexed by {@code row * size + col}
+     * @param out the buffer receiving the delta
+     * @throws IllegalArgumentException if the version is newer than the snapshot
+     * @throws BufferOverflowException if the buffer is too small
+     */
+    static void encodeDelta(int fromVersion, BoardSnapshot to, int[] cells, ByteBuffer out) {
+        if (fromVersion > to.getVersion()) {
+            throw new IllegalArgumentException("Version " + fromVersion + " is newer than " + to.getVersion());
+        }
+        if (out.remaining() < deltaLength(cells.length)) throw new BufferOverflowException();
+        int size = to.getSize();
+        out.put(FORMAT).put(DELTA).putInt(size).putInt(fromVersion).putInt(to.getVersion()).putInt(cells.length);
+        for (int cell : cells) {
+            out.putInt(cell).put((byte) to.getCombination(cell / size, cell % size));
+        }
+    }
+
+    /**
+     * Returns the length of a delta with the given number of cells.
+     *
+     * @param cells the number of changed cells
+     * @return the number of bytes of the delta
+     */
+    public static int deltaLength(int cells) {
+        return DELTA_HEADER + cells * DELTA_ENTRY;
+    }
+
+    /**
+     * Checks the format and kind of an encoded board.
+     *
+     * @param in the buffer, positioned at the start of the encoding
+     * @param kind the expected kind
+     * @throws IllegalArgumentException if the buffer does not hold an encoding of that kind, or not even its header
+     */
+    private static void check(ByteBuffer in, byte kind) {
+        int start = in.position();
+        if (in.remaining() < (kind == FULL ? FULL_HEADER : DELTA_HEADER)) {
+            throw new IllegalArgumentException("The buffer is shorter than the header of a board encoding");
+        }
+        if (in.get(start) != FORMAT || in.get(start + 1) != kind) {
+            throw new IllegalArgumentException("Unsupported board encoding " + in.get(start) + "/" + in.get(start + 1));
+        }
+    }
+
+    /**
+     * Reads the size of the board of a full state or a delta.
+     *
+     * @param in the buffer, positioned at the start of the encoding
+     * @return the size of the board
+     */
+    public static int size(ByteBuffer in) {
+        return in.getInt(in.position() + 2);
+    }
+
+    /**
+     * Reads the version of a full state, or the version reached by a delta.
+     *
+     * @param in the buffer, positioned at the start of the encoding
+     * @return the version
+     */
+    public static int version(ByteBuffer in) {
+        int start = in.position();
+        return in.get(start + 1) == DELTA ? in.getInt(start + 10) : in.getInt(start + 6);
+    }
+
+    /**
+     * Reads the code of a cell of a full state.
+     *
+     * @param state the buffer, positioned at the start of the full state
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the combination index of the tile, or {@link #EMPTY}
+     */
+    public static byte codeAt(ByteBuffer state, int row, int col) {
+        return state.get(state.position() + FULL_HEADER + row * size(state) + col);
+    }
+
+    /**
+     * Reads the type of the tile in a cell of a full state.
+     *
+     * @param state the buffer, positioned at the start of the full state
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the type of the tile, or {@code null} if the cell is empty
+     */
+    public static TileType typeAt(ByteBuffer state, int row, int col) {
+        byte code = codeAt(state, row, col);
+        return code == EMPTY ? null : RotationTable.typeOf(code);
+    }
+
+    /**
+     * Reads the orientation of the tile in a cell of a full state.
+     *
+     * @param state the buffer, positioned at the start of the full state
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the orientation of the tile, or {@code null} if the cell is empty
+     */
+    public static Orientation orientationAt(ByteBuffer state, int row, int col) {
+        byte code = codeAt(state, row, col);
+        return code == EMPTY ? null : RotationTable.orientationOf(code);
+    }
+
+    /**
+     * Applies a delta to a full state, in place. The state must be at least as recent as the base of the delta.
+     *
+     * @param delta the buffer, positioned at the start of the delta
+     * @param state the buffer, positioned at the start of the full state to update
+     * @throws IllegalArgumentException if the encodings are invalid, of different sizes, or the state is too old
+     */
+    public static void applyDelta(ByteBuffer delta, ByteBuffer state) {
+        check(delta, DELTA);
+        check(state, FULL);
+        int size = size(state);
+        int d = delta.position();
+        int s = state.position();
+        if (size(delta) != size) throw new IllegalArgumentException("The delta is for another board size");
+        if (delta.getInt(d + 6) > state.getInt(s + 6)) {
+            throw new IllegalArgumentException("The state is older than the base of the delta");
+        }
+        long cells = (long) size * size;
+        if (size < 0 || state.limit() - s < FULL_HEADER + cells) {
+            throw new IllegalArgumentException("The state is shorter than a board of size " + size);
+        }
+        int count = delta.getInt(d + 14);
+        if (count < 0 || delta.limit() - d < DELTA_HEADER + (long) count * DELTA_ENTRY) {
+            throw new IllegalArgumentException("The delta is shorter than its " + count + " cells");
+        }
+        // Toutes les cases sont vérifiées avant d'écrire, pour ne jamais laisser l'état à moitié modifié
+        for (int i = 0; i < count; i++) {
+            int cell = delta.getInt(d + DELTA_HEADER + i * DELTA_ENTRY);
+            if (cell < 0 || cell >= cells) throw new IllegalArgumentException("Invalid cell " + cell + " in the delta");
+        }
+        for (int i = 0; i < count; i++) {
+            int entry = d + DELTA_HEADER + i * DELTA_ENTRY;
+            state.put(s + FULL_HEADER + delta.getInt(entry), delta.get(entry + 4));
+        }
+        state.putInt(s + 6, delta.getInt(d + 10));
+    }
+
+    /**
+     * Rebuilds a board from a full state.
+     *
+     * @param state the buffer, positioned at the start of the full state
+     * @return a new board holding the encoded tiles, with the {@link Board#defaultExits(int) default exits},
+     *         whose version counts the decoded tiles
+     * @throws IllegalArgumentException if the buffer does not hold a valid state
+     */
+    public static Board decode(ByteBuffer state) {
+        check(state, FULL);
+        int size = size(state);
+        int s = state.position();
+        if (size < 0 || state.limit() - s < FULL_HEADER + (long) size * size) {
+            throw new IllegalArgumentException("The state is shorter than a board of size " + size);
+        }
+        Board board = new Board(size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                byte code = state.get(s + FULL_HEADER + row * size + col);
+                if (code == EMPTY) continue;
+                if (code < 0 || code >= RotationTable.COMBINATIONS) {
+                    throw new IllegalArgumentException("Invalid code " + code + " at (" + row + ", " + col + ")");
+                }
+                Tile tile = new Tile(RotationTable.typeOf(code));
+                tile.setOrientation(RotationTable.orientationOf(code));
+                if (!board.placeTile(Position.of(row, col), tile)) {
+                    throw new IllegalArgumentException("Invalid tile at (" + row + ", " + col + ")");
+                }
+            }
+        }
+        return board;
+    }
+}
@@ -2,47 +2,345 @@ package projet;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A JPanel that displays a grid of tiles on the screen.
  * The board is represented as a 2D array of {@link Tile} objects.
+ * <p>
+ * The tiles are composited into a back buffer, a {@link VolatileImage} when the screen supports it and a
+ * {@link BufferedImage} otherwise, and only the cells that changed since the last paint are drawn again.
+ * When the panel shows a {@link Board}, its changes repaint only the rectangle of the changed cell.
  */
 public class BoardDisplay extends JPanel {
-	
+
 	/**
-     * The 2D array representing the board's tiles.
+     * The default size of a cell in pixels, the size of the tile images.
+     */
+    public static final int DEFAULT_CELL_SIZE = 100;
+
+    /**
+     * The code of a cell whose content is not in the back buffer.
+     */
+    private static final int UNKNOWN = -2;
+
+    /**
+     * The code of an empty cell.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * The number of zoom levels whose scaled sprites are kept.
+     */
+    private static final int CACHED_ZOOM_LEVELS = 4;
+
+    /**
+     * The 2D array representing the board's tiles, or {@code null} when the panel shows a {@link Board}.
      */
     private Tile[][] board;
 
+    /**
+     * The board shown by the panel, or {@code null} when it shows an array.
+     */
+    private final Board source;
+
+    /**
+     * The listener repainting the changed cells of {@link #source}, registered while the panel is displayable,
+     * or {@code null} when the panel shows an array.
+     */
+    private final BoardListener listener;
+
+    /**
+     * The number of rows of the board.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the board.
+     */
+    private final int columns;
+
+    /**
+     * The size of a cell in pixels.
+     */
+    private int cellSize;
+
+    /**
+     * The back buffer when the screen supports accelerated images, or {@code null}.
+     */
+    private VolatileImage volatileBuffer;
+
+    /**
+     * The back buffer when accelerated images are not available, or {@code null}.
+     */
+    private BufferedImage bufferedBuffer;
+
+    /**
+     * The code of the tile drawn in each cell of the back buffer, {@link #EMPTY} or {@link #UNKNOWN}.
+     */
+    private int[] drawn;
+
+    /**
+     * The sprites scaled to each recent cell size, indexed by combination, the least recently used size first.
+     */
+    private final Map<Integer, Image[]> scaledSprites = new LinkedHashMap<>(CACHED_ZOOM_LEVELS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Image[]> eldest) {
+            return size() > CACHED_ZOOM_LEVELS;
+        }
+    };
+
     /**
      * Constructs a new {@link BoardDisplay} instance.
-     * 
+     *
      * @param board the 2D array of {@link Tile} objects representing the game board.
      * The size of the board determines the preferred size of the panel.
      */
     public BoardDisplay(Tile[][] board) {
+        this(board, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructs a new {@link BoardDisplay} instance with a given cell size.
+     * The caller repaints the panel after changing the array.
+     *
+     * @param board the 2D array of {@link Tile} objects representing the game board.
+     * @param cellSize the size of a cell in pixels.
+     */
+    public BoardDisplay(Tile[][] board, int cellSize) {
+        this(board, null, board.length, board[0].length, cellSize);
+    }
+
+    /**
+     * Constructs a panel showing either an array or a board.
+     *
+     * @param board the array of tiles, or {@code null}.
+     * @param source the board, or {@code null}.
+     * @param rows the number of rows.
+     * @param columns the number of columns.
+     * @param cellSize the size of a cell in pixels.
+     */
+    private BoardDisplay(Tile[][] board, Board source, int rows, int columns, int cellSize) {
         this.board = board;
-        setPreferredSize(new Dimension(board[0].length * 100, board.length * 100));  // Ajuste la taille du panneau en fonction du plateau
+        this.source = source;
+        this.rows = rows;
+        this.columns = columns;
+        this.drawn = new int[rows * columns];
+        this.listener = source == null ? null : new BoardListener() {
+            @Override
+            public void tilePlaced(int row, int col, Tile tile) {
+                repaintCell(row, col);
+            }
+
+            @Override
+            public void tileRemoved(int row, int col) {
+                repaintCell(row, col);
+            }
+
+            @Override
+            public void tilesPlaced(List<Position> positions, List<Tile> tiles) {
+                repaintCells(positions);
+            }
+        };
+        setCellSize(cellSize);
+    }
+
+    /**
+     * Constructs a panel showing a board, repainted automatically when the board changes.
+     * The panel only listens to the board while it is displayable, so a discarded panel does not stay
+     * reachable from a long-lived board.
+     *
+     * @param board the board to display.
+     * @param cellSize the size of a cell in pixels.
+     */
+    public BoardDisplay(Board board, int cellSize) {
+        this(null, board, board.getSize(), board.getSize(), cellSize);
+    }
+
+    /**
+     * Starts listening to the board when the panel becomes displayable, and redraws every cell,
+     * as the board may have changed while nobody listened.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (source != null) {
+            source.addBoardListener(listener);
+            Arrays.fill(drawn, UNKNOWN);
+            repaint();
+        }
+    }
+
+    /**
+     * Stops listening to the board when the panel is no longer displayable.
+     */
+    @Override
+    public void removeNotify() {
+        if (source != null) source.removeBoardListener(listener);
+        super.removeNotify();
+    }
+
+    /**
+     * Constructs a panel showing a board with the default cell size.
+     *
+     * @param board the board to display.
+     */
+    public BoardDisplay(Board board) {
+        this(board, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Changes the size of the cells, for zooming. The sprites already scaled to a recent size are reused.
+     *
+     * @param cellSize the size of a cell in pixels.
+     */
+    public void setCellSize(int cellSize) {
+        if (cellSize <= 0) throw new IllegalArgumentException("The cell size must be positive: " + cellSize);
+        this.cellSize = cellSize;
+        Arrays.fill(drawn, UNKNOWN);
+        setPreferredSize(new Dimension(columns * cellSize, rows * cellSize));  // Ajuste la taille du panneau en fonction du plateau
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Returns the size of the cells.
+     *
+     * @return the size of a cell in pixels.
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Requests a repaint of one cell only. It can be called from any thread.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    public void repaintCell(int row, int col) {
+        repaint(col * cellSize, row * cellSize, cellSize, cellSize);
+    }
+
+    /**
+     * Requests a single repaint of the area covering several cells, at the current cell size.
+     *
+     * @param positions the cells to repaint.
+     */
+    private void repaintCells(List<Position> positions) {
+        int size = cellSize;
+        Rectangle area = null;
+        for (Position pos : positions) {
+            Rectangle cell = new Rectangle(pos.getCol() * size, pos.getRow() * size, size, size);
+            area = area == null ? cell : area.union(cell);
+        }
+        if (area != null) repaint(area);
     }
 
     /**
      * Paints the components of the panel, including the tiles.
      * This method is called automatically by the Swing framework when the component needs to be redrawn.
-     * It draws the tiles on the board using their corresponding images.
-     * 
+     * The changed cells inside the clip are drawn into the back buffer, then the clip is copied from it.
+     *
      * @param g the Graphics object used for drawing the tiles.
      */
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        do {
+            Image buffer = validateBuffer();
+            Graphics2D target = (Graphics2D) buffer.getGraphics();
+            try {
+                updateCells(target, clip);
+            } finally {
+                target.dispose();
+            }
+            g.drawImage(buffer, 0, 0, this);
+        } while (volatileBuffer != null && volatileBuffer.contentsLost()); // Le contenu accéléré a été perdu, on recommence
+    }
 
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board[row].length; col++) {
-                Tile tile = board[row][col];
+    /**
+     * Creates or validates the back buffer. When its content was lost, every cell is marked as unknown.
+     *
+     * @return the back buffer to draw into.
+     */
+    private Image validateBuffer() {
+        int width = columns * cellSize;
+        int height = rows * cellSize;
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration != null && bufferedBuffer == null) {
+            if (volatileBuffer == null || volatileBuffer.getWidth() != width || volatileBuffer.getHeight() != height
+                    || volatileBuffer.validate(configuration) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                volatileBuffer = createVolatileImage(width, height);
+                Arrays.fill(drawn, UNKNOWN);
+            } else if (volatileBuffer.contentsLost()) {
+                Arrays.fill(drawn, UNKNOWN);
+            }
+            if (volatileBuffer != null) return volatileBuffer;
+        }
+        if (bufferedBuffer == null || bufferedBuffer.getWidth() != width || bufferedBuffer.getHeight() != height) {
+            bufferedBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Arrays.fill(drawn, UNKNOWN);
+        }
+        return bufferedBuffer;
+    }
+
+    /**
+     * Draws into the back buffer the cells of the clip whose tile changed since they were last drawn.
+     *
+     * @param target the graphics of the back buffer.
+     * @param clip the area to update.
+     */
+    private void updateCells(Graphics2D target, Rectangle clip) {
+        int firstRow = Math.max(0, clip.y / cellSize);
+        int lastRow = Math.min(rows - 1, (clip.y + clip.height - 1) / cellSize);
+        int firstCol = Math.max(0, clip.x / cellSize);
+        int lastCol = Math.min(columns - 1, (clip.x + clip.width - 1) / cellSize);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                Tile tile = source != null ? source.getTileAt(row, col) : board[row][col];
+                int code = tile == null ? EMPTY : RotationTable.index(tile.getType(), tile.getOrientation());
+                if (drawn[row * columns + col] == code) continue;
+                target.setComposite(AlphaComposite.Src);
+                target.setColor(getBackground());
+                target.fillRect(col * cellSize, row * cellSize, cellSize, cellSize);
                 if (tile != null) {
-                    g.drawImage(tile.getImage(), col * 100, row * 100, this); // Dessine l'image de la tuile
+                    target.setComposite(AlphaComposite.SrcOver);
+                    target.drawImage(sprite(code), col * cellSize, row * cellSize, this); // Dessine l'image de la tuile
                 }
+                drawn[row * columns + col] = code;
+            }
+        }
+    }
+
+    /**
+     * Returns the sprite of a combination scaled to the cell size, scaling it once per zoom level.
+     *
+     * @param code the combination index of {@link RotationTable#index(TileType, Orientation)}.
+     * @return the scaled sprite.
+     */
+    private Image sprite(int code) {
+        Image[] sprites = scaledSprites.computeIfAbsent(cellSize, size -> new Image[RotationTable.COMBINATIONS]);
+        if (sprites[code] == null) {
+            BufferedImage source = TileSprites.get(RotationTable.typeOf(code), RotationTable.orientationOf(code));
+            if (source.getWidth() == cellSize && source.getHeight() == cellSize) {
+                sprites[code] = source;
+            } else {
+                BufferedImage scaled = new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = scaled.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(source, 0, 0, cellSize, cellSize, null);
+                g.dispose();
+                sprites[code] = scaled;
             }
         }
+        return sprites[code];
     }
 }
@@ -0,0 +1,40 @@
+package projet;
+
+import java.util.List;
+
+/**
+ * Listener notified of the changes of a {@link Board}.
+ * The methods are called by the thread changing the board, right after the change.
+ */
+public interface BoardListener {
+
+	/**
+     * Called when a tile is placed, or placed again by a redo.
+     *
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @param tile the placed tile
+     */
+    void tilePlaced(int row, int col, Tile tile);
+
+    /**
+     * Called when a tile is removed by an undo.
+     *
+     * @param row the row of the emptied cell
+     * @param col the column of the emptied cell
+     */
+    void tileRemoved(int row, int col);
+
+    /**
+     * Called once when a batch of tiles is placed by {@link Board#placeTiles(List)}.
+     * By default, {@link #tilePlaced(int, int, Tile)} is called for each tile.
+     *
+     * @param positions the positions of the placed tiles
+     * @param tiles the placed tiles, in the same order
+     */
+    default void tilesPlaced(List<Position> positions, List<Tile> tiles) {
+        for (int i = 0; i < positions.size(); i++) {
+            tilePlaced(positions.get(i).getRow(), positions.get(i).getCol(), tiles.get(i));
+        }
+    }
+}
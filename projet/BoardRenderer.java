@@ -0,0 +1,420 @@
+package projet;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Headless renderer of boards to PNG images, without Swing.
+ * Boards are composed from a shared {@link SpriteAtlas}, either from a {@link Board} or from a {@link BoardCodec} full state.
+ * <p>
+ * A batch is rendered by a fixed pool of threads, each reusing its own image buffer. The boards are read from an
+ * iterator only as fast as they are written, and at most a fixed number are in flight at once,
+ * so the memory used does not depend on the size of the batch.
+ * The PNG files are encoded directly from the pixels, with the fastest deflate level.
+ */
+public class BoardRenderer implements AutoCloseable {
+
+	/**
+     * The sprites composed into the images.
+     */
+    private final SpriteAtlas atlas;
+
+    /**
+     * The rendering threads.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The number of boards that can be queued or rendering at once.
+     */
+    private final int maxInFlight;
+
+    /**
+     * The image buffer of each rendering thread, reused from one board to the next.
+     */
+    private final ThreadLocal<BufferedImage> buffers = new ThreadLocal<>();
+
+    /**
+     * The signature starting every PNG file.
+     */
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    /**
+     * The compressor of each thread, reused from one image to the next.
+     */
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    /**
+     * Opens an output stream for one image of a batch.
+     */
+    @FunctionalInterface
+    public interface Sink {
+
+    	/**
+         * Opens the stream receiving an image. The renderer closes it.
+         *
+         * @param index the index of the board in the batch
+         * @return the stream receiving the PNG data
+         * @throws IOException if the stream cannot be opened
+         */
+        OutputStream open(long index) throws IOException;
+    }
+
+    /**
+     * Constructs a renderer.
+     *
+     * @param atlas the sprites composed into the images
+     * @param threads the number of rendering threads
+     * @param maxInFlight the maximum number of boards queued or rendering at once
+     */
+    public BoardRenderer(SpriteAtlas atlas, int threads, int maxInFlight) {
+        this.atlas = atlas;
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "board-renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Constructs a renderer with one thread per core.
+     *
+     * @param atlas the sprites composed into the images
+     */
+    public BoardRenderer(SpriteAtlas atlas) {
+        this(atlas, Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Renders a board into a new image.
+     *
+     * @param board the board
+     * @return the image, {@link SpriteAtlas#getTileSize()} pixels per cell
+     */
+    public BufferedImage render(Board board) {
+        return render(codes(board), board.getSize(), null);
+    }
+
+    /**
+     * Renders a full state into a new image.
+     *
+     * @param state the buffer, positioned at the start of a {@link BoardCodec} full state
+     * @return the image, {@link SpriteAtlas#getTileSize()} pixels per cell
+     */
+    public BufferedImage render(ByteBuffer state) {
+        return render(codes(state), BoardCodec.size(state), null);
+    }
+
+    /**
+     * Renders a board and writes it as PNG.
+     *
+     * @param board the board
+     * @param out the stream receiving the PNG data, left open
+     * @throws IOException if the image cannot be written
+     */
+    public void writePng(Board board, OutputStream out) throws IOException {
+        writePng(render(board), out);
+    }
+
+    /**
+     * Renders a full state and writes it as PNG.
+     *
+     * @param state the buffer, positioned at the start of a {@link BoardCodec} full state
+     * @param out the stream receiving the PNG data, left open
+     * @throws IOException if the image cannot be written
+     */
+    public void writePng(ByteBuffer state, OutputStream out) throws IOException {
+        writePng(render(state), out);
+    }
+
+    /**
+     * Renders a batch of full states in parallel, each to the stream opened by the sink.
+     * The states are read lazily from the iterator, at most {@code maxInFlight} at a time,
+     * and the caller must not modify a state after handing it over.
+     *
+     * @param states the full states, each positioned at its start
+     * @param sink the sink opening the stream of each image
+     * @return the number of boards rendered and the throughput
+     * @throws IOException if an image cannot be written, after the rest of the batch
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public Throughput renderAll(Iterator<ByteBuffer> states, Sink sink) throws IOException, InterruptedException {
+        Semaphore slots = new Semaphore(maxInFlight);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        long start = System.nanoTime();
+        long count = 0;
+        while (states.hasNext()) {
+            ByteBuffer state = states.next();
+            long index = count++;
+            slots.acquire();
+            executor.execute(() -> {
+                try (OutputStream out = new BufferedOutputStream(sink.open(index))) {
+                    BufferedImage image = render(codes(state), BoardCodec.size(state), buffers.get());
+                    buffers.set(image);
+                    writePng(image, out);
+                } catch (IOException | RuntimeException e) {
+                    IOException error = e instanceof IOException ? (IOException) e : new IOException("Cannot render board " + index, e);
+                    if (!failure.compareAndSet(null, error)) failure.get().addSuppressed(error);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+        slots.acquire(maxInFlight); // Attend la fin des derniers rendus
+        slots.release(maxInFlight);
+        if (failure.get() != null) throw failure.get();
+        return new Throughput(count, System.nanoTime() - start);
+    }
+
+    /**
+     * Renders a batch of full states in parallel to the files {@code board-000000.png}, {@code board-000001.png}... of a directory.
+     *
+     * @param states the full states, each positioned at its start
+     * @param directory the directory receiving the images, created if needed
+     * @return the number of boards rendered and the throughput
+     * @throws IOException if an image cannot be written
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public Throughput renderAll(Iterator<ByteBuffer> states, Path directory) throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        return renderAll(states, index -> Files.newOutputStream(directory.resolve(String.format("board-%06d.png", index))));
+    }
+
+    /**
+     * Composes the tiles of a board into an image.
+     *
+     * @param codes the code of each cell, {@link BoardCodec#EMPTY} for an empty cell
+     * @param size the size of the board
+     * @param reuse an image to draw into if it has the right dimensions, or {@code null}
+     * @return the image
+     */
+    private BufferedImage render(byte[] codes, int size, BufferedImage reuse) {
+        int tileSize = atlas.getTileSize();
+        int width = size * tileSize;
+        BufferedImage image = reuse != null && reuse.getWidth() == width && reuse.getHeight() == width
+                ? reuse : new BufferedImage(width, width, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int cell = 0; cell < codes.length; cell++) {
+            int x = cell % size * tileSize;
+            int y = cell / size * tileSize;
+            if (codes[cell] != BoardCodec.EMPTY) {
+                atlas.draw(codes[cell], pixels, width, x, y);
+            } else if (image == reuse) {
+                for (int row = y; row < y + tileSize; row++) {
+                    Arrays.fill(pixels, row * width + x, row * width + x + tileSize, 0);
+                }
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Writes an ARGB image as a PNG file with 8-bit RGBA pixels, unfiltered rows and the fastest deflate level.
+     *
+     * @param image the image, of type {@link BufferedImage#TYPE_INT_ARGB}
+     * @param out the stream receiving the PNG data, left open
+     * @throws IOException if the data cannot be written
+     */
+    static void writePng(BufferedImage image, OutputStream out) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(PNG_SIGNATURE);
+        byte[] header = ByteBuffer.allocate(13).putInt(width).putInt(height).put((byte) 8).put((byte) 6).array();
+        writeChunk(data, "IHDR", header, header.length);
+
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        byte[] row = new byte[1 + 4 * width];
+        byte[] chunk = new byte[1 << 16];
+        int length = 0;
+        for (int y = 0; y <= height; y++) {
+            if (y < height) {
+                for (int x = 0, i = 1; x < width; x++) {
+                    int argb = pixels[y * width + x];
+                    row[i++] = (byte) (argb >>> 16);
+                    row[i++] = (byte) (argb >>> 8);
+                    row[i++] = (byte) argb;
+                    row[i++] = (byte) (argb >>> 24);
+                }
+                deflater.setInput(row);
+            } else {
+                deflater.finish();
+            }
+            // Vide le compresseur dans des blocs IDAT de 64 Ko
+            while (y < height ? !deflater.needsInput() : !deflater.finished()) {
+                length += deflater.deflate(chunk, length, chunk.length - length);
+                if (length == chunk.length) {
+                    writeChunk(data, "IDAT", chunk, length);
+                    length = 0;
+                }
+            }
+        }
+        if (length > 0) writeChunk(data, "IDAT", chunk, length);
+        writeChunk(data, "IEND", chunk, 0);
+        data.flush();
+    }
+
+    /**
+     * Writes a PNG chunk with its length and checksum.
+     *
+     * @param out the stream receiving the chunk
+     * @param type the four-letter type of the chunk
+     * @param content the array holding the content
+     * @param length the length of the content
+     * @throws IOException if the chunk cannot be written
+     */
+    private static void writeChunk(DataOutputStream out, String type, byte[] content, int length) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(content, 0, length);
+        out.writeInt(length);
+        out.write(name);
+        out.write(content, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Reads the code of each cell of a board.
+     *
+     * @param board the board
+     * @return the codes, in {@code row * size + col} order
+     */
+    private static byte[] codes(Board board) {
+        int size = board.getSize();
+        byte[] codes = new byte[size * size];
+        for (int cell = 0; cell < codes.length; cell++) {
+            Tile tile = board.peekTile(cell / size, cell % size);
+            codes[cell] = tile == null ? BoardCodec.EMPTY : (byte) RotationTable.index(tile.getType(), tile.getOrientation());
+        }
+        return codes;
+    }
+
+    /**
+     * Reads the code of each cell of a full state.
+     *
+     * @param state the buffer, positioned at the start of the full state
+     * @return the codes, in {@code row * size + col} order
+     */
+    private static byte[] codes(ByteBuffer state) {
+        byte[] codes = new byte[BoardCodec.size(state) * BoardCodec.size(state)];
+        state.duplicate().position(state.position() + BoardCodec.FULL_HEADER).get(codes);
+        return codes;
+    }
+
+    /**
+     * Stops the rendering threads once the submitted boards are rendered.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * The number of boards rendered by a batch and the time it took.
+     */
+    public static final class Throughput {
+
+    	/** The number of boards rendered. */
+        private final long boards;
+
+        /** The duration of the batch in nanoseconds. */
+        private final long nanos;
+
+        Throughput(long boards, long nanos) {
+            this.boards = boards;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Returns the number of boards rendered.
+         *
+         * @return the boards
+         */
+        public long getBoards() {
+            return boards;
+        }
+
+        /**
+         * Returns the duration of the batch.
+         *
+         * @return the duration in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Returns the throughput of the batch.
+         *
+         * @return the boards rendered per second
+         */
+        public double getBoardsPerSecond() {
+            return nanos == 0 ? 0 : boards * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d boards in %.2f s (%.0f boards/s)", boards, nanos / 1e9, getBoardsPerSecond());
+        }
+    }
+
+    /**
+     * Measures the throughput of the renderer on random boards, written to a discarding stream.
+     *
+     * @param args the number of boards (10000 by default) and the tile size (100 by default)
+     * @throws Exception if a board cannot be rendered
+     */
+    public static void main(String[] args) throws Exception {
+        long boards = args.length > 0 ? Long.parseLong(args[0]) : 10_000;
+        int tileSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        Random random = new Random(42);
+        ByteBuffer[] samples = new ByteBuffer[256];
+        for (int i = 0; i < samples.length; i++) {
+            Board board = new Board();
+            for (int moves = random.nextInt(Board.SIZE * Board.SIZE); moves > 0 && board.legalMoveCount() > 0; moves--) {
+                Placement placement = board.legalMoves().skip(random.nextInt(board.legalMoveCount())).findFirst().get();
+                board.placeTile(placement.getPosition(), placement.toTile());
+            }
+            samples[i] = ByteBuffer.allocate(BoardCodec.fullLength(Board.SIZE));
+            BoardCodec.encode(board, samples[i]);
+            samples[i].flip();
+        }
+        Iterator<ByteBuffer> states = new Iterator<>() {
+            private long produced;
+
+            @Override
+            public boolean hasNext() {
+                return produced < boards;
+            }
+
+            @Override
+            public ByteBuffer next() {
+                return samples[(int) (produced++ % samples.length)].duplicate();
+            }
+        };
+        try (BoardRenderer renderer = new BoardRenderer(new SpriteAtlas(tileSize))) {
+            System.out.println(renderer.renderAll(states, index -> OutputStream.nullOutputStream()));
+        }
+    }
+}
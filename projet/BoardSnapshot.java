@@ -0,0 +1,275 @@
+package projet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable view of a {@link Board} at one version, published by {@link ConcurrentBoard}.
+ * Any number of threads can read a snapshot without synchronization: it never changes, and what it hands out
+ * is either immutable or a copy.
+ * <p>
+ * The cells are stored in chunks of {@link ChunkedGrid#CHUNK} x {@link ChunkedGrid#CHUNK} codes, one row of chunks
+ * per array. A new version only copies the chunks it changes and the rows holding them, and shares everything else
+ * with the previous snapshot, so publishing a move costs the same on a standard board and on a very large one.
+ */
+public final class BoardSnapshot {
+
+	/**
+     * The size of the board.
+     */
+    private final int size;
+
+    /**
+     * The version of the board, as given by {@link Board#getVersion()}.
+     */
+    private final int version;
+
+    /**
+     * The {@link Zobrist} hash of the board.
+     */
+    private final long hash;
+
+    /**
+     * The score of the board.
+     */
+    private final ScoreReport score;
+
+    /**
+     * The chunks of cells, by row of chunks then column of chunks, {@code null} for a chunk without any tile.
+     * A cell holds 0 when it is empty and one more than the combination index of its tile otherwise.
+     */
+    private final byte[][][] chunks;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param size the size of the board
+     * @param version the version of the board
+     * @param hash the hash of the board
+     * @param score the score of the board
+     * @param chunks the chunks of cells, owned by the snapshot from now on
+     */
+    private BoardSnapshot(int size, int version, long hash, ScoreReport score, byte[][][] chunks) {
+        this.size = size;
+        this.version = version;
+        this.hash = hash;
+        this.score = score;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Takes a snapshot of every cell of a board.
+     *
+     * @param board the board, not modified during the call
+     * @return the snapshot
+     */
+    static BoardSnapshot of(Board board) {
+        int size = board.getSize();
+        int chunksPerRow = (size + ChunkedGrid.CHUNK_MASK) >> ChunkedGrid.CHUNK_BITS;
+        byte[][][] chunks = new byte[chunksPerRow][chunksPerRow][];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                Tile tile = board.peekTile(row, col);
+                if (tile == null) continue;
+                byte[][] chunkRow = chunks[row >> ChunkedGrid.CHUNK_BITS];
+                if (chunkRow[col >> ChunkedGrid.CHUNK_BITS] == null) {
+                    chunkRow[col >> ChunkedGrid.CHUNK_BITS] = new byte[ChunkedGrid.CHUNK * ChunkedGrid.CHUNK];
+                }
+                chunkRow[col >> ChunkedGrid.CHUNK_BITS][offset(row, col)] = code(tile);
+            }
+        }
+        return new BoardSnapshot(size, board.getVersion(), board.getHash(), board.getScore(), chunks);
+    }
+
+    /**
+     * Takes a snapshot of a board that differs from this snapshot only in the cells changed since its version.
+     *
+     * @param board the board, whose older versions include this one, not modified during the call
+     * @return the new snapshot, sharing the unchanged chunks with this one
+     */
+    BoardSnapshot advance(Board board) {
+        byte[][][] next = chunks.clone();
+        boolean[] copiedRows = new boolean[chunks.length];
+        Set<Integer> copiedChunks = new HashSet<>();
+        for (int v = version + 1; v <= board.getVersion(); v++) {
+            int cell = board.getChangedCell(v);
+            int row = cell / size;
+            int col = cell % size;
+            int chunkRow = row >> ChunkedGrid.CHUNK_BITS;
+            int chunkCol = col >> ChunkedGrid.CHUNK_BITS;
+            if (!copiedRows[chunkRow]) {
+                next[chunkRow] = next[chunkRow].clone();
+                copiedRows[chunkRow] = true;
+            }
+            byte[] chunk = next[chunkRow][chunkCol];
+            if (copiedChunks.add(chunkRow * chunks.length + chunkCol)) {
+                chunk = chunk == null ? new byte[ChunkedGrid.CHUNK * ChunkedGrid.CHUNK] : chunk.clone();
+                next[chunkRow][chunkCol] = chunk;
+            }
+            Tile tile = board.peekTile(row, col);
+            chunk[offset(row, col)] = tile == null ? 0 : code(tile);
+        }
+        return new BoardSnapshot(size, board.getVersion(), board.getHash(), board.getScore(), next);
+    }
+
+    /**
+     * Returns the cells whose content differs in an older snapshot of the same board.
+     * The chunks shared by both snapshots are skipped without being read.
+     *
+     * @param older the older snapshot
+     * @return the changed cells, indexed by {@code row * size + col}, in increasing order
+     * @throws IllegalArgumentException if the snapshots have different sizes
+     */
+    int[] changedCells(BoardSnapshot older) {
+        if (older.size != size) throw new IllegalArgumentException("The snapshots have different sizes");
+        int[] cells = new int[16];
+        int count = 0;
+        for (int chunkRow = 0; chunkRow < chunks.length; chunkRow++) {
+            if (chunks[chunkRow] == older.chunks[chunkRow]) continue;
+            for (int chunkCol = 0; chunkCol < chunks.length; chunkCol++) {
+                byte[] chunk = chunks[chunkRow][chunkCol];
+                byte[] previous = older.chunks[chunkRow][chunkCol];
+                if (chunk == previous) continue;
+                for (int offset = 0; offset < ChunkedGrid.CHUNK * ChunkedGrid.CHUNK; offset++) {
+                    byte code = chunk == null ? 0 : chunk[offset];
+                    if (code == (previous == null ? 0 : previous[offset])) continue;
+                    if (count == cells.length) cells = Arrays.copyOf(cells, count * 2);
+                    int row = chunkRow << ChunkedGrid.CHUNK_BITS | offset >> ChunkedGrid.CHUNK_BITS;
+                    int col = chunkCol << ChunkedGrid.CHUNK_BITS | offset & ChunkedGrid.CHUNK_MASK;
+                    cells[count++] = row * size + col;
+                }
+            }
+        }
+        cells = Arrays.copyOf(cells, count);
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    /**
+     * Returns the offset of a cell in its chunk.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the offset
+     */
+    private static int offset(int row, int col) {
+        return (row & ChunkedGrid.CHUNK_MASK) << ChunkedGrid.CHUNK_BITS | col & ChunkedGrid.CHUNK_MASK;
+    }
+
+    /**
+     * Returns the code of a tile in a cell.
+     *
+     * @param tile the tile
+     * @return one more than its combination index
+     */
+    private static byte code(Tile tile) {
+        return (byte) (RotationTable.index(tile.getType(), tile.getOrientation()) + 1);
+    }
+
+    /**
+     * Returns the combination index of the tile in a cell.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the index of {@link RotationTable#index(TileType, Orientation)}, or -1 if the cell is empty
+     * @throws IndexOutOfBoundsException if the cell is outside the board
+     */
+    public int getCombination(int row, int col) {
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            throw new IndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside the board of size " + size);
+        }
+        byte[] chunk = chunks[row >> ChunkedGrid.CHUNK_BITS][col >> ChunkedGrid.CHUNK_BITS];
+        return chunk == null ? -1 : chunk[offset(row, col)] - 1;
+    }
+
+    /**
+     * Returns the type of the tile in a cell.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the type, or {@code null} if the cell is empty
+     */
+    public TileType getTypeAt(int row, int col) {
+        int combination = getCombination(row, col);
+        return combination < 0 ? null : RotationTable.typeOf(combination);
+    }
+
+    /**
+     * Returns the orientation of the tile in a cell.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the orientation, or {@code null} if the cell is empty
+     */
+    public Orientation getOrientationAt(int row, int col) {
+        int combination = getCombination(row, col);
+        return combination < 0 ? null : RotationTable.orientationOf(combination);
+    }
+
+    /**
+     * Returns the connections of the tile in a cell, in a new array.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the connections (NORTH, EAST, SOUTH, WEST), or {@code null} if the cell is empty
+     */
+    public ConnectionType[] getConnections(int row, int col) {
+        int combination = getCombination(row, col);
+        if (combination < 0) return null;
+        ConnectionType[] connections = new ConnectionType[4];
+        RotationTable.copyConnections(RotationTable.typeOf(combination), RotationTable.orientationOf(combination), connections);
+        return connections;
+    }
+
+    /**
+     * Returns a new tile equal to the tile in a cell, which the caller is free to change.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the tile, or {@code null} if the cell is empty
+     */
+    public Tile getTileAt(int row, int col) {
+        int combination = getCombination(row, col);
+        if (combination < 0) return null;
+        Tile tile = new Tile(RotationTable.typeOf(combination));
+        tile.setOrientation(RotationTable.orientationOf(combination));
+        return tile;
+    }
+
+    /**
+     * Returns the size of the board.
+     *
+     * @return the number of rows and columns
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the version of the board in this snapshot.
+     *
+     * @return the version, as given by {@link Board#getVersion()}
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the {@link Zobrist} hash of the board in this snapshot.
+     *
+     * @return the 64-bit hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the score of the board in this snapshot.
+     *
+     * @return the score report
+     */
+    public ScoreReport getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,144 @@
+package projet;
+
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * Open-addressing map from the index of a chunk to the chunk, the directory of {@link ChunkedGrid} and
+ * {@link ChunkedLongGrid}. Only the allocated chunks have a slot, so an empty grid takes a few bytes whatever its size.
+ *
+ * @param <C> the type of the chunks
+ */
+final class ChunkDirectory<C> {
+
+	/**
+     * The key of a free slot, chunk indices being never negative.
+     */
+    private static final int FREE = -1;
+
+    /**
+     * The chunk index of each slot, or {@link #FREE}.
+     */
+    private int[] keys;
+
+    /**
+     * The chunk of each slot.
+     */
+    private Object[] chunks;
+
+    /**
+     * The number of chunks.
+     */
+    private int count;
+
+    /**
+     * The shift taking the hash of a key to a slot, {@code 32 - log2(capacity)}.
+     */
+    private int shift;
+
+    /**
+     * Constructs an empty directory.
+     */
+    ChunkDirectory() {
+        allocate(4);
+    }
+
+    /**
+     * Constructs a copy of another directory.
+     *
+     * @param other the directory to copy
+     * @param copier the function copying each chunk
+     */
+    @SuppressWarnings("unchecked")
+    ChunkDirectory(ChunkDirectory<C> other, UnaryOperator<C> copier) {
+        keys = other.keys.clone();
+        chunks = new Object[other.chunks.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) chunks[i] = copier.apply((C) other.chunks[i]);
+        }
+        count = other.count;
+        shift = other.shift;
+    }
+
+    /**
+     * Returns the chunk of an index.
+     *
+     * @param key the index of the chunk
+     * @return the chunk, or {@code null} if it is not allocated
+     */
+    @SuppressWarnings("unchecked")
+    C get(int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key); ; i = i + 1 & mask) {
+            int k = keys[i];
+            if (k == key) return (C) chunks[i];
+            if (k == FREE) return null;
+        }
+    }
+
+    /**
+     * Adds the chunk of an index that has none yet.
+     *
+     * @param key the index of the chunk
+     * @param chunk the chunk
+     */
+    void put(int key, C chunk) {
+        if (2 * (count + 1) > keys.length) {
+            int[] oldKeys = keys;
+            Object[] oldChunks = chunks;
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) insert(oldKeys[i], oldChunks[i]);
+            }
+        }
+        insert(key, chunk);
+        count++;
+    }
+
+    /**
+     * Returns the number of chunks.
+     *
+     * @return the number of allocated chunks
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Stores a chunk in the first free slot of its probe sequence.
+     *
+     * @param key the index of the chunk
+     * @param chunk the chunk
+     */
+    private void insert(int key, Object chunk) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (keys[i] != FREE) {
+            i = i + 1 & mask;
+        }
+        keys[i] = key;
+        chunks[i] = chunk;
+    }
+
+    /**
+     * Returns the first slot of the probe sequence of a key, by Fibonacci hashing.
+     *
+     * @param key the index of a chunk
+     * @return the slot
+     */
+    private int slot(int key) {
+        return key * 0x9E3779B9 >>> shift;
+    }
+
+    /**
+     * Allocates empty tables.
+     *
+     * @param capacity the number of slots, a power of two of at least 2
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        chunks = new Object[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+}
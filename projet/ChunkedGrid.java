@@ -0,0 +1,124 @@
+package projet;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Sparse square grid of objects, stored in chunks of {@link #CHUNK} x {@link #CHUNK} cells.
+ * A chunk is only allocated when one of its cells is set, and the chunks are found through a sparse
+ * {@link ChunkDirectory}, so the memory used follows the populated regions of the grid and not its area;
+ * reading a cell of a missing chunk returns {@code null}.
+ * A standard board fits in a single chunk.
+ *
+ * @param <T> the type of the cells
+ */
+public final class ChunkedGrid<T> {
+
+	/**
+     * The number of bits of a coordinate inside a chunk.
+     */
+    static final int CHUNK_BITS = 4;
+
+    /**
+     * The width of a chunk.
+     */
+    public static final int CHUNK = 1 << CHUNK_BITS;
+
+    /**
+     * The mask of a coordinate inside a chunk.
+     */
+    static final int CHUNK_MASK = CHUNK - 1;
+
+    /**
+     * The size of the grid.
+     */
+    private final int size;
+
+    /**
+     * The number of chunks per row of the grid.
+     */
+    private final int chunksPerRow;
+
+    /**
+     * The allocated chunks, by index {@code chunkRow * chunksPerRow + chunkCol}.
+     */
+    private final ChunkDirectory<Object[]> chunks;
+
+    /**
+     * Constructs an empty grid.
+     *
+     * @param size the number of rows and columns
+     */
+    public ChunkedGrid(int size) {
+        this.size = size;
+        this.chunksPerRow = (size + CHUNK_MASK) >> CHUNK_BITS;
+        this.chunks = new ChunkDirectory<>();
+    }
+
+    /**
+     * Constructs a copy of another grid.
+     *
+     * @param other the grid to copy
+     * @param copier the function copying each non-null cell
+     */
+    @SuppressWarnings("unchecked")
+    public ChunkedGrid(ChunkedGrid<T> other, UnaryOperator<T> copier) {
+        this.size = other.size;
+        this.chunksPerRow = other.chunksPerRow;
+        this.chunks = new ChunkDirectory<>(other.chunks, chunk -> {
+            Object[] copy = new Object[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                copy[i] = chunk[i] == null ? null : copier.apply((T) chunk[i]);
+            }
+            return copy;
+        });
+    }
+
+    /**
+     * Returns the size of the grid.
+     *
+     * @return the number of rows and columns
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the content of a cell.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the content, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int row, int col) {
+        Object[] chunk = chunks.get((row >> CHUNK_BITS) * chunksPerRow + (col >> CHUNK_BITS));
+        return chunk == null ? null : (T) chunk[(row & CHUNK_MASK) << CHUNK_BITS | col & CHUNK_MASK];
+    }
+
+    /**
+     * Sets the content of a cell, allocating its chunk if needed.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param value the content, or {@code null}
+     */
+    public void set(int row, int col, T value) {
+        int c = (row >> CHUNK_BITS) * chunksPerRow + (col >> CHUNK_BITS);
+        Object[] chunk = chunks.get(c);
+        if (chunk == null) {
+            if (value == null) return;
+            chunk = new Object[CHUNK * CHUNK];
+            chunks.put(c, chunk);
+        }
+        chunk[(row & CHUNK_MASK) << CHUNK_BITS | col & CHUNK_MASK] = value;
+    }
+
+    /**
+     * Returns the number of allocated chunks.
+     *
+     * @return the number of chunks holding at least one set cell, or that did
+     */
+    public int allocatedChunks() {
+        return chunks.size();
+    }
+}
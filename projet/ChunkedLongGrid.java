@@ -0,0 +1,86 @@
+package projet;
+
+import java.util.Arrays;
+
+/**
+ * Sparse square grid of {@code long} values with a default value, stored in chunks like {@link ChunkedGrid}.
+ * A chunk is only allocated when one of its cells gets a value other than the default.
+ */
+public final class ChunkedLongGrid {
+
+	/**
+     * The size of the grid.
+     */
+    private final int size;
+
+    /**
+     * The number of chunks per row of the grid.
+     */
+    private final int chunksPerRow;
+
+    /**
+     * The value of the cells that were never set.
+     */
+    private final long defaultValue;
+
+    /**
+     * The allocated chunks, by index {@code chunkRow * chunksPerRow + chunkCol}.
+     */
+    private final ChunkDirectory<long[]> chunks;
+
+    /**
+     * Constructs a grid whose cells all hold the default value.
+     *
+     * @param size the number of rows and columns
+     * @param defaultValue the value of the cells that were never set
+     */
+    public ChunkedLongGrid(int size, long defaultValue) {
+        this.size = size;
+        this.chunksPerRow = (size + ChunkedGrid.CHUNK_MASK) >> ChunkedGrid.CHUNK_BITS;
+        this.defaultValue = defaultValue;
+        this.chunks = new ChunkDirectory<>();
+    }
+
+    /**
+     * Constructs a copy of another grid.
+     *
+     * @param other the grid to copy
+     */
+    public ChunkedLongGrid(ChunkedLongGrid other) {
+        this.size = other.size;
+        this.chunksPerRow = other.chunksPerRow;
+        this.defaultValue = other.defaultValue;
+        this.chunks = new ChunkDirectory<>(other.chunks, long[]::clone);
+    }
+
+    /**
+     * Returns the value of a cell.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the value
+     */
+    public long get(int row, int col) {
+        long[] chunk = chunks.get((row >> ChunkedGrid.CHUNK_BITS) * chunksPerRow + (col >> ChunkedGrid.CHUNK_BITS));
+        return chunk == null ? defaultValue : chunk[(row & ChunkedGrid.CHUNK_MASK) << ChunkedGrid.CHUNK_BITS | col & ChunkedGrid.CHUNK_MASK];
+    }
+
+    /**
+     * Sets the value of a cell, allocating its chunk if needed.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param value the value
+     */
+    public void set(int row, int col, long value) {
+        int c = (row >> ChunkedGrid.CHUNK_BITS) * chunksPerRow + (col >> ChunkedGrid.CHUNK_BITS);
+        long[] chunk = chunks.get(c);
+        if (chunk == null) {
+            if (value == defaultValue) return;
+            chunk = new long[ChunkedGrid.CHUNK * ChunkedGrid.CHUNK];
+            Arrays.fill(chunk, defaultValue);
+            chunks.put(c, chunk);
+        }
+        chunk[(row & ChunkedGrid.CHUNK_MASK) << ChunkedGrid.CHUNK_BITS | col & ChunkedGrid.CHUNK_MASK] = value;
+    }
+}
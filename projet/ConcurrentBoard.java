@@ -0,0 +1,196 @@
+package projet;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A board shared by one writer and any number of readers, such as spectators, renderers and scorers.
+ * <p>
+ * The moves are applied to a private {@link Board}, then the writer publishes an immutable {@link BoardSnapshot}
+ * of the new version through a volatile reference. Readers only read that reference: they never lock, never
+ * slow down the writer, and always see a whole version, never a half-applied move or batch. The snapshots share
+ * their unchanged chunks, so publishing costs a few small copies per move.
+ * <p>
+ * The writes are meant to come from one thread at a time; a lock only guards them against an occasional second
+ * writer, and is never taken by the readers.
+ */
+public final class ConcurrentBoard {
+
+	/**
+     * The board receiving the moves, only accessed under the write lock.
+     */
+    private final Board board;
+
+    /**
+     * The lock serializing the writers.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * The latest published snapshot.
+     */
+    private volatile BoardSnapshot snapshot;
+
+    /**
+     * The listeners notified of each published snapshot.
+     */
+    private final List<Consumer<BoardSnapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a concurrent board with an empty standard board.
+     */
+    public ConcurrentBoard() {
+        this(new Board());
+    }
+
+    /**
+     * Constructs a concurrent board around an existing board, which must not be used directly afterwards.
+     *
+     * @param board the board
+     */
+    public ConcurrentBoard(Board board) {
+        this.board = Objects.requireNonNull(board);
+        this.snapshot = BoardSnapshot.of(board);
+    }
+
+    /**
+     * Returns the latest published version of the board, without locking.
+     *
+     * @return the snapshot
+     */
+    public BoardSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Registers a listener notified of every later published snapshot.
+     * It is called by the writer, under the write lock, so it should only hand the snapshot over and return.
+     *
+     * @param listener the listener
+     */
+    public void addSnapshotListener(Consumer<BoardSnapshot> listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeSnapshotListener(Consumer<BoardSnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Places a tile and publishes the new version. The tile is copied, so the caller may keep changing it.
+     *
+     * @param pos the position where to place the tile
+     * @param tile the tile to place
+     * @return {@code true} if the tile was placed
+     */
+    public boolean placeTile(Position pos, Tile tile) {
+        writeLock.lock();
+        try {
+            boolean placed = board.placeTile(pos, tile.copy());
+            if (placed) publish();
+            return placed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Places a batch of tiles, all or nothing, and publishes the whole batch as a single version.
+     *
+     * @param placements the placements of the batch
+     * @return whether the batch was committed, and the reason of each refused placement
+     */
+    public BatchResult placeTiles(List<Placement> placements) {
+        writeLock.lock();
+        try {
+            BatchResult result = board.placeTiles(placements);
+            if (result.isCommitted()) publish();
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Undoes the last placement and publishes the new version.
+     *
+     * @return {@code true} if a placement was undone
+     */
+    public boolean undo() {
+        writeLock.lock();
+        try {
+            boolean undone = board.undo();
+            if (undone) publish();
+            return undone;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Redoes the last undone placement and publishes the new version.
+     *
+     * @return {@code true} if a placement was redone
+     */
+    public boolean redo() {
+        writeLock.lock();
+        try {
+            boolean redone = board.redo();
+            if (redone) publish();
+            return redone;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a mark of the current point of the journal, see {@link Board#mark()}.
+     *
+     * @return the mark
+     */
+    public long mark() {
+        writeLock.lock();
+        try {
+            return board.mark();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Undoes every placement made after a mark and publishes the result as a single version.
+     *
+     * @param mark a mark returned by {@link #mark()}
+     * @throws IllegalArgumentException if the mark is stale
+     */
+    public void rollbackTo(long mark) {
+        writeLock.lock();
+        try {
+            board.rollbackTo(mark);
+            publish();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes a snapshot of the current version of the board, if it changed, and notifies the listeners.
+     */
+    private void publish() {
+        BoardSnapshot current = snapshot;
+        if (current.getVersion() == board.getVersion()) return;
+        BoardSnapshot next = current.advance(board);
+        snapshot = next;
+        for (Consumer<BoardSnapshot> listener : listeners) {
+            listener.accept(next);
+        }
+    }
+}
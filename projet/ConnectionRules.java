@@ -0,0 +1,308 @@
+package projet;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A variant of the rules deciding which edges may face each other.
+ * <p>
+ * The {@link #standard() standard rules} are built into the class, so a game never depends on a file being found.
+ * Other variants are read from rules files: one line per {@link ConnectionType}, the edge followed by every edge it
+ * accepts in front of it. Blank lines and what follows a {@code #} are ignored. {@link #load(String)} reads
+ * {@code <name>.rules} from the classpath under {@value #RESOURCE_DIRECTORY}, or else from the {@code projet/rules/}
+ * directory, where {@code stations-join} and {@code strict} are provided; {@link #load(Path)} reads any file.
+ * <p>
+ * A rule set is compiled once into a {@link ConnectionType} x {@link ConnectionType} bit-matrix, the candidate
+ * masks of {@link #compatibleWith(int, ConnectionType)}, and a table checking the four edges of a tile at once.
+ * It is immutable and shared by every board that plays by it, so each board holds its rules in a final field and
+ * checking an edge is a single lookup, whatever the variant.
+ */
+public final class ConnectionRules {
+
+	/**
+     * The classpath directory of the rules files.
+     */
+    public static final String RESOURCE_DIRECTORY = "/projet/rules/";
+
+    /**
+     * The directory of the rules files when they are not on the classpath.
+     */
+    private static final Path SOURCE_DIRECTORY = Paths.get("projet", "rules");
+
+    /**
+     * The connection types, indexed by ordinal.
+     */
+    private static final ConnectionType[] TYPES = ConnectionType.values();
+
+    /**
+     * The standard rules, in the format of a rules file: two edges match if they are equal or if one of them is empty.
+     */
+    private static final String[] STANDARD = {
+        "NONE     NONE  HIGHWAY  RAILWAY  STATION",
+        "HIGHWAY  NONE  HIGHWAY",
+        "RAILWAY  NONE  RAILWAY",
+        "STATION  NONE  STATION",
+    };
+
+    /**
+     * The name of the variant.
+     */
+    private final String name;
+
+    /**
+     * The compatibility matrix: bit {@code edge << 2 | facing} is set when an edge accepts the facing one.
+     */
+    private final int matrix;
+
+    /**
+     * For each side and each facing connection type (indexed by {@code side * 4 + ordinal}),
+     * the combinations whose edge on that side accepts the facing connection.
+     */
+    private final long[] compatible = new long[4 * 4];
+
+    /**
+     * For each signature and packed facing edges (indexed by {@code signature << 8 | facing}),
+     * the mask of the sides whose edge accepts the facing one.
+     */
+    private final byte[] compatibleSides = new byte[1 << 16];
+
+    /**
+     * The standard rules, compiled on first use.
+     */
+    private static final class Standard {
+
+    	/** The standard rules. */
+        static final ConnectionRules RULES = compile("standard", parse(Arrays.asList(STANDARD)));
+    }
+
+    /**
+     * Compiles a rule set.
+     *
+     * @param name the name of the variant
+     * @param matrix the compatibility matrix
+     */
+    private ConnectionRules(String name, int matrix) {
+        this.name = name;
+        this.matrix = matrix;
+        for (int side = 0; side < 4; side++) {
+            for (int facing = 0; facing < 4; facing++) {
+                long mask = 0;
+                for (int combination = 0; combination < RotationTable.COMBINATIONS; combination++) {
+                    int signature = RotationTable.signature(RotationTable.typeOf(combination), RotationTable.orientationOf(combination));
+                    if (isCompatible(ConnectionSignature.edgeCode(signature, side), facing)) {
+                        mask |= 1L << combination;
+                    }
+                }
+                compatible[side << 2 | facing] = mask;
+            }
+        }
+        for (int packed = 0; packed < compatibleSides.length; packed++) {
+            int sides = 0;
+            for (int side = 0; side < 4; side++) {
+                if (isCompatible(ConnectionSignature.edgeCode(packed >>> 8, side), ConnectionSignature.edgeCode(packed, side))) {
+                    sides |= 1 << side;
+                }
+            }
+            compatibleSides[packed] = (byte) sides;
+        }
+    }
+
+    /**
+     * Returns the standard rules: two edges match if they are equal or if one of them is {@link ConnectionType#NONE}.
+     *
+     * @return the standard rules
+     */
+    public static ConnectionRules standard() {
+        return Standard.RULES;
+    }
+
+    /**
+     * Loads and compiles a variant of the rules, from the classpath or else from the {@code projet/rules/} directory.
+     * The name {@code standard} gives the built-in {@link #standard() standard rules}.
+     *
+     * @param name the name of the variant, the rules file without its {@code .rules} extension
+     * @return the compiled rules
+     * @throws FileNotFoundException if the file is neither on the classpath nor in the rules directory
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file does not define a symmetric rule for every connection type
+     */
+    public static ConnectionRules load(String name) throws IOException {
+        if (name.equals("standard")) return standard();
+        String file = name + ".rules";
+        try (InputStream resource = ConnectionRules.class.getResourceAsStream(RESOURCE_DIRECTORY + file)) {
+            if (resource != null) return compile(name, read(resource));
+        }
+        Path source = SOURCE_DIRECTORY.resolve(file);
+        if (!Files.exists(source)) {
+            throw new FileNotFoundException("No rules " + name + ": " + file + " is neither in "
+                    + RESOURCE_DIRECTORY + " on the classpath nor in " + SOURCE_DIRECTORY.toAbsolutePath());
+        }
+        return load(source);
+    }
+
+    /**
+     * Loads and compiles a variant of the rules from a file, named after the file without its extension.
+     *
+     * @param file the rules file
+     * @return the compiled rules
+     * @throws IOException if the file cannot be found or read
+     * @throws IllegalArgumentException if the file does not define a symmetric rule for every connection type
+     */
+    public static ConnectionRules load(Path file) throws IOException {
+        String name = file.getFileName().toString().replaceFirst("\\.rules$", "");
+        try (InputStream in = Files.newInputStream(file)) {
+            return compile(name, read(in));
+        }
+    }
+
+    /**
+     * Compiles the lines of a rules file.
+     *
+     * @param name the name of the variant
+     * @param rows the words of each line, the edge first, then the edges it accepts
+     * @return the compiled rules
+     * @throws IllegalArgumentException if the lines do not define a symmetric rule for every connection type
+     */
+    static ConnectionRules compile(String name, List<String[]> rows) {
+        int matrix = 0;
+        int defined = 0;
+        for (String[] row : rows) {
+            int edge = edge(name, row[0]);
+            if ((defined >>> edge & 1) != 0) throw new IllegalArgumentException(row[0] + " is defined twice in " + name);
+            defined |= 1 << edge;
+            for (int i = 1; i < row.length; i++) {
+                matrix |= 1 << (edge << 2 | edge(name, row[i]));
+            }
+        }
+        for (ConnectionType edge : TYPES) {
+            if ((defined >>> edge.ordinal() & 1) == 0) throw new IllegalArgumentException(edge + " is not defined in " + name);
+            for (ConnectionType facing : TYPES) {
+                boolean accepts = (matrix >>> (edge.ordinal() << 2 | facing.ordinal()) & 1) != 0;
+                boolean accepted = (matrix >>> (facing.ordinal() << 2 | edge.ordinal()) & 1) != 0;
+                if (accepts != accepted) {
+                    throw new IllegalArgumentException("The rules " + name + " are not symmetric for " + edge + " and " + facing);
+                }
+            }
+        }
+        return new ConnectionRules(name, matrix);
+    }
+
+    /**
+     * Returns the ordinal of an edge named in a rules file.
+     *
+     * @param rules the name of the rules
+     * @param word the name of the edge
+     * @return the ordinal of the {@link ConnectionType}
+     * @throws IllegalArgumentException if the word is not a connection type
+     */
+    private static int edge(String rules, String word) {
+        for (ConnectionType type : TYPES) {
+            if (type.name().equals(word)) return type.ordinal();
+        }
+        throw new IllegalArgumentException("Unknown edge " + word + " in the rules " + rules);
+    }
+
+    /**
+     * Reads a rules file: the words of each line, without the comments and the blank lines.
+     *
+     * @param in the content of the file, left open
+     * @return the words of each line
+     * @throws IOException if the file cannot be read
+     */
+    private static List<String[]> read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return parse(lines);
+    }
+
+    /**
+     * Splits the lines of a rules file into words, without the comments and the blank lines.
+     *
+     * @param lines the lines
+     * @return the words of each line
+     */
+    private static List<String[]> parse(List<String> lines) {
+        List<String[]> rows = new ArrayList<>();
+        for (String line : lines) {
+            int comment = line.indexOf('#');
+            line = (comment < 0 ? line : line.substring(0, comment)).trim();
+            if (!line.isEmpty()) rows.add(line.split("\\s+"));
+        }
+        return rows;
+    }
+
+    /**
+     * Checks whether an edge accepts the edge facing it.
+     *
+     * @param edge the edge of the tile to place
+     * @param facing the edge of the neighbouring tile facing it
+     * @return {@code true} if the edges match
+     */
+    public boolean isCompatible(ConnectionType edge, ConnectionType facing) {
+        return isCompatible(edge.ordinal(), facing.ordinal());
+    }
+
+    /**
+     * Checks whether an edge accepts the edge facing it, given their {@link ConnectionSignature#edgeCode(int, int)}.
+     *
+     * @param edge the code of the edge of the tile to place
+     * @param facing the code of the edge of the neighbouring tile facing it
+     * @return {@code true} if the edges match
+     */
+    public boolean isCompatible(int edge, int facing) {
+        return (matrix >>> (edge << 2 | facing) & 1) != 0;
+    }
+
+    /**
+     * Checks the four edges of a tile at once against the edges facing them.
+     *
+     * @param signature the signature of the tile to place
+     * @param facing the edges of the neighbours facing each side, packed in the same layout
+     * @param neighbours the mask of the sides that have a neighbouring tile, bit {@code side} for each
+     * @return {@code true} if every side with a neighbour matches
+     */
+    public boolean isCompatible(int signature, int facing, int neighbours) {
+        return (neighbours & ~compatibleSides[signature << 8 | facing]) == 0;
+    }
+
+    /**
+     * Returns the combinations whose edge on a side accepts the connection facing it.
+     * Bit {@code i} of the result stands for the combination of index {@code i} of
+     * {@link RotationTable#index(TileType, Orientation)}.
+     *
+     * @param side the side of the tile to place (0 = North, 1 = East, 2 = South, 3 = West)
+     * @param facing the connection of the neighbouring tile facing that side
+     * @return the mask of compatible combinations
+     */
+    public long compatibleWith(int side, ConnectionType facing) {
+        return compatible[side << 2 | facing.ordinal()];
+    }
+
+    /**
+     * Returns the name of the variant.
+     *
+     * @return the name, that of its rules file
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,105 @@
+package projet;
+
+/**
+ * Utility class for packed connection signatures.
+ * A signature encodes the four edges of a tile (North, East, South, West) as 2-bit fields in a single {@code int},
+ * using the ordinal of each {@link ConnectionType}: bits 0-1 hold North, bits 2-3 East, bits 4-5 South and bits 6-7 West.
+ * Since {@link ConnectionType#NONE} has ordinal 0, an empty cell is simply the signature {@code 0}.
+ */
+public final class ConnectionSignature {
+
+	/** Index of the North side, as used by {@link Tile#getConnections()}. */
+    public static final int NORTH = 0;
+
+    /** Index of the East side. */
+    public static final int EAST = 1;
+
+    /** Index of the South side. */
+    public static final int SOUTH = 2;
+
+    /** Index of the West side. */
+    public static final int WEST = 3;
+
+    /** Mask selecting the low bit of each of the four 2-bit fields. */
+    private static final int LOW_BITS = 0x55;
+
+    /** Cached connection types, indexed by ordinal. */
+    private static final ConnectionType[] TYPES = ConnectionType.values();
+
+    /**
+     * Private constructor, this class only holds static helpers.
+     */
+    private ConnectionSignature() {
+    }
+
+    /**
+     * Packs an array of connections into a signature.
+     *
+     * @param connections the connections in the order NORTH, EAST, SOUTH, WEST.
+     * @return the packed signature.
+     */
+    public static int pack(ConnectionType[] connections) {
+        return connections[NORTH].ordinal()
+                | connections[EAST].ordinal() << 2
+                | connections[SOUTH].ordinal() << 4
+                | connections[WEST].ordinal() << 6;
+    }
+
+    /**
+     * Returns the raw 2-bit code of one side of a signature.
+     *
+     * @param signature the packed signature.
+     * @param side the side index (0 = North, 1 = East, 2 = South, 3 = West).
+     * @return the ordinal of the connection type on that side.
+     */
+    public static int edgeCode(int signature, int side) {
+        return (signature >>> (side << 1)) & 3;
+    }
+
+    /**
+     * Returns the connection type of one side of a signature.
+     *
+     * @param signature the packed signature.
+     * @param side the side index (0 = North, 1 = East, 2 = South, 3 = West).
+     * @return the connection type on that side.
+     */
+    public static ConnectionType edge(int signature, int side) {
+        return TYPES[edgeCode(signature, side)];
+    }
+
+    /**
+     * Rotates a signature the same way {@link Tile#rotate()} shifts its connections:
+     * each side takes the connection of the following side, and West takes the former North.
+     *
+     * @param signature the packed signature.
+     * @return the rotated signature.
+     */
+    public static int rotate(int signature) {
+        return (signature >>> 2) | (signature & 3) << 6;
+    }
+
+    /**
+     * Returns the side facing the given one.
+     *
+     * @param side the side index.
+     * @return the opposite side index.
+     */
+    public static int opposite(int side) {
+        return (side + 2) & 3;
+    }
+
+    /**
+     * Checks, for all four sides at once, whether a tile's edges are compatible with the edges facing it.
+     * Two edges are compatible if they are equal or if one of them is {@link ConnectionType#NONE},
+     * so a pair only conflicts when both fields are non-zero and differ: these are the {@link ConnectionRules#standard()
+     * standard rules}, other variants are checked with {@link ConnectionRules#isCompatible(int, int, int)}.
+     *
+     * @param signature the signature of the tile to place.
+     * @param facing the edges of the neighbours facing each side, packed in the same layout (0 where there is no neighbour).
+     * @return {@code true} if every side is compatible, otherwise {@code false}.
+     */
+    public static boolean isCompatible(int signature, int facing) {
+        int diff = signature ^ facing;
+        return ((diff | diff >>> 1) & (signature | signature >>> 1) & (facing | facing >>> 1) & LOW_BITS) == 0;
+    }
+}
@@ -0,0 +1,661 @@
+package projet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only log of the moves of many games, kept in memory-mapped segment files.
+ * <p>
+ * Every event is a fixed-width record of {@link #RECORD_BYTES} bytes, and the events of all sessions are
+ * interleaved in the same segments:
+ * <pre>
+ *   session (8) | move (4) | cell (4) | kind (1) | code (1) | reason (1) | unused (1) | time in ms (8) | checksum (4)
+ * </pre>
+ * Placements and undos change the board of their session and are numbered from 1. Refused placements and the end
+ * of a game are only recorded for the analytics of {@link ArchiveAnalytics}: they carry the number of the last change
+ * and leave the board as it is.
+ * Callers only queue their events; a single writer thread copies them into the mapped segment and forces
+ * the segment to disk once per commit interval (group commit), never once per move. If a write fails, the log
+ * fails for good: the pending and later flushes and appends throw instead of silently losing events.
+ * When a segment is full, the writer rolls to a new one and writes a compact checkpoint holding the board
+ * of every open session at that point, so a replay only reads the segments after the closest checkpoint.
+ * A session leaves the checkpoints once its end is written, so their size follows the games in progress.
+ */
+public class EventLog implements AutoCloseable {
+
+	/**
+     * The size of one event record.
+     */
+    public static final int RECORD_BYTES = 32;
+
+    /**
+     * The kind of a placement event.
+     */
+    public static final byte PLACE = 1;
+
+    /**
+     * The kind of an undo event, which empties the cell.
+     */
+    public static final byte UNDO = 2;
+
+    /**
+     * The kind of a refused placement, whose reason is the ordinal of its {@link RejectionReason}.
+     */
+    public static final byte REJECT = 3;
+
+    /**
+     * The kind of the end of a game, after which the session gets no more events.
+     */
+    public static final byte END = 4;
+
+    /**
+     * The kind of the internal marker requesting a flush, never written.
+     */
+    private static final byte FLUSH = 0;
+
+    /**
+     * The number of cells of a board.
+     */
+    private static final int CELLS = Board.SIZE * Board.SIZE;
+
+    /**
+     * The directory holding the segments and checkpoints.
+     */
+    private final Path directory;
+
+    /**
+     * The size of a segment in bytes, a multiple of {@link #RECORD_BYTES}.
+     */
+    private final int segmentBytes;
+
+    /**
+     * The maximum delay between a write and the force of the segment, in nanoseconds.
+     */
+    private final long commitNanos;
+
+    /**
+     * The events waiting for the writer.
+     */
+    private final BlockingQueue<Event> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * The writer thread.
+     */
+    private final Thread writer;
+
+    /**
+     * The board of every session at the end of the log, one code per cell, only used by the writer.
+     */
+    private final Map<Long, SessionState> sessions = new HashMap<>();
+
+    /**
+     * The sessions ended in the current segment, listed by its checkpoint, only used by the writer.
+     */
+    private final Set<Long> ended = new HashSet<>();
+
+    /**
+     * The index of the current segment, only used by the writer.
+     */
+    private int segmentIndex;
+
+    /**
+     * The channel of the current segment, only used by the writer.
+     */
+    private FileChannel channel;
+
+    /**
+     * The mapping of the current segment, only used by the writer.
+     */
+    private MappedByteBuffer segment;
+
+    /**
+     * Whether the log is closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The error that stopped the writer, after which every append and flush fails, or {@code null}.
+     */
+    private volatile Exception failure;
+
+    /**
+     * Opens a log, recovering the existing segments of the directory if there are any.
+     *
+     * @param directory the directory of the segments, created if needed
+     * @param segmentBytes the size of a segment, rounded down to a multiple of {@link #RECORD_BYTES}
+     * @param commitIntervalMillis the maximum delay before written events are forced to disk
+     * @throws IOException if the directory or the segments cannot be read or created
+     */
+    public EventLog(Path directory, int segmentBytes, long commitIntervalMillis) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentBytes = Math.max(RECORD_BYTES, segmentBytes - segmentBytes % RECORD_BYTES);
+        this.commitNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+        recover();
+        this.writer = new Thread(this::writeLoop, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens a log with 64 MB segments and a 10 ms commit interval.
+     *
+     * @param directory the directory of the segments, created if needed
+     * @throws IOException if the directory or the segments cannot be read or created
+     */
+    public EventLog(Path directory) throws IOException {
+        this(directory, 64 << 20, 10);
+    }
+
+    /**
+     * Queues a placement. The call never waits for the disk.
+     *
+     * @param session the identifier of the session
+     * @param move the number of the event in the session, starting at 1
+     * @param cell the index {@code row * SIZE + col} of the cell
+     * @param type the type of the placed tile
+     * @param orientation the orientation of the placed tile
+     */
+    public void appendPlacement(long session, int move, int cell, TileType type, Orientation orientation) {
+        append(new Event(session, move, cell, PLACE, (byte) RotationTable.index(type, orientation), (byte) 0, null));
+    }
+
+    /**
+     * Queues an undo of the placement in a cell. The call never waits for the disk.
+     *
+     * @param session the identifier of the session
+     * @param move the number of the event in the session, starting at 1
+     * @param cell the index {@code row * SIZE + col} of the emptied cell
+     */
+    public void appendUndo(long session, int move, int cell) {
+        append(new Event(session, move, cell, UNDO, BoardCodec.EMPTY, (byte) 0, null));
+    }
+
+    /**
+     * Queues a refused placement. The call never waits for the disk.
+     *
+     * @param session the identifier of the session
+     * @param move the number of the last change of the session, 0 if none
+     * @param cell the index {@code row * SIZE + col} of the cell
+     * @param type the type of the refused tile
+     * @param orientation the orientation of the refused tile
+     * @param reason the reason of the refusal
+     */
+    public void appendRejection(long session, int move, int cell, TileType type, Orientation orientation, RejectionReason reason) {
+        append(new Event(session, move, cell, REJECT, (byte) RotationTable.index(type, orientation), (byte) reason.ordinal(), null));
+    }
+
+    /**
+     * Queues the end of a game. The call never waits for the disk.
+     *
+     * @param session the identifier of the session
+     * @param move the number of the last change of the session, 0 if none
+     */
+    public void appendEnd(long session, int move) {
+        append(new Event(session, move, 0, END, BoardCodec.EMPTY, (byte) 0, null));
+    }
+
+    /**
+     * Queues an event for the writer.
+     *
+     * @param event the event
+     */
+    private void append(Event event) {
+        if (closed) throw new IllegalStateException("The event log is closed");
+        if (failure != null) throw new IllegalStateException("The event log failed, later events are not recorded", failure);
+        queue.add(event);
+    }
+
+    /**
+     * Waits until every event queued before the call is written and forced to disk.
+     * Once a write has failed, the log stays failed: this call and every later append throw, since some of the
+     * events accepted before could not be made durable.
+     *
+     * @throws IllegalStateException if the log is closed or failed
+     * @throws java.util.concurrent.CompletionException if the write of the pending events fails
+     */
+    public void flush() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        append(new Event(0, 0, 0, FLUSH, (byte) 0, (byte) 0, done));
+        done.join();
+    }
+
+    /**
+     * Flushes the pending events and stops the writer.
+     *
+     * @throws IOException if the segment cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            if (failure == null) flush();
+        } finally {
+            closed = true;
+            stopWriter();
+        }
+    }
+
+    /**
+     * Stops the writer thread and closes the current segment.
+     *
+     * @throws IOException if the segment cannot be closed
+     */
+    private void stopWriter() throws IOException {
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * Loop of the writer thread: writes the queued events in batches and forces them once per commit interval.
+     */
+    private void writeLoop() {
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        List<Event> batch = new ArrayList<>();
+        long dirtySince = 0;
+        boolean dirty = false;
+        while (!closed || !queue.isEmpty()) {
+            try {
+                long wait = dirty ? Math.max(0, dirtySince + commitNanos - System.nanoTime()) : Long.MAX_VALUE;
+                Event first = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+            } catch (InterruptedException e) {
+                if (closed && queue.isEmpty()) break;
+                continue;
+            }
+            if (failure != null) {
+                // Le journal est en échec : les vidages en attente ne peuvent plus réussir
+                for (Event event : batch) {
+                    if (event.kind == FLUSH) event.flushed.completeExceptionally(failure);
+                }
+                batch.clear();
+                continue;
+            }
+            try {
+                for (Event event : batch) {
+                    if (event.kind == FLUSH) {
+                        waiting.add(event.flushed);
+                        continue;
+                    }
+                    write(event);
+                    if (!dirty) {
+                        dirty = true;
+                        dirtySince = System.nanoTime();
+                    }
+                }
+                batch.clear();
+                // Validation groupée : un seul force() pour tous les coups de l'intervalle
+                if (dirty && (!waiting.isEmpty() || System.nanoTime() - dirtySince >= commitNanos)) {
+                    segment.force();
+                    dirty = false;
+                }
+                if (!waiting.isEmpty()) {
+                    waiting.forEach(done -> done.complete(null));
+                    waiting.clear();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Les événements déjà acceptés sont perdus : le journal refuse désormais tout appel
+                failure = e;
+                for (Event event : batch) {
+                    if (event.kind == FLUSH) waiting.add(event.flushed);
+                }
+                batch.clear();
+                waiting.forEach(done -> done.completeExceptionally(e));
+                waiting.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes one event at the end of the current segment, rolling to a new segment if it is full.
+     *
+     * @param event the event
+     * @throws IOException if a new segment or checkpoint cannot be written
+     */
+    private void write(Event event) throws IOException {
+        if (!segment.hasRemaining()) {
+            roll();
+        }
+        int position = segment.position();
+        segment.putLong(event.session).putInt(event.move).putInt(event.cell).put(event.kind).put(event.code)
+                .put(event.reason).put((byte) 0).putLong(event.time).putInt(checksum(segment, position));
+        track(event.session, event.move, event.cell, event.kind, event.code);
+    }
+
+    /**
+     * Updates the board of a session with a written event, and forgets the session at its end.
+     *
+     * @param session the identifier of the session
+     * @param move the number of the event
+     * @param cell the index of the cell
+     * @param kind the kind of the event
+     * @param code the code of the cell
+     */
+    private void track(long session, int move, int cell, byte kind, byte code) {
+        if (changesBoard(kind)) {
+            sessions.computeIfAbsent(session, id -> new SessionState()).apply(move, cell, code);
+        } else if (kind == END) {
+            sessions.remove(session);
+            ended.add(session);
+        }
+    }
+
+    /**
+     * Tells whether the events of a kind change the board of their session.
+     *
+     * @param kind the kind of the events
+     * @return {@code true} for placements and undos
+     */
+    static boolean changesBoard(byte kind) {
+        return kind == PLACE || kind == UNDO;
+    }
+
+    /**
+     * Computes the checksum of a record from its first 28 bytes. It is never 0, so zeroed space is never valid.
+     *
+     * @param buffer the buffer holding the record
+     * @param position the start of the record
+     * @return the checksum
+     */
+    private static int checksum(ByteBuffer buffer, int position) {
+        int hash = 17;
+        for (int i = position; i < position + RECORD_BYTES - 4; i += 4) {
+            hash = hash * 31 + buffer.getInt(i);
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Checks whether a complete, valid record starts at a position.
+     *
+     * @param buffer the buffer holding the record
+     * @param position the start of the record
+     * @return {@code true} if the record is valid
+     */
+    static boolean isValid(ByteBuffer buffer, int position) {
+        return buffer.limit() - position >= RECORD_BYTES && buffer.get(position + 16) != 0
+                && buffer.getInt(position + RECORD_BYTES - 4) == checksum(buffer, position);
+    }
+
+    /**
+     * Forces the current segment, writes a checkpoint of every session, and maps the next segment.
+     *
+     * @throws IOException if the checkpoint or the segment cannot be written
+     */
+    private void roll() throws IOException {
+        segment.force();
+        channel.close();
+        segmentIndex++;
+        writeCheckpoint(segmentIndex);
+        openSegment(0);
+    }
+
+    /**
+     * Maps the current segment for writing.
+     *
+     * @param position the position of the next record
+     * @throws IOException if the segment cannot be mapped
+     */
+    private void openSegment(int position) throws IOException {
+        channel = FileChannel.open(segmentPath(directory, segmentIndex),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.position(position);
+    }
+
+    /**
+     * Writes the checkpoint of the state before a segment, atomically.
+     * It holds, for every open session: its identifier (8), its last move (4) and one code per cell,
+     * then the number of sessions ended in the previous segment (4) and their identifiers (8 each).
+     *
+     * @param index the index of the segment following the checkpoint
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private void writeCheckpoint(int index) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + sessions.size() * (12 + CELLS) + 4 + ended.size() * 8);
+        buffer.putInt(sessions.size());
+        for (Map.Entry<Long, SessionState> entry : sessions.entrySet()) {
+            buffer.putLong(entry.getKey()).putInt(entry.getValue().move).put(entry.getValue().cells);
+        }
+        buffer.putInt(ended.size());
+        for (long session : ended) {
+            buffer.putLong(session);
+        }
+        ended.clear();
+        buffer.flip();
+        Path temporary = directory.resolve("checkpoint.tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, checkpointPath(directory, index), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Finds the end of the existing log, after a restart or a crash, and rebuilds the state of the sessions.
+     *
+     * @throws IOException if the segments cannot be read
+     */
+    private void recover() throws IOException {
+        while (Files.exists(segmentPath(directory, segmentIndex + 1))) {
+            segmentIndex++;
+        }
+        readCheckpoint(directory, segmentIndex, sessions, new HashSet<>());
+        int end = 0;
+        if (Files.exists(segmentPath(directory, segmentIndex))) {
+            ByteBuffer records = map(segmentPath(directory, segmentIndex));
+            while (isValid(records, end)) {
+                track(records.getLong(end), records.getInt(end + 8), records.getInt(end + 12), records.get(end + 16), records.get(end + 17));
+                end += RECORD_BYTES;
+            }
+        }
+        openSegment(end);
+    }
+
+    /**
+     * Rebuilds the board of a session as it was after a given move.
+     * Only the events already written are seen, call {@link #flush()} first to include the queued ones.
+     *
+     * @param directory the directory of the log
+     * @param session the identifier of the session
+     * @param move the number of the last event to apply, {@link Integer#MAX_VALUE} for the latest board
+     * @return the board after that move
+     * @throws IOException if the log cannot be read
+     */
+    public static Board replay(Path directory, long session, int move) throws IOException {
+        int index = 0;
+        SessionState state = new SessionState();
+        // On part du dernier point de contrôle qui précède le coup demandé
+        for (int candidate = 1; Files.exists(checkpointPath(directory, candidate)); candidate++) {
+            Map<Long, SessionState> checkpoint = new HashMap<>();
+            Set<Long> endedBefore = new HashSet<>();
+            readCheckpoint(directory, candidate, checkpoint, endedBefore);
+            SessionState saved = checkpoint.get(session);
+            // Une partie terminée n'est plus dans les points de contrôle suivants : sa fin est dans le segment précédent
+            if (saved != null && saved.move > move || endedBefore.contains(session)) break;
+            index = candidate;
+            state = saved != null ? saved : new SessionState();
+        }
+        for (; Files.exists(segmentPath(directory, index)); index++) {
+            ByteBuffer records = map(segmentPath(directory, index));
+            for (int position = 0; isValid(records, position); position += RECORD_BYTES) {
+                if (records.getLong(position) != session || !changesBoard(records.get(position + 16))) continue;
+                int number = records.getInt(position + 8);
+                if (number > move) return state.toBoard();
+                state.apply(number, records.getInt(position + 12), records.get(position + 17));
+            }
+        }
+        return state.toBoard();
+    }
+
+    /**
+     * Maps a segment for reading.
+     *
+     * @param path the segment
+     * @return the mapped records
+     * @throws IOException if the segment cannot be read
+     */
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            return in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        }
+    }
+
+    /**
+     * Reads a checkpoint, if it exists.
+     *
+     * @param directory the directory of the log
+     * @param index the index of the segment following the checkpoint
+     * @param into the map receiving the state of each open session
+     * @param ended the set receiving the sessions ended in the previous segment
+     * @throws IOException if the checkpoint cannot be read
+     */
+    private static void readCheckpoint(Path directory, int index, Map<Long, SessionState> into, Set<Long> ended)
+            throws IOException {
+        Path path = checkpointPath(directory, index);
+        if (!Files.exists(path)) return;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            SessionState state = new SessionState();
+            long id = buffer.getLong();
+            state.move = buffer.getInt();
+            buffer.get(state.cells);
+            into.put(id, state);
+        }
+        // Les points de contrôle écrits avant les fins de partie s'arrêtent là
+        int endedCount = buffer.remaining() >= 4 ? buffer.getInt() : 0;
+        for (int i = 0; i < endedCount; i++) {
+            ended.add(buffer.getLong());
+        }
+    }
+
+    /**
+     * Returns the path of a segment.
+     *
+     * @param directory the directory of the log
+     * @param index the index of the segment
+     * @return the path of the segment
+     */
+    static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("events-%06d.log", index));
+    }
+
+    /**
+     * Returns the path of the checkpoint written before a segment.
+     *
+     * @param directory the directory of the log
+     * @param index the index of the segment following the checkpoint
+     * @return the path of the checkpoint
+     */
+    private static Path checkpointPath(Path directory, int index) {
+        return directory.resolve(String.format("checkpoint-%06d.bin", index));
+    }
+
+    /**
+     * An event waiting for the writer.
+     */
+    private static final class Event {
+
+    	/** The identifier of the session. */
+        final long session;
+
+        /** The number of the event in the session. */
+        final int move;
+
+        /** The index of the cell. */
+        final int cell;
+
+        /** The kind of event. */
+        final byte kind;
+
+        /** The combination index of the placed or refused tile, or {@link BoardCodec#EMPTY}. */
+        final byte code;
+
+        /** The ordinal of the {@link RejectionReason} of a refused placement, 0 otherwise. */
+        final byte reason;
+
+        /** The time of the event in milliseconds since the epoch. */
+        final long time;
+
+        /** For a flush marker, the future completed once the preceding events are durable. */
+        final CompletableFuture<Void> flushed;
+
+        Event(long session, int move, int cell, byte kind, byte code, byte reason, CompletableFuture<Void> flushed) {
+            this.session = session;
+            this.move = move;
+            this.cell = cell;
+            this.kind = kind;
+            this.code = code;
+            this.reason = reason;
+            this.time = System.currentTimeMillis();
+            this.flushed = flushed;
+        }
+    }
+
+    /**
+     * The board of a session, as one {@link BoardCodec} code per cell, and the number of its last event.
+     */
+    private static final class SessionState {
+
+    	/** The code of each cell. */
+        final byte[] cells = new byte[CELLS];
+
+        /** The number of the last applied event. */
+        int move;
+
+        SessionState() {
+            Arrays.fill(cells, BoardCodec.EMPTY);
+        }
+
+        /**
+         * Applies an event.
+         *
+         * @param number the number of the event
+         * @param cell the index of the cell
+         * @param code the new code of the cell
+         */
+        void apply(int number, int cell, byte code) {
+            move = number;
+            cells[cell] = code;
+        }
+
+        /**
+         * Builds the board holding the tiles of the state.
+         *
+         * @return the new board
+         */
+        Board toBoard() {
+            ByteBuffer state = ByteBuffer.allocate(BoardCodec.fullLength(Board.SIZE));
+            state.put(BoardCodec.FORMAT).put(BoardCodec.FULL).putInt(Board.SIZE).putInt(move).put(cells).flip();
+            return BoardCodec.decode(state);
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package projet;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import javax.imageio.ImageIO;
+import java.util.stream.Stream;
 
 /**
  * The GameManager class handles the game's logic and the management of the game board.
@@ -14,67 +13,207 @@ public class GameManager {
 	
 	/** The board that holds the tiles for the game. */
     private final Board board;
-    
-    /** A map to hold the images corresponding to each tile type. */
-    private final Map<TileType, BufferedImage> tileImages;
+
+    /** The log receiving the changes of the board, or null if the game is not recorded. */
+    private EventLog eventLog;
+
+    /** The identifier of the game in the event log. */
+    private long sessionId;
+
+    /** The number of changes recorded in the event log. */
+    private int recordedMoves;
 
     /**
-     * Constructs a GameManager object that initializes the board and loads the tile images.
-     * 
-     * @throws IOException If there is an error reading the tile images from files.
+     * Constructs a GameManager object with an empty board.
+     * The game never reads the tile images: they are decoded by {@link TileSprites} when something is drawn,
+     * so a game runs headless and starts without any image.
      */
-    public GameManager() throws IOException {
+    public GameManager() {
         this.board = new Board();
-        this.tileImages = loadTileImages();
     }
 
     /**
-     * Loads the images for all tile types by reading image files corresponding to each type.
+     * Constructs a GameManager around an existing board, for instance one rebuilt by {@link BoardCodec#decode(ByteBuffer)}
+     * or {@link EventLog#replay(java.nio.file.Path, long, int)}.
      * 
-     * @return A map where the keys are tile types and the values are their corresponding images.
-     * @throws IOException If there is an error reading the tile images from files.
+     * @param board The board of the game.
      */
-    private Map<TileType, BufferedImage> loadTileImages() throws IOException {
-        Map<TileType, BufferedImage> images = new HashMap<>();
-        for (TileType type : TileType.values()) {
-            images.put(type, ImageIO.read(new File(type.getImagePath())));
-        }
-        return images;
+    public GameManager(Board board) {
+        this.board = board;
     }
 
     /**
      * Places a tile on the board at the specified position with the given rotation.
-     * The rotation is applied by rotating the tile in 90-degree increments.
+     * The rotation is applied in 90-degree increments with a single lookup, whatever the angle.
      * 
      * @param type The type of tile to be placed.
      * @param position The position (in algebraic notation) on the board where the tile should be placed.
      * @param rotation The rotation of the tile in degrees (must be a multiple of 90).
-     * @return True if the tile was successfully placed, false otherwise.
-     * @throws IOException If there is an error creating the tile or reading its image.
+     * @return True if the tile was successfully placed, false otherwise, also when the position is not a valid notation.
      */
-    public boolean placeTile(TileType type, String position, int rotation) throws IOException {
+    public boolean placeTile(TileType type, String position, int rotation) {
         Tile tile = new Tile(type);
-        for (int i = 0; i < (rotation / 90); i++) {
-            tile.rotate();
+        tile.setOrientation(Orientation.fromQuarterTurns(Math.max(rotation / 90, 0)));
+        int since = board.getVersion();
+        Position pos;
+        try {
+            pos = Position.parse(position, board.getSize());
+        } catch (IllegalArgumentException e) {
+            // Une notation illisible ne désigne aucune case du plateau : refusée comme hors limites, sans journal
+            if (GameMetrics.ENABLED) GameMetrics.get().rejected(RejectionReason.OUT_OF_BOUNDS, -1);
+            return false;
+        }
+        boolean placed = board.placeTile(pos, tile);
+        if (placed) {
+            record(since);
+        } else {
+            recordRejection(pos, tile);
+        }
+        return placed;
+    }
+
+    /**
+     * Places a batch of tiles, all or nothing, as {@link Board#placeTiles(List)} does.
+     * 
+     * @param placements The placements of the batch.
+     * @return Whether the batch was committed, and why each refused placement was refused.
+     */
+    public BatchResult placeTiles(List<Placement> placements) {
+        int since = board.getVersion();
+        BatchResult result = board.placeTiles(placements);
+        if (result.isCommitted()) {
+            record(since);
+        } else if (eventLog != null) {
+            for (int i = 0; i < result.size(); i++) {
+                RejectionReason reason = result.getReason(i);
+                if (reason == null || reason == RejectionReason.OUT_OF_BOUNDS) continue;
+                Placement placement = placements.get(i);
+                eventLog.appendRejection(sessionId, recordedMoves, placement.getPosition().toIndex(board.getSize()),
+                        placement.getType(), placement.getOrientation(), reason);
+            }
         }
-        return board.placeTile(new Position(position), tile);
+        return result;
+    }
+
+    /**
+     * Records every later change of the board in an event log, so the game can be replayed with
+     * {@link EventLog#replay(java.nio.file.Path, long, int)}, along with the refused placements inside the board.
+     * Recording only queues the events and never waits for the disk.
+     * 
+     * @param log The event log.
+     * @param sessionId The identifier of the game in the log.
+     * @throws IllegalStateException if the board is not a standard {@link Board#SIZE} board with the
+     *         {@link Board#defaultExits(int) default exits}, played with the {@link ConnectionRules#standard() standard rules},
+     *         the only boards a replay can rebuild.
+     */
+    public void recordTo(EventLog log, long sessionId) {
+        if (board.getSize() != Board.SIZE) {
+            throw new IllegalStateException("Only " + Board.SIZE + "x" + Board.SIZE + " boards can be recorded");
+        }
+        if (board.getRules() != ConnectionRules.standard()) {
+            throw new IllegalStateException("Only boards played with the standard rules can be recorded, not " + board.getRules());
+        }
+        if (!board.getExits().equals(Board.defaultExits(board.getSize()))) {
+            throw new IllegalStateException("Only boards with the default exits can be recorded");
+        }
+        this.eventLog = log;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Records the end of the game in the event log, if the game is recorded, and stops recording it.
+     * The analytics of {@link ArchiveAnalytics} count the game as finished from then on.
+     */
+    public void endRecording() {
+        if (eventLog == null) return;
+        eventLog.appendEnd(sessionId, recordedMoves);
+        eventLog = null;
+    }
+
+    /**
+     * Sends a refused placement to the event log, if the game is recorded and the position is inside the board.
+     * 
+     * @param pos The position of the refused tile.
+     * @param tile The refused tile.
+     */
+    private void recordRejection(Position pos, Tile tile) {
+        if (eventLog == null) return;
+        RejectionReason reason = board.rejectionReason(pos, tile);
+        if (reason == RejectionReason.OUT_OF_BOUNDS) return;
+        eventLog.appendRejection(sessionId, recordedMoves, pos.toIndex(board.getSize()), tile.getType(),
+                tile.getOrientation(), reason);
+    }
+
+    /**
+     * Sends the changes of the board made after a version to the event log, if the game is recorded.
+     * 
+     * @param since The version of the board before the changes.
+     */
+    private void record(int since) {
+        if (eventLog == null) return;
+        for (int v = since + 1; v <= board.getVersion(); v++) {
+            int cell = board.getChangedCell(v);
+            Tile tile = board.peekTile(cell / board.getSize(), cell % board.getSize());
+            if (tile != null) {
+                eventLog.appendPlacement(sessionId, ++recordedMoves, cell, tile.getType(), tile.getOrientation());
+            } else {
+                eventLog.appendUndo(sessionId, ++recordedMoves, cell);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the version of the board, incremented on every change.
+     * 
+     * @return The current version, to pass to {@link #encodeDelta(int, ByteBuffer)} later.
+     */
+    public int getVersion() {
+        return board.getVersion();
+    }
+
+    /**
+     * Writes the current state of the board in the compact {@link BoardCodec} encoding, about one byte per cell.
+     * 
+     * @param out The buffer receiving the state, with at least {@link BoardCodec#fullLength(int)} bytes remaining.
+     */
+    public void encodeBoardState(ByteBuffer out) {
+        long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+        BoardCodec.encode(board, out);
+        if (GameMetrics.ENABLED) GameMetrics.get().queried(start);
+    }
+
+    /**
+     * Writes only the cells changed since a given version, in the {@link BoardCodec} delta encoding.
+     * 
+     * @param sinceVersion The version already known by the reader.
+     * @param out The buffer receiving the delta.
+     * @return The number of cells in the delta.
+     */
+    public int encodeDelta(int sinceVersion, ByteBuffer out) {
+        long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+        int cells = BoardCodec.encodeDelta(board, sinceVersion, out);
+        if (GameMetrics.ENABLED) GameMetrics.get().queried(start);
+        return cells;
     }
 
     /**
      * Retrieves the current state of the board, including the types of tiles and their rotations.
+     * Prefer {@link #encodeBoardState(ByteBuffer)} for frequent polling, which allocates nothing.
      * 
      * @return A map containing the current state of the board. The map contains:
      *         - "types": a 2D array of TileType values representing the tile types on the board.
      *         - "rotations": a 2D array of integers representing the rotation (in degrees) of each tile.
      */
     public Map<String, Object> getBoardState() {
+        long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
         Map<String, Object> state = new HashMap<>();
-        TileType[][] types = new TileType[Board.SIZE][Board.SIZE];
-        int[][] rotations = new int[Board.SIZE][Board.SIZE];
+        int size = board.getSize();
+        TileType[][] types = new TileType[size][size];
+        int[][] rotations = new int[size][size];
 
-        for (int i = 0; i < Board.SIZE; i++) {
-            for (int j = 0; j < Board.SIZE; j++) {
-                Tile tile = board.getTileAt(i, j);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                Tile tile = board.peekTile(i, j);
                 if (tile != null) {
                     types[i][j] = tile.getType();
                     rotations[i][j] = tile.getOrientation().getDegrees();
@@ -84,6 +223,101 @@ public class GameManager {
 
         state.put("types", types);
         state.put("rotations", rotations);
+        if (GameMetrics.ENABLED) GameMetrics.get().queried(start);
         return state;
     }
+
+    /**
+     * Lists every legal placement on the current board, for bots and hints.
+     * 
+     * @return a stream of the legal placements.
+     */
+    public Stream<Placement> legalMoves() {
+        return board.legalMoves();
+    }
+
+    /**
+     * Retrieves the current score of the board.
+     * 
+     * @return the score report, with connected exits, longest routes and open ends.
+     */
+    public ScoreReport getScore() {
+        long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+        ScoreReport score = board.getScore();
+        if (GameMetrics.ENABLED) GameMetrics.get().queried(start);
+        return score;
+    }
+
+    /**
+     * Suggests where to place the given tiles, using Monte-Carlo playouts on copies of the board.
+     * 
+     * @param tiles The tiles to place, in any order.
+     * @param budget The limits of the search.
+     * @return The advised placements and the throughput of the search.
+     */
+    public MoveAdvisor.Advice advise(List<TileType> tiles, MoveAdvisor.Budget budget) {
+        return new MoveAdvisor().advise(board, tiles, budget);
+    }
+
+    /**
+     * Registers a listener notified of every later change of the board, for instance a {@link BoardDisplay}.
+     * 
+     * @param listener The listener.
+     */
+    public void addBoardListener(BoardListener listener) {
+        board.addBoardListener(listener);
+    }
+
+    /**
+     * Unregisters a board listener.
+     * 
+     * @param listener The listener.
+     */
+    public void removeBoardListener(BoardListener listener) {
+        board.removeBoardListener(listener);
+    }
+
+    /**
+     * Undoes the last placement.
+     * 
+     * @return True if a placement was undone, false if there was nothing to undo.
+     */
+    public boolean undo() {
+        int since = board.getVersion();
+        boolean undone = board.undo();
+        record(since);
+        return undone;
+    }
+
+    /**
+     * Redoes the last undone placement.
+     * 
+     * @return True if a placement was redone, false if there was nothing to redo.
+     */
+    public boolean redo() {
+        int since = board.getVersion();
+        boolean redone = board.redo();
+        record(since);
+        return redone;
+    }
+
+    /**
+     * Saves the current point of the game, to come back to it with {@link #rollbackTo(long)}.
+     * 
+     * @return The mark of the current point.
+     */
+    public long mark() {
+        return board.mark();
+    }
+
+    /**
+     * Undoes every placement made after a mark, in one call.
+     * 
+     * @param mark A mark returned by {@link #mark()}.
+     */
+    public void rollbackTo(long mark) {
+        int since = board.getVersion();
+        board.rollbackTo(mark);
+        record(since);
+    }
 }
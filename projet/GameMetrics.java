@@ -0,0 +1,306 @@
+package projet;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of the placements and state queries of every board of the JVM.
+ * <p>
+ * The metrics are enabled with {@code -Dprojet.metrics=true}. The flag is a constant, so when it is off the JIT
+ * removes the instrumentation from {@link Board} and {@link GameManager} entirely. When it is on, each event costs
+ * a {@link LongAdder} increment and, for timed events, two {@link System#nanoTime()} calls; the rejections are
+ * only classified on the rejection path. The metrics are published through JMX as {@value #OBJECT_NAME}
+ * and can be pushed to any monitoring system with a {@link MetricsExporter}.
+ */
+public final class GameMetrics implements GameMetricsMXBean {
+
+	/**
+     * Whether the metrics are recorded, read once from the {@code projet.metrics} system property.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("projet.metrics");
+
+    /**
+     * The JMX name of the metrics.
+     */
+    public static final String OBJECT_NAME = "projet:type=GameMetrics";
+
+    /**
+     * The connection types.
+     */
+    private static final ConnectionType[] CONNECTIONS = ConnectionType.values();
+
+    /**
+     * The names of the sides, indexed like {@link ConnectionSignature#NORTH}.
+     */
+    private static final String[] SIDES = {"NORTH", "EAST", "SOUTH", "WEST"};
+
+    /**
+     * The metrics of the JVM.
+     */
+    private static final GameMetrics INSTANCE = new GameMetrics();
+
+    static {
+        if (ENABLED) INSTANCE.register();
+    }
+
+    /**
+     * The number of attempted placements.
+     */
+    private final LongAdder attempts = new LongAdder();
+
+    /**
+     * The number of successful placements.
+     */
+    private final LongAdder successes = new LongAdder();
+
+    /**
+     * The number of refused placements, by {@link RejectionReason}.
+     */
+    private final LongAdder[] rejections = new LongAdder[RejectionReason.values().length];
+
+    /**
+     * The number of valid placements of the batches refused as a whole.
+     */
+    private final LongAdder aborted = new LongAdder();
+
+    /**
+     * The number of edge mismatches, indexed by side, then connection of the placed tile, then facing connection.
+     */
+    private final LongAdder[] mismatches = new LongAdder[4 * CONNECTIONS.length * CONNECTIONS.length];
+
+    /**
+     * The durations of the placements.
+     */
+    private final LatencyHistogram placementLatency = new LatencyHistogram();
+
+    /**
+     * The durations of the state queries.
+     */
+    private final LatencyHistogram stateQueryLatency = new LatencyHistogram();
+
+    /**
+     * Constructs empty metrics.
+     */
+    private GameMetrics() {
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+        for (int i = 0; i < mismatches.length; i++) {
+            mismatches[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns the metrics of the JVM. They only change when {@link #ENABLED} is set.
+     *
+     * @return the metrics
+     */
+    public static GameMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     */
+    private void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Déjà enregistré par une autre copie de la classe
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Records a successful placement.
+     *
+     * @param startNanos the {@link System#nanoTime()} at the start of the placement, or -1 if it was not timed
+     */
+    void placed(long startNanos) {
+        attempts.increment();
+        successes.increment();
+        if (startNanos >= 0) placementLatency.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a refused placement.
+     *
+     * @param reason the reason of the refusal
+     * @param startNanos the {@link System#nanoTime()} at the start of the placement, or -1 if it was not timed
+     */
+    void rejected(RejectionReason reason, long startNanos) {
+        attempts.increment();
+        rejections[reason.ordinal()].increment();
+        if (startNanos >= 0) placementLatency.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a placement of a refused batch that was valid on its own.
+     */
+    void aborted() {
+        attempts.increment();
+        aborted.increment();
+    }
+
+    /**
+     * Records an edge mismatch, in addition to the rejection of the placement.
+     *
+     * @param side the side of the placed tile, 0 = North, 1 = East, 2 = South, 3 = West
+     * @param placed the connection of the placed tile on that side
+     * @param facing the connection of the neighbouring tile facing it
+     */
+    void mismatched(int side, ConnectionType placed, ConnectionType facing) {
+        mismatches[(side * CONNECTIONS.length + placed.ordinal()) * CONNECTIONS.length + facing.ordinal()].increment();
+    }
+
+    /**
+     * Records a state query.
+     *
+     * @param startNanos the {@link System#nanoTime()} at the start of the query
+     */
+    void queried(long startNanos) {
+        stateQueryLatency.record(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    @Override
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    @Override
+    public long getAbortedInBatch() {
+        return aborted.sum();
+    }
+
+    @Override
+    public Map<String, Long> getRejections() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (RejectionReason reason : RejectionReason.values()) {
+            counts.put(reason.name(), rejections[reason.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getMismatches() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < mismatches.length; i++) {
+            long count = mismatches[i].sum();
+            if (count == 0) continue;
+            counts.put(SIDES[i / (CONNECTIONS.length * CONNECTIONS.length)] + " "
+                    + CONNECTIONS[i / CONNECTIONS.length % CONNECTIONS.length] + "/" + CONNECTIONS[i % CONNECTIONS.length], count);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the histogram of the durations of the placements.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getPlacementLatency() {
+        return placementLatency;
+    }
+
+    /**
+     * Returns the histogram of the durations of the state queries.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getStateQueryLatency() {
+        return stateQueryLatency;
+    }
+
+    @Override
+    public long getPlacementLatencyP50() {
+        return placementLatency.getPercentile(50);
+    }
+
+    @Override
+    public long getPlacementLatencyP99() {
+        return placementLatency.getPercentile(99);
+    }
+
+    @Override
+    public long getStateQueryLatencyP50() {
+        return stateQueryLatency.getPercentile(50);
+    }
+
+    @Override
+    public long getStateQueryLatencyP99() {
+        return stateQueryLatency.getPercentile(99);
+    }
+
+    @Override
+    public void reset() {
+        attempts.reset();
+        successes.reset();
+        aborted.reset();
+        for (LongAdder rejection : rejections) {
+            rejection.reset();
+        }
+        for (LongAdder mismatch : mismatches) {
+            mismatch.reset();
+        }
+        placementLatency.reset();
+        stateQueryLatency.reset();
+    }
+
+    /**
+     * Returns the value of every metric by name, in a stable order, for the exporters.
+     *
+     * @return the metrics
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("placement.attempts", getAttempts());
+        metrics.put("placement.successes", getSuccesses());
+        getRejections().forEach((reason, count) ->
+                metrics.put("placement.rejected." + reason.toLowerCase(Locale.ROOT), count));
+        metrics.put("placement.aborted", getAbortedInBatch());
+        getMismatches().forEach((mismatch, count) ->
+                metrics.put("placement.mismatch." + mismatch.toLowerCase(Locale.ROOT).replace(' ', '.').replace('/', '.'), count));
+        metrics.put("placement.latency.p50.nanos", getPlacementLatencyP50());
+        metrics.put("placement.latency.p99.nanos", getPlacementLatencyP99());
+        metrics.put("state.latency.p50.nanos", getStateQueryLatencyP50());
+        metrics.put("state.latency.p99.nanos", getStateQueryLatencyP99());
+        return metrics;
+    }
+
+    /**
+     * Exports the metrics periodically from a daemon thread, until the returned handle is closed.
+     * Closing the handle exports the metrics one last time.
+     *
+     * @param exporter the exporter
+     * @param period the time between two exports
+     * @return the handle stopping the exports
+     */
+    public AutoCloseable startExporter(MetricsExporter exporter, Duration period) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> exporter.export(snapshot()), period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+        return () -> {
+            executor.shutdownNow();
+            exporter.export(snapshot());
+        };
+    }
+}
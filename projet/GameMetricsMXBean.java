@@ -0,0 +1,80 @@
+package projet;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link GameMetrics}, registered as {@value GameMetrics#OBJECT_NAME}.
+ */
+public interface GameMetricsMXBean {
+
+	/**
+     * Returns the number of attempted placements, counting every entry of a batch.
+     * It is the sum of the successes, the rejections and the placements {@link #getAbortedInBatch() aborted in a batch}.
+     *
+     * @return the count
+     */
+    long getAttempts();
+
+    /**
+     * Returns the number of successful placements.
+     *
+     * @return the count
+     */
+    long getSuccesses();
+
+    /**
+     * Returns the number of refused placements, by {@link RejectionReason}.
+     *
+     * @return the count of each reason
+     */
+    Map<String, Long> getRejections();
+
+    /**
+     * Returns the number of placements that were valid on their own but not made, because another placement of their
+     * batch was refused.
+     *
+     * @return the count
+     */
+    long getAbortedInBatch();
+
+    /**
+     * Returns the number of placements refused because of an edge mismatch, by side of the placed tile and pair of
+     * connections, such as {@code NORTH HIGHWAY/RAILWAY} for a highway facing a railway on its north side.
+     *
+     * @return the count of each mismatch that happened
+     */
+    Map<String, Long> getMismatches();
+
+    /**
+     * Returns the median duration of a placement.
+     *
+     * @return the upper bound of the median, in nanoseconds
+     */
+    long getPlacementLatencyP50();
+
+    /**
+     * Returns the 99th percentile of the duration of a placement.
+     *
+     * @return the upper bound of the percentile, in nanoseconds
+     */
+    long getPlacementLatencyP99();
+
+    /**
+     * Returns the median duration of a state query.
+     *
+     * @return the upper bound of the median, in nanoseconds
+     */
+    long getStateQueryLatencyP50();
+
+    /**
+     * Returns the 99th percentile of the duration of a state query.
+     *
+     * @return the upper bound of the percentile, in nanoseconds
+     */
+    long getStateQueryLatencyP99();
+
+    /**
+     * Resets every counter and histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,265 @@
+package projet;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Headless HTTP server hosting many games, for the JavaScript front end.
+ * It is built on the JDK's {@link HttpServer} and answers in JSON:
+ * <ul>
+ *   <li>{@code POST /sessions} creates a game and returns its identifier;</li>
+ *   <li>{@code GET /sessions/{id}} returns the board state and the score;</li>
+ *   <li>{@code POST /sessions/{id}/place?type=HIGHWAY_STRAIGHT&position=A1&rotation=90} places a tile;</li>
+ *   <li>{@code GET /sessions/{id}/moves} returns the number of legal placements;</li>
+ *   <li>{@code DELETE /sessions/{id}} ends the game.</li>
+ * </ul>
+ * Every command on a game goes through its {@link GameSession} mailbox, and the response is sent when it has run.
+ */
+public class GameServer implements AutoCloseable {
+
+	/**
+     * The underlying HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * The hosted sessions.
+     */
+    private final SessionRegistry registry;
+
+    /**
+     * The executor handling the requests, owned by the server.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a server listening on the loopback interface.
+     *
+     * @param port the port to listen on, 0 for any free port
+     * @param registry the hosted sessions
+     * @throws IOException if the server cannot be bound
+     */
+    public GameServer(int port, SessionRegistry registry) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/sessions", this::handle);
+        this.executor = SessionRegistry.newDefaultExecutor();
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts the server.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, its request executor and the registry.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        registry.close();
+    }
+
+    /**
+     * Dispatches a request on {@code /sessions}.
+     *
+     * @param exchange the request
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        String method = exchange.getRequestMethod();
+        try {
+            if (path.length == 2 && method.equals("POST")) {
+                create(exchange);
+                return;
+            }
+            Optional<GameSession> session = path.length >= 3 ? registry.get(path[2]) : Optional.empty();
+            if (session.isEmpty()) {
+                send(exchange, 404, "{\"error\":\"unknown session\"}");
+                return;
+            }
+            String command = path.length == 4 ? path[3] : "";
+            if (path.length == 3 && method.equals("GET")) {
+                run(exchange, session.get(), GameServer::stateJson);
+            } else if (path.length == 3 && method.equals("DELETE")) {
+                registry.remove(path[2]);
+                send(exchange, 204, null);
+            } else if (command.equals("place") && method.equals("POST")) {
+                Map<String, String> query = query(exchange.getRequestURI());
+                TileType type = TileType.valueOf(query.getOrDefault("type", ""));
+                String position = query.getOrDefault("position", "");
+                int rotation = Integer.parseInt(query.getOrDefault("rotation", "0"));
+                run(exchange, session.get(), game -> "{\"placed\":" + game.placeTile(type, position, rotation) + "}");
+            } else if (command.equals("moves") && method.equals("GET")) {
+                run(exchange, session.get(), game -> "{\"moves\":" + game.legalMoves().count() + "}");
+            } else {
+                send(exchange, 405, "{\"error\":\"unsupported request\"}");
+            }
+        } catch (RuntimeException | Error e) {
+            fail(exchange, e);
+        }
+    }
+
+    /**
+     * Sends the error matching a failure, and closes the exchange in any case.
+     * Invalid parameters are the client's fault, anything else is a server error.
+     *
+     * @param exchange the request
+     * @param failure the failure of the request
+     */
+    private static void fail(HttpExchange exchange, Throwable failure) {
+        try {
+            if (failure instanceof IllegalArgumentException || failure instanceof StringIndexOutOfBoundsException) {
+                send(exchange, 400, "{\"error\":\"invalid parameters\"}");
+            } else {
+                send(exchange, 500, "{\"error\":\"internal error\"}");
+            }
+        } catch (IOException | RuntimeException e) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Creates a session and sends its identifier.
+     *
+     * @param exchange the request
+     * @throws IOException if the response cannot be sent
+     */
+    private void create(HttpExchange exchange) throws IOException {
+        GameSession session = registry.create();
+        send(exchange, 201, "{\"id\":\"" + session.getId() + "\"}");
+    }
+
+    /**
+     * Queues a command on a session and sends its result once it has run.
+     *
+     * @param exchange the request
+     * @param session the session
+     * @param command the command, returning the JSON body of the response
+     */
+    private static void run(HttpExchange exchange, GameSession session, Function<GameManager, String> command) {
+        session.submit(command).whenComplete((body, failure) -> {
+            if (failure != null) {
+                fail(exchange, failure);
+                return;
+            }
+            try {
+                send(exchange, 200, body);
+            } catch (IOException | RuntimeException e) {
+                exchange.close();
+            }
+        });
+    }
+
+    /**
+     * Sends a JSON response and closes the exchange.
+     *
+     * @param exchange the request
+     * @param status the HTTP status
+     * @param body the JSON body, or {@code null} for none
+     * @throws IOException if the response cannot be sent
+     */
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        try (exchange) {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Parses the query string of a request.
+     *
+     * @param uri the request URI
+     * @return the parameters by name
+     */
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = uri.getQuery();
+        if (query == null) return parameters;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(pair.substring(0, equals), pair.substring(equals + 1));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Serializes the state of a game.
+     *
+     * @param game the game
+     * @return the JSON object with the types, the rotations and the score total
+     */
+    private static String stateJson(GameManager game) {
+        Map<String, Object> state = game.getBoardState();
+        TileType[][] types = (TileType[][]) state.get("types");
+        int[][] rotations = (int[][]) state.get("rotations");
+        StringBuilder json = new StringBuilder("{\"types\":[");
+        for (int row = 0; row < types.length; row++) {
+            json.append(row == 0 ? "[" : ",[");
+            for (int col = 0; col < types[row].length; col++) {
+                if (col > 0) json.append(',');
+                json.append(types[row][col] == null ? "null" : "\"" + types[row][col] + "\"");
+            }
+            json.append(']');
+        }
+        json.append("],\"rotations\":[");
+        for (int row = 0; row < rotations.length; row++) {
+            json.append(row == 0 ? "[" : ",[");
+            for (int col = 0; col < rotations[row].length; col++) {
+                if (col > 0) json.append(',');
+                json.append(rotations[row][col]);
+            }
+            json.append(']');
+        }
+        return json.append("],\"score\":").append(game.getScore().getTotal()).append('}').toString();
+    }
+
+    /**
+     * Starts a server on the given port, 8080 by default, evicting games idle for 10 minutes.
+     *
+     * @param args the port, optional
+     * @throws IOException if the server cannot be started
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        GameServer server = new GameServer(port, new SessionRegistry(Duration.ofMinutes(10)));
+        server.start();
+        System.out.println("Serveur démarré sur le port " + server.getPort());
+    }
+}
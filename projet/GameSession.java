@@ -0,0 +1,125 @@
+package projet;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A game hosted by the server: a {@link GameManager} and the mailbox of commands sent to it.
+ * Commands are queued and run one after the other, never concurrently, so the game needs no lock.
+ * The mailbox is drained by a single task on the shared executor while it holds commands.
+ */
+public class GameSession {
+
+	/**
+     * The identifier of the session.
+     */
+    private final String id;
+
+    /**
+     * The game of the session, only touched by the commands of the mailbox.
+     */
+    private final GameManager game;
+
+    /**
+     * The executor draining the mailbox.
+     */
+    private final Executor executor;
+
+    /**
+     * The pending commands.
+     */
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a drain of the mailbox is scheduled or running.
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * The {@link System#nanoTime()} of the last command submitted to the session.
+     */
+    private volatile long lastAccess;
+
+    /**
+     * Constructs a session.
+     *
+     * @param id the identifier of the session
+     * @param game the game of the session
+     * @param executor the executor draining the mailbox
+     */
+    public GameSession(String id, GameManager game, Executor executor) {
+        this.id = id;
+        this.game = game;
+        this.executor = executor;
+        this.lastAccess = System.nanoTime();
+    }
+
+    /**
+     * Queues a command on the game. The command runs after every command submitted before it.
+     *
+     * @param <T> the type of the result
+     * @param command the command, receiving the game
+     * @return a future completed with the result of the command, or with its exception
+     */
+    public <T> CompletableFuture<T> submit(Function<GameManager, T> command) {
+        lastAccess = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        mailbox.add(() -> {
+            try {
+                result.complete(command.apply(game));
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        });
+        scheduleDrain();
+        return result;
+    }
+
+    /**
+     * Schedules a drain of the mailbox unless one is already scheduled.
+     */
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Runs the pending commands, then reschedules if a command arrived after the last poll.
+     */
+    private void drain() {
+        try {
+            Runnable command;
+            while ((command = mailbox.poll()) != null) {
+                command.run();
+            }
+        } finally {
+            draining.set(false);
+            if (!mailbox.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /**
+     * Gets the identifier of the session.
+     *
+     * @return the identifier
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the {@link System#nanoTime()} of the last command submitted to the session.
+     *
+     * @return the time of the last access
+     */
+    public long getLastAccess() {
+        return lastAccess;
+    }
+}
@@ -0,0 +1,166 @@
+package projet;
+
+/**
+ * Streaming histogram of integer values, such as final scores, with one bucket per value.
+ * The buckets grow to cover the values recorded, so the memory used follows the range of the values and not their
+ * number. A histogram is not thread-safe: each thread records into its own, and the histograms are then merged.
+ */
+public final class Histogram {
+
+	/**
+     * The count of each value, {@code counts[i]} for the value {@code lowest + i}.
+     */
+    private long[] counts = new long[0];
+
+    /**
+     * The value of the first bucket.
+     */
+    private int lowest;
+
+    /**
+     * The number of recorded values.
+     */
+    private long total;
+
+    /**
+     * The sum of the recorded values.
+     */
+    private long sum;
+
+    /**
+     * Records a value.
+     *
+     * @param value the value
+     */
+    public void record(int value) {
+        record(value, 1);
+    }
+
+    /**
+     * Records a value several times.
+     *
+     * @param value the value
+     * @param count the number of occurrences
+     */
+    private void record(int value, long count) {
+        if (counts.length == 0) {
+            counts = new long[16];
+            lowest = value;
+        } else if (value < lowest || value >= lowest + counts.length) {
+            int low = Math.min(lowest, value);
+            int high = Math.max(lowest + counts.length, value + 1);
+            long[] grown = new long[Math.max(high - low, counts.length * 2)];
+            System.arraycopy(counts, 0, grown, lowest - low, counts.length);
+            counts = grown;
+            lowest = low;
+        }
+        counts[value - lowest] += count;
+        total += count;
+        sum += value * count;
+    }
+
+    /**
+     * Adds the values of another histogram to this one.
+     *
+     * @param other the histogram to add, unchanged
+     */
+    public void merge(Histogram other) {
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) record(other.lowest + i, other.counts[i]);
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Returns how many times a value was recorded.
+     *
+     * @param value the value
+     * @return the number of occurrences
+     */
+    public long getCount(int value) {
+        return value < lowest || value >= lowest + counts.length ? 0 : counts[value - lowest];
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return the mean, or {@code NaN} if nothing was recorded
+     */
+    public double getMean() {
+        return total == 0 ? Double.NaN : (double) sum / total;
+    }
+
+    /**
+     * Returns the smallest recorded value.
+     *
+     * @return the minimum
+     * @throws IllegalStateException if nothing was recorded
+     */
+    public int getMin() {
+        return getPercentile(0);
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return the maximum
+     * @throws IllegalStateException if nothing was recorded
+     */
+    public int getMax() {
+        return getPercentile(100);
+    }
+
+    /**
+     * Returns the smallest value such that at least the given percentage of the values are lower or equal.
+     *
+     * @param percentile the percentage, between 0 and 100
+     * @return the value
+     * @throws IllegalStateException if nothing was recorded
+     */
+    public int getPercentile(double percentile) {
+        if (total == 0) throw new IllegalStateException("The histogram is empty");
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] != 0) return lowest + i;
+        }
+        throw new AssertionError();
+    }
+
+    @Override
+    public String toString() {
+        if (total == 0) return "Histogram[empty]";
+        return String.format("Histogram[count=%d, mean=%.2f, min=%d, p50=%d, p90=%d, p99=%d, max=%d]",
+                total, getMean(), getMin(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Histogram other = (Histogram) o;
+        if (total != other.total) return false;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != other.getCount(lowest + i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Long.hashCode(total);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) hash = 31 * hash + (lowest + i) * 17 + Long.hashCode(counts[i]);
+        }
+        return hash;
+    }
+}
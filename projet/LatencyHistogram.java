@@ -0,0 +1,121 @@
+package projet;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations in nanoseconds, with logarithmic buckets.
+ * Each power of two is split into {@link #SUB_BUCKETS} buckets, so a percentile is known within 25 %,
+ * and recording a duration is one {@link LongAdder} increment, which scales with the number of threads.
+ */
+public final class LatencyHistogram {
+
+	/**
+     * The number of bits splitting each power of two.
+     */
+    private static final int SUB_BITS = 2;
+
+    /**
+     * The number of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * The number of buckets, enough for any non-negative {@code long}.
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * The count of each bucket.
+     */
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds, negative durations counting as 0
+     */
+    public void record(long nanos) {
+        buckets[bucket(Math.max(0, nanos))].increment();
+    }
+
+    /**
+     * Returns the bucket of a duration.
+     *
+     * @param nanos the non-negative duration
+     * @return the index of the bucket
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest duration of a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the upper bound in nanoseconds, included
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long width = 1L << (exponent - SUB_BITS);
+        return (1L << exponent) + (bucket % SUB_BUCKETS + 1) * width - 1;
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Returns an upper bound of a percentile of the recorded durations.
+     * The durations recorded while it runs may or may not be counted.
+     *
+     * @param percentile the percentage, between 0 and 100
+     * @return the upper bound of the bucket holding the percentile, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Forgets every recorded duration.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package projet;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for {@link GameServer}: starts a server in the same JVM, creates many sessions
+ * concurrently, then sends placement and state requests to all of them and reports the throughput.
+ */
+public class LoadGenerator {
+
+	/**
+     * The tile types cycled through by the generated placements.
+     */
+    private static final TileType[] TYPES = TileType.values();
+
+    /**
+     * Runs the load test.
+     *
+     * @param args the number of sessions (1000 by default) and the number of requests per session (20 by default)
+     * @throws Exception if the server cannot be started or a request fails
+     */
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        ExecutorService clientExecutor = SessionRegistry.newDefaultExecutor();
+        try (GameServer server = new GameServer(0, new SessionRegistry(Duration.ofMinutes(5)))) {
+            server.start();
+            HttpClient client = HttpClient.newBuilder().executor(clientExecutor).build();
+            String base = "http://localhost:" + server.getPort() + "/sessions";
+
+            long start = System.nanoTime();
+            List<CompletableFuture<String>> created = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                created.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString())
+                        .thenApply(response -> response.body().replaceAll(".*\"id\":\"([^\"]+)\".*", "$1")));
+            }
+            List<String> ids = new ArrayList<>();
+            for (CompletableFuture<String> id : created) {
+                ids.add(id.join());
+            }
+            double creationSeconds = (System.nanoTime() - start) / 1e9;
+
+            AtomicLong errors = new AtomicLong();
+            start = System.nanoTime();
+            List<CompletableFuture<?>> pending = new ArrayList<>();
+            for (int n = 0; n < requests; n++) {
+                for (int s = 0; s < ids.size(); s++) {
+                    HttpRequest request;
+                    if (n % 2 == 0) {
+                        String position = "" + (char) ('A' + (s + n) % Board.SIZE) + (1 + n / 2 % Board.SIZE);
+                        request = HttpRequest.newBuilder(URI.create(base + "/" + ids.get(s) + "/place?type="
+                                + TYPES[(s + n) % TYPES.length] + "&position=" + position + "&rotation=" + 90 * (n % 4)))
+                                .POST(HttpRequest.BodyPublishers.noBody()).build();
+                    } else {
+                        request = HttpRequest.newBuilder(URI.create(base + "/" + ids.get(s))).GET().build();
+                    }
+                    pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                            .thenAccept(response -> {
+                                if (response.statusCode() != 200) errors.incrementAndGet();
+                            }));
+                }
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+            double requestSeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d sessions created in %.2f s (%.0f sessions/s)%n", sessions, creationSeconds, sessions / creationSeconds);
+            System.out.printf("%d requests in %.2f s (%.0f requests/s), %d errors%n",
+                    pending.size(), requestSeconds, pending.size() / requestSeconds, errors.get());
+        } finally {
+            clientExecutor.shutdown();
+        }
+    }
+}
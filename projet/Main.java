@@ -21,6 +21,7 @@ public class Main {
     public static void main(String[] args) {
     	// Create tiles for the board
         try {
+            TileSprites.preload(); // Décode les images une seule fois
             Tile tile1 = new Tile(TileType.HIGHWAY_STRAIGHT);
             Tile tile2 = new Tile(TileType.RAILWAY_STRAIGHT);
             Tile tile3 = new Tile(TileType.HIGHWAY_CURVE);
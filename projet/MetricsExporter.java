@@ -0,0 +1,34 @@
+package projet;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * Sends the metrics of the game to a monitoring system. It is called periodically by
+ * {@link GameMetrics#startExporter(MetricsExporter, java.time.Duration)}, from a single thread.
+ */
+@FunctionalInterface
+public interface MetricsExporter {
+
+	/**
+     * Exports a snapshot of the metrics.
+     *
+     * @param metrics the value of each metric by name, such as {@code placement.attempts}
+     */
+    void export(Map<String, Long> metrics);
+
+    /**
+     * Returns an exporter printing one {@code name value} line per metric.
+     *
+     * @param out the stream to print to
+     * @return the exporter
+     */
+    static MetricsExporter printing(PrintStream out) {
+        return metrics -> {
+            StringBuilder text = new StringBuilder();
+            metrics.forEach((name, value) -> text.append(name).append(' ').append(value).append('\n'));
+            out.print(text);
+            out.flush();
+        };
+    }
+}
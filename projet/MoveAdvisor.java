@@ -0,0 +1,392 @@
+package projet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Suggests where to place a set of tiles, using Monte-Carlo playouts spread over a {@link ForkJoinPool}.
+ * The tiles are placed one at a time: for each step, every legal placement of a remaining tile is evaluated
+ * by random playouts that place the other remaining tiles, and the placement with the best average final
+ * score is kept. Every playout works on its own {@link Board#copy()}, so no board or tile is shared between threads.
+ */
+public class MoveAdvisor {
+
+	/**
+     * The pool running the playouts.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs an advisor running on the common fork/join pool.
+     */
+    public MoveAdvisor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an advisor running on the given pool.
+     *
+     * @param pool the pool running the playouts
+     */
+    public MoveAdvisor(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Finds the best placement sequence for the given tiles.
+     * The board is only read, it must not be modified while the advisor runs.
+     *
+     * @param board the current board
+     * @param tiles the tiles to place, in any order
+     * @param budget the limits of the search
+     * @return the advice, with the placements of the tiles that could be placed
+     */
+    public Advice advise(Board board, List<TileType> tiles, Budget budget) {
+        long start = System.nanoTime();
+        List<TileType> remaining = new ArrayList<>(tiles);
+        List<Placement> sequence = new ArrayList<>();
+        Board current = board.copy();
+        double expectedScore = current.getScore().getTotal();
+        long playouts = 0;
+
+        while (!remaining.isEmpty()) {
+            List<Placement> candidates = candidates(current, remaining);
+            if (candidates.isEmpty()) break;
+
+            int steps = remaining.size();
+            long stepPlayouts = budget.playouts > 0 ? Math.max(1, (budget.playouts - playouts) / steps) : Long.MAX_VALUE;
+            long stepDeadline = budget.nanos > 0
+                    ? System.nanoTime() + Math.max(0, start + budget.nanos - System.nanoTime()) / steps
+                    : Long.MAX_VALUE;
+
+            if (stepPlayouts < candidates.size()) {
+                candidates = sample(candidates, (int) stepPlayouts);
+            }
+            double[] totals = new double[candidates.size()];
+            long[] counts = new long[candidates.size()];
+            long perCandidate = Math.max(1, stepPlayouts / candidates.size());
+            int threshold = Math.max(1, candidates.size() / (pool.getParallelism() * 4));
+            pool.invoke(new Evaluation(current, remaining, candidates, 0, candidates.size(),
+                    threshold, perCandidate, stepDeadline, totals, counts));
+
+            int best = 0;
+            for (int i = 0; i < candidates.size(); i++) {
+                playouts += counts[i];
+                if (totals[i] / counts[i] > totals[best] / counts[best]) best = i;
+            }
+            Placement chosen = candidates.get(best);
+            current.placeTile(chosen.getPosition(), chosen.toTile());
+            remaining.remove(chosen.getType());
+            sequence.add(chosen);
+            expectedScore = totals[best] / counts[best];
+        }
+        return new Advice(sequence, expectedScore, playouts, System.nanoTime() - start, pool.getParallelism());
+    }
+
+    /**
+     * Lists the legal placements of every distinct remaining tile type.
+     *
+     * @param board the board
+     * @param remaining the remaining tiles
+     * @return the candidate placements
+     */
+    private static List<Placement> candidates(Board board, List<TileType> remaining) {
+        EnumSet<TileType> types = EnumSet.copyOf(remaining);
+        List<Placement> candidates = new ArrayList<>();
+        board.legalMoves().filter(p -> types.contains(p.getType())).forEach(candidates::add);
+        return candidates;
+    }
+
+    /**
+     * Draws candidates at random, when the budget of a step cannot give each of them a playout.
+     *
+     * @param candidates the candidate placements
+     * @param n the number of candidates to keep, smaller than their number
+     * @return the kept candidates
+     */
+    private static List<Placement> sample(List<Placement> candidates, int n) {
+        List<Placement> shuffled = new ArrayList<>(candidates);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < n; i++) {
+            Collections.swap(shuffled, i, i + random.nextInt(shuffled.size() - i));
+        }
+        return shuffled.subList(0, n);
+    }
+
+    /**
+     * Plays one random game from a candidate placement and returns its final score.
+     *
+     * @param board the board before the candidate, never modified
+     * @param remaining the remaining tiles, including the candidate's
+     * @param candidate the placement to evaluate
+     * @param random the random generator of the current thread
+     * @return the total score at the end of the playout
+     */
+    private static int playout(Board board, List<TileType> remaining, Placement candidate, ThreadLocalRandom random) {
+        Board copy = board.copy();
+        copy.placeTile(candidate.getPosition(), candidate.toTile());
+        TileType[] rest = new TileType[remaining.size() - 1];
+        int n = 0;
+        boolean skipped = false;
+        for (TileType type : remaining) {
+            if (!skipped && type == candidate.getType()) {
+                skipped = true;
+            } else {
+                rest[n++] = type;
+            }
+        }
+        for (int i = rest.length - 1; i >= 0; i--) {
+            int j = random.nextInt(i + 1);
+            TileType type = rest[j];
+            rest[j] = rest[i];
+            placeRandomly(copy, type, random);
+        }
+        return copy.getScore().getTotal();
+    }
+
+    /**
+     * Places a tile of the given type at a random legal position and orientation, if there is one.
+     *
+     * @param board the board
+     * @param type the type of the tile
+     * @param random the random generator of the current thread
+     */
+    private static void placeRandomly(Board board, TileType type, ThreadLocalRandom random) {
+        long typeMask = 0xFL << RotationTable.index(type, Orientation.NORTH);
+        int size = board.getSize();
+        int total = 0;
+        for (int cell = 0; cell < size * size; cell++) {
+            total += Long.bitCount(board.getCandidates(cell / size, cell % size) & typeMask);
+        }
+        if (total == 0) return;
+        int pick = random.nextInt(total);
+        for (int cell = 0; cell < size * size; cell++) {
+            long mask = board.getCandidates(cell / size, cell % size) & typeMask;
+            int count = Long.bitCount(mask);
+            if (pick < count) {
+                for (; pick > 0; pick--) {
+                    mask &= mask - 1;
+                }
+                Tile tile = new Tile(type);
+                tile.setOrientation(RotationTable.orientationOf(Long.numberOfTrailingZeros(mask)));
+                board.placeTile(Position.of(cell / size, cell % size), tile);
+                return;
+            }
+            pick -= count;
+        }
+    }
+
+    /**
+     * Evaluates a range of candidates, splitting it across the pool.
+     * Each leaf only writes the statistics of its own candidates.
+     */
+    private static class Evaluation extends RecursiveAction {
+
+    	/** The version of the serialized form, never serialized in practice. */
+        private static final long serialVersionUID = 1L;
+
+        /** The board before the step, only read. */
+        private final Board board;
+
+        /** The remaining tiles, only read. */
+        private final List<TileType> remaining;
+
+        /** The candidate placements, only read. */
+        private final List<Placement> candidates;
+
+        /** The first candidate of the range. */
+        private final int from;
+
+        /** The end of the range, exclusive. */
+        private final int to;
+
+        /** The largest range evaluated without splitting. */
+        private final int threshold;
+
+        /** The number of playouts per candidate. */
+        private final long perCandidate;
+
+        /** The {@link System#nanoTime()} after which no new round is started. */
+        private final long deadline;
+
+        /** The sum of the scores of each candidate. */
+        private final double[] totals;
+
+        /** The number of playouts of each candidate. */
+        private final long[] counts;
+
+        Evaluation(Board board, List<TileType> remaining, List<Placement> candidates, int from, int to,
+                int threshold, long perCandidate, long deadline, double[] totals, long[] counts) {
+            this.board = board;
+            this.remaining = remaining;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.perCandidate = perCandidate;
+            this.deadline = deadline;
+            this.totals = totals;
+            this.counts = counts;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Evaluation(board, remaining, candidates, from, middle, threshold, perCandidate, deadline, totals, counts),
+                        new Evaluation(board, remaining, candidates, middle, to, threshold, perCandidate, deadline, totals, counts));
+                return;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            // Chaque candidat reçoit au moins une partie, puis on joue par tours jusqu'au budget
+            for (long round = 0; round < perCandidate; round++) {
+                if (round > 0 && System.nanoTime() > deadline) return;
+                for (int i = from; i < to; i++) {
+                    totals[i] += playout(board, remaining, candidates.get(i), random);
+                    counts[i]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The limits of a search: a number of playouts, a duration, or both.
+     */
+    public static final class Budget {
+
+    	/** The maximum number of playouts, or 0 for no limit. */
+        private final long playouts;
+
+        /** The maximum duration in nanoseconds, or 0 for no limit. */
+        private final long nanos;
+
+        private Budget(long playouts, long nanos) {
+            this.playouts = playouts;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Creates a budget limited to a number of playouts.
+         * The playouts are shared between the tiles to place; when a step cannot give one to each candidate,
+         * the candidates it evaluates are drawn at random. Each tile placed still gets at least one playout.
+         *
+         * @param playouts the maximum number of playouts, must be positive
+         * @return the budget
+         */
+        public static Budget playouts(long playouts) {
+            if (playouts <= 0) throw new IllegalArgumentException("The number of playouts must be positive");
+            return new Budget(playouts, 0);
+        }
+
+        /**
+         * Creates a budget limited to a duration.
+         * Every candidate still gets at least one playout.
+         *
+         * @param duration the maximum duration, must be positive
+         * @return the budget
+         */
+        public static Budget time(Duration duration) {
+            if (duration.isNegative() || duration.isZero()) throw new IllegalArgumentException("The duration must be positive");
+            return new Budget(0, duration.toNanos());
+        }
+
+        /**
+         * Creates a budget limited both by a number of playouts and a duration, whichever is reached first.
+         *
+         * @param playouts the maximum number of playouts, must be positive
+         * @param duration the maximum duration, must be positive
+         * @return the budget
+         */
+        public static Budget of(long playouts, Duration duration) {
+            return new Budget(playouts(playouts).playouts, time(duration).nanos);
+        }
+    }
+
+    /**
+     * The result of a search: the advised placements and the throughput of the playouts.
+     */
+    public static final class Advice {
+
+    	/** The advised placements, in order. */
+        private final List<Placement> placements;
+
+        /** The average final score of the playouts of the last chosen placement. */
+        private final double expectedScore;
+
+        /** The total number of playouts. */
+        private final long playouts;
+
+        /** The duration of the search in nanoseconds. */
+        private final long elapsedNanos;
+
+        /** The parallelism of the pool. */
+        private final int cores;
+
+        Advice(List<Placement> placements, double expectedScore, long playouts, long elapsedNanos, int cores) {
+            this.placements = List.copyOf(placements);
+            this.expectedScore = expectedScore;
+            this.playouts = playouts;
+            this.elapsedNanos = elapsedNanos;
+            this.cores = cores;
+        }
+
+        /**
+         * Returns the advised placements, in the order they should be played.
+         * Tiles that cannot be placed anywhere are left out.
+         *
+         * @return the placements
+         */
+        public List<Placement> getPlacements() {
+            return placements;
+        }
+
+        /**
+         * Returns the average final score of the playouts behind the last advised placement.
+         *
+         * @return the expected score
+         */
+        public double getExpectedScore() {
+            return expectedScore;
+        }
+
+        /**
+         * Returns the number of playouts run.
+         *
+         * @return the number of playouts
+         */
+        public long getPlayouts() {
+            return playouts;
+        }
+
+        /**
+         * Returns the duration of the search.
+         *
+         * @return the elapsed time
+         */
+        public Duration getElapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+
+        /**
+         * Returns the throughput of the search.
+         *
+         * @return the number of playouts per second and per core of the pool
+         */
+        public double getPlayoutsPerSecondPerCore() {
+            return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos / cores;
+        }
+
+        @Override
+        public String toString() {
+            return "Advice" + placements + " expected=" + String.format("%.2f", expectedScore) + " playouts=" + playouts
+                    + String.format(" (%.0f/s/core)", getPlayoutsPerSecondPerCore());
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package projet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Incremental scoring of the highway, railway and station networks of a board.
+ * Every placed tile adds one node per internal network (two for an {@link TileType#OVERPASS}, whose
+ * highway and railway cross without joining, one for any other tile), and the nodes of edges that meet
+ * are merged in a union-find structure. Each root keeps the aggregates of its component, so a placement
+ * costs a handful of unions and the report never needs a flood fill.
+ */
+public final class NetworkScorer {
+
+	/**
+     * Marker for a cell without a tile, or a cell that is not an exit.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The size of the board.
+     */
+    private final int size;
+
+    /**
+     * The first node of the tile in each cell, or {@link #NONE}. Stored in chunks, so large boards only pay for their tiles.
+     */
+    private final ChunkedLongGrid cellNode;
+
+    /**
+     * The cells holding an exit, in increasing order. Never modified, shared by copies.
+     */
+    private final int[] exitCells;
+
+    /**
+     * The outward side of each exit, in the order of {@link #exitCells}. Never modified, shared by copies.
+     */
+    private final int[] exitSides;
+
+    /**
+     * The exits as a bitset of the border slots of {@link #borderSlot(int, int, int)}. Never modified, shared by copies.
+     */
+    private final long[] exitBits;
+
+    /** The parent of each node, a root is its own parent. */
+    private int[] parent;
+
+    /** The number of nodes in the component of each root. */
+    private int[] rank;
+
+    /** The sides covered by each node, one bit per side. */
+    private int[] sides;
+
+    /** The packed connections of the tile of each node. */
+    private int[] signature;
+
+    /** For each root, the number of cells of the component having a highway edge. */
+    private int[] highwayCells;
+
+    /** For each root, the number of cells of the component having a railway edge. */
+    private int[] railwayCells;
+
+    /** For each root, the number of exits connected by the component. */
+    private int[] exits;
+
+    /** The number of allocated nodes. */
+    private int nodeCount;
+
+    /** The number of cells of the largest highway network. */
+    private int longestHighway;
+
+    /** The number of cells of the largest railway network. */
+    private int longestRailway;
+
+    /** The number of edges leading nowhere. */
+    private int openEnds;
+
+    /** The log of the unions, as pairs of (kept root, attached root), to undo them. */
+    private int[] unions;
+
+    /** The number of pairs in {@link #unions}. */
+    private int unionCount;
+
+    /** The state saved before each placement, {@link #FRAME} values per placement. */
+    private int[] frames;
+
+    /** The number of placements in {@link #frames}. */
+    private int frameCount;
+
+    /**
+     * The number of values saved per placement: the union count, the node count, the open ends,
+     * the longest highway, the longest railway and the cell.
+     */
+    private static final int FRAME = 6;
+
+    /**
+     * Constructs a scorer for an empty board.
+     *
+     * @param size the size of the board
+     * @param exitPositions the exit positions, each on the border of the board
+     */
+    public NetworkScorer(int size, Collection<Position> exitPositions) {
+        this.size = size;
+        this.cellNode = new ChunkedLongGrid(size, NONE);
+        int[] cells = new int[exitPositions.size()];
+        int count = 0;
+        for (Position exit : exitPositions) {
+            outwardSide(exit.getRow(), exit.getCol());
+            cells[count++] = exit.getRow() * size + exit.getCol();
+        }
+        this.exitCells = Arrays.stream(cells).sorted().distinct().toArray();
+        this.exitSides = new int[exitCells.length];
+        for (int i = 0; i < exitCells.length; i++) {
+            exitSides[i] = outwardSide(exitCells[i] / size, exitCells[i] % size);
+        }
+        this.exitBits = new long[(4 * size + 63) >>> 6];
+        for (int i = 0; i < exitCells.length; i++) {
+            int slot = borderSlot(exitCells[i] / size, exitCells[i] % size, exitSides[i]);
+            exitBits[slot >>> 6] |= 1L << slot;
+        }
+        int capacity = 16;
+        parent = new int[capacity];
+        rank = new int[capacity];
+        sides = new int[capacity];
+        signature = new int[capacity];
+        highwayCells = new int[capacity];
+        railwayCells = new int[capacity];
+        exits = new int[capacity];
+        unions = new int[capacity * 2];
+        frames = new int[capacity * FRAME];
+    }
+
+    /**
+     * Constructs an independent copy of another scorer.
+     *
+     * @param other the scorer to copy
+     */
+    public NetworkScorer(NetworkScorer other) {
+        this.size = other.size;
+        this.cellNode = new ChunkedLongGrid(other.cellNode);
+        this.exitCells = other.exitCells;
+        this.exitSides = other.exitSides;
+        this.exitBits = other.exitBits;
+        this.parent = other.parent.clone();
+        this.rank = other.rank.clone();
+        this.sides = other.sides.clone();
+        this.signature = other.signature.clone();
+        this.highwayCells = other.highwayCells.clone();
+        this.railwayCells = other.railwayCells.clone();
+        this.exits = other.exits.clone();
+        this.nodeCount = other.nodeCount;
+        this.longestHighway = other.longestHighway;
+        this.longestRailway = other.longestRailway;
+        this.openEnds = other.openEnds;
+        this.unions = other.unions.clone();
+        this.unionCount = other.unionCount;
+        this.frames = other.frames.clone();
+        this.frameCount = other.frameCount;
+    }
+
+    /**
+     * Returns the exit positions.
+     *
+     * @return a new set of the exits, without duplicates
+     */
+    public Set<Position> getExits() {
+        Set<Position> positions = new HashSet<>();
+        for (int cell : exitCells) {
+            positions.add(Position.of(cell / size, cell % size));
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the side of a border cell that faces outside the board.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the outward side
+     * @throws IllegalArgumentException if the cell is not on the border
+     */
+    private int outwardSide(int row, int col) {
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            throw new IllegalArgumentException("Exit (" + row + ", " + col + ") is outside the board");
+        }
+        int side = borderSide(row, col);
+        if (side == NONE) throw new IllegalArgumentException("Exit (" + row + ", " + col + ") is not on the border");
+        return side;
+    }
+
+    /**
+     * Returns the side of a cell facing outside the board, the first of North, South, West and East for a corner.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the outward side, or {@link #NONE} for a cell inside the board
+     */
+    private int borderSide(int row, int col) {
+        if (row == 0) return ConnectionSignature.NORTH;
+        if (row == size - 1) return ConnectionSignature.SOUTH;
+        if (col == 0) return ConnectionSignature.WEST;
+        if (col == size - 1) return ConnectionSignature.EAST;
+        return NONE;
+    }
+
+    /**
+     * Returns the slot of a border cell in {@link #exitBits}: {@code size} slots per side, by column or row.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param side the outward side of the cell
+     * @return the slot
+     */
+    private int borderSlot(int row, int col, int side) {
+        return side * size + (side == ConnectionSignature.NORTH || side == ConnectionSignature.SOUTH ? col : row);
+    }
+
+    /**
+     * Returns the outward side of a cell if it holds an exit, with one bit test.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the outward side, or {@link #NONE} if the cell is not an exit
+     */
+    private int exitSide(int row, int col) {
+        int side = borderSide(row, col);
+        if (side == NONE) return NONE;
+        int slot = borderSlot(row, col, side);
+        return (exitBits[slot >>> 6] & 1L << slot) != 0 ? side : NONE;
+    }
+
+    /**
+     * Records a tile placed on the board and merges its networks with the neighbouring ones.
+     * The placement must have been validated by the board.
+     *
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @param type the type of the tile
+     * @param tileSignature the packed connections of the tile
+     */
+    public void place(int row, int col, TileType type, int tileSignature) {
+        int cell = row * size + col;
+        saveFrame(cell);
+        int first = nodeCount;
+        int exit = exitSide(row, col);
+        if (type == TileType.OVERPASS) {
+            newNode(exit, tileSignature, 0b0101);
+            newNode(exit, tileSignature, 0b1010);
+        } else {
+            newNode(exit, tileSignature, 0b1111);
+        }
+        cellNode.set(row, col, first);
+
+        for (int side = 0; side < 4; side++) {
+            if (ConnectionSignature.edgeCode(tileSignature, side) == 0) continue;
+            int neighbour = neighbour(row, col, side);
+            if (neighbour == NONE) {
+                if (exit != side) openEnds++;
+                continue;
+            }
+            int other = (int) cellNode.get(neighbour / size, neighbour % size);
+            int opposite = ConnectionSignature.opposite(side);
+            if (other == NONE || ConnectionSignature.edgeCode(signature[other], opposite) == 0) {
+                openEnds++;
+                continue;
+            }
+            // L'extrémité du voisin était ouverte, elle est maintenant reliée
+            openEnds--;
+            union(nodeOf(first, side), nodeOf(other, opposite));
+        }
+    }
+
+    /**
+     * Saves the state that a placement is about to change.
+     *
+     * @param cell the cell of the placement
+     */
+    private void saveFrame(int cell) {
+        if ((frameCount + 1) * FRAME > frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
+        }
+        int f = frameCount++ * FRAME;
+        frames[f] = unionCount;
+        frames[f + 1] = nodeCount;
+        frames[f + 2] = openEnds;
+        frames[f + 3] = longestHighway;
+        frames[f + 4] = longestRailway;
+        frames[f + 5] = cell;
+    }
+
+    /**
+     * Undoes the last placement: its unions are reverted in reverse order, and its nodes are freed.
+     * Since paths are never compressed, this restores the exact previous state.
+     *
+     * @throws IllegalStateException if there is no placement to undo
+     */
+    public void undo() {
+        if (frameCount == 0) throw new IllegalStateException("No placement to undo");
+        int f = --frameCount * FRAME;
+        for (int u = unionCount - 1; u >= frames[f]; u--) {
+            int kept = unions[u * 2];
+            int attached = unions[u * 2 + 1];
+            parent[attached] = attached;
+            rank[kept] -= rank[attached];
+            highwayCells[kept] -= highwayCells[attached];
+            railwayCells[kept] -= railwayCells[attached];
+            exits[kept] -= exits[attached];
+        }
+        unionCount = frames[f];
+        nodeCount = frames[f + 1];
+        openEnds = frames[f + 2];
+        longestHighway = frames[f + 3];
+        longestRailway = frames[f + 4];
+        cellNode.set(frames[f + 5] / size, frames[f + 5] % size, NONE);
+    }
+
+    /**
+     * Allocates the node of one internal network of a tile.
+     *
+     * @param exit the outward side of the cell if it is an exit, or {@link #NONE}
+     * @param tileSignature the packed connections of the tile
+     * @param sideMask the sides that may belong to the node
+     */
+    private void newNode(int exit, int tileSignature, int sideMask) {
+        if (nodeCount == parent.length) grow();
+        int node = nodeCount++;
+        int covered = 0;
+        boolean highway = false;
+        boolean railway = false;
+        int exitCount = 0;
+        for (int side = 0; side < 4; side++) {
+            int edge = ConnectionSignature.edgeCode(tileSignature, side);
+            if ((sideMask & 1 << side) == 0 || edge == 0) continue;
+            covered |= 1 << side;
+            highway |= edge == ConnectionType.HIGHWAY.ordinal();
+            railway |= edge == ConnectionType.RAILWAY.ordinal();
+            if (exit == side) exitCount++;
+        }
+        parent[node] = node;
+        rank[node] = 1;
+        sides[node] = covered;
+        signature[node] = tileSignature;
+        highwayCells[node] = highway ? 1 : 0;
+        railwayCells[node] = railway ? 1 : 0;
+        exits[node] = exitCount;
+        longestHighway = Math.max(longestHighway, highwayCells[node]);
+        longestRailway = Math.max(longestRailway, railwayCells[node]);
+    }
+
+    /**
+     * Doubles the capacity of the node arrays.
+     */
+    private void grow() {
+        int capacity = parent.length * 2;
+        parent = Arrays.copyOf(parent, capacity);
+        rank = Arrays.copyOf(rank, capacity);
+        sides = Arrays.copyOf(sides, capacity);
+        signature = Arrays.copyOf(signature, capacity);
+        highwayCells = Arrays.copyOf(highwayCells, capacity);
+        railwayCells = Arrays.copyOf(railwayCells, capacity);
+        exits = Arrays.copyOf(exits, capacity);
+    }
+
+    /**
+     * Returns the node of a tile covering a given side.
+     *
+     * @param first the first node of the tile
+     * @param side the side
+     * @return the node covering that side
+     */
+    private int nodeOf(int first, int side) {
+        return (sides[first] & 1 << side) != 0 ? first : first + 1;
+    }
+
+    /**
+     * Returns the neighbouring cell on a given side.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param side the side
+     * @return the index of the neighbouring cell, or {@link #NONE} outside the board
+     */
+    private int neighbour(int row, int col, int side) {
+        switch (side) {
+            case ConnectionSignature.NORTH:
+                return row > 0 ? (row - 1) * size + col : NONE;
+            case ConnectionSignature.EAST:
+                return col < size - 1 ? row * size + col + 1 : NONE;
+            case ConnectionSignature.SOUTH:
+                return row < size - 1 ? (row + 1) * size + col : NONE;
+            default:
+                return col > 0 ? row * size + col - 1 : NONE;
+        }
+    }
+
+    /**
+     * Finds the root of a node. Paths are not compressed, union by size keeps them logarithmic.
+     *
+     * @param node the node
+     * @return the root of its component
+     */
+    private int find(int node) {
+        while (parent[node] != node) {
+            node = parent[node];
+        }
+        return node;
+    }
+
+    /**
+     * Merges the components of two nodes, attaching the smaller one under the larger one.
+     *
+     * @param a the first node
+     * @param b the second node
+     */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) return;
+        if (rank[rootA] < rank[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        if ((unionCount + 1) * 2 > unions.length) {
+            unions = Arrays.copyOf(unions, unions.length * 2);
+        }
+        unions[unionCount * 2] = rootA;
+        unions[unionCount * 2 + 1] = rootB;
+        unionCount++;
+        parent[rootB] = rootA;
+        rank[rootA] += rank[rootB];
+        highwayCells[rootA] += highwayCells[rootB];
+        railwayCells[rootA] += railwayCells[rootB];
+        exits[rootA] += exits[rootB];
+        longestHighway = Math.max(longestHighway, highwayCells[rootA]);
+        longestRailway = Math.max(longestRailway, railwayCells[rootA]);
+    }
+
+    /**
+     * Builds a report of the current score. Only the exit cells are visited.
+     *
+     * @return the score report
+     */
+    public ScoreReport report() {
+        int[] roots = new int[exitCells.length];
+        int[] counts = new int[exitCells.length];
+        int networks = 0;
+        for (int e = 0; e < exitCells.length; e++) {
+            int first = (int) cellNode.get(exitCells[e] / size, exitCells[e] % size);
+            if (first == NONE) continue;
+            int side = exitSides[e];
+            if (ConnectionSignature.edgeCode(signature[first], side) == 0) continue;
+            int root = find(nodeOf(first, side));
+            boolean seen = false;
+            for (int i = 0; i < networks; i++) {
+                seen |= roots[i] == root;
+            }
+            if (!seen) {
+                roots[networks] = root;
+                counts[networks++] = exits[root];
+            }
+        }
+        int[] exitNetworks = Arrays.copyOf(counts, networks);
+        Arrays.sort(exitNetworks);
+        for (int i = 0, j = networks - 1; i < j; i++, j--) {
+            int swap = exitNetworks[i];
+            exitNetworks[i] = exitNetworks[j];
+            exitNetworks[j] = swap;
+        }
+        return new ScoreReport(exitNetworks, longestHighway, longestRailway, openEnds);
+    }
+
+    /**
+     * Returns the number of edges leading nowhere.
+     *
+     * @return the open ends penalty
+     */
+    public int getOpenEnds() {
+        return openEnds;
+    }
+}
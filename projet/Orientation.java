@@ -21,6 +21,9 @@ public enum Orientation {
 	/** The angle in degrees associated with the orientation. */
     private final int degrees;
 
+    /** Cached values, indexed by quarter turns, to avoid the copy made by {@link #values()}. */
+    private static final Orientation[] VALUES = values();
+
     /**
      * Constructs an Orientation enum with the specified angle in degrees.
      * 
@@ -42,16 +45,25 @@ public enum Orientation {
     /**
      * Returns the {@code Orientation} corresponding to the specified angle in degrees.
      * The angle is normalized to be within the range [0, 360).
+     * Angles that are not a multiple of 90 give {@link #NORTH}.
      * 
      * @param degrees The angle in degrees.
      * @return The {@code Orientation} corresponding to the given angle.
      */
     public static Orientation fromDegrees(int degrees) {
         degrees = ((degrees % 360) + 360) % 360;
-        for (Orientation o : values()) {
-            if (o.degrees == degrees) return o;
-        }
-        return NORTH;
+        if (degrees % 90 != 0) return NORTH;
+        return VALUES[degrees / 90];
+    }
+
+    /**
+     * Returns the {@code Orientation} reached after a number of 90-degree clockwise rotations from {@link #NORTH}.
+     * 
+     * @param quarterTurns The number of quarter turns, negative values turning counter-clockwise.
+     * @return The {@code Orientation} after that many rotations.
+     */
+    public static Orientation fromQuarterTurns(int quarterTurns) {
+        return VALUES[quarterTurns & 3];
     }
 
     /**
@@ -60,6 +72,6 @@ public enum Orientation {
      * @return The new {@code Orientation} after rotation.
      */
     public Orientation rotate() {
-        return fromDegrees(degrees + 90);
+        return VALUES[(ordinal() + 1) & 3];
     }
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package projet;
+
+/**
+ * A compact alternative to {@link Board} for simulation loops.
+ * Each cell stores its four edges as a packed {@link ConnectionSignature} byte inside one {@code long} per row,
+ * and occupancy is tracked in a single {@code long} bitmask. Placements are validated with mask-and-compare
+ * on those primitives, without reading the connections of neighbouring tiles and without allocating.
+ * The edges of a tile are captured when it is placed, and checked with the lookup table of its {@link ConnectionRules}.
+ */
+public class PackedBoard {
+
+	/**
+     * The size of the board, the same as {@link Board#SIZE}.
+     */
+    public static final int SIZE = Board.SIZE;
+
+    /**
+     * The packed edges of each row, 8 bits per cell: the cell in column {@code c} uses bits {@code 8c} to {@code 8c + 7}.
+     */
+    private final long[] rows;
+
+    /**
+     * The occupancy bitmask, bit {@code row * SIZE + col} is set when the cell holds a tile.
+     */
+    private long occupied;
+
+    /**
+     * The placed tiles, indexed by {@code row * SIZE + col}, only used to answer {@link #getTileAt(int, int)}.
+     */
+    private final Tile[] tiles;
+
+    /**
+     * The rules deciding which edges may face each other.
+     */
+    private final ConnectionRules rules;
+
+    /**
+     * Constructs a new empty {@link PackedBoard}, played with the standard rules.
+     */
+    public PackedBoard() {
+        this(ConnectionRules.standard());
+    }
+
+    /**
+     * Constructs a new empty {@link PackedBoard}, played with a variant of the connection rules.
+     *
+     * @param rules the rules deciding which edges may face each other.
+     */
+    public PackedBoard(ConnectionRules rules) {
+        this.rules = rules;
+        rows = new long[SIZE];
+        tiles = new Tile[SIZE * SIZE];
+    }
+
+    /**
+     * Checks if placing a tile at the given position is valid.
+     * Behaves exactly like {@link Board#isValidPlacement(Position, Tile)}.
+     *
+     * @param pos the position to check.
+     * @param tile the tile to place.
+     * @return {@code true} if the placement is valid, otherwise {@code false}.
+     */
+    public boolean isValidPlacement(Position pos, Tile tile) {
+        return isValidPlacement(pos.getRow(), pos.getCol(), tile.getSignature());
+    }
+
+    /**
+     * Checks if placing a tile with the given signature at the given cell is valid.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @param signature the packed connections of the tile.
+     * @return {@code true} if the placement is valid, otherwise {@code false}.
+     */
+    public boolean isValidPlacement(int row, int col, int signature) {
+        if (row < 0 || row >= SIZE || col < 0 || col >= SIZE) return false;
+        if ((occupied & 1L << (row * SIZE + col)) != 0) return false;
+        return rules.isCompatible(signature, facingEdges(row, col), neighbourSides(row, col));
+    }
+
+    /**
+     * Builds the packed edges facing each side of a cell: the South edge of the northern neighbour in the North field,
+     * the West edge of the eastern neighbour in the East field, and so on. Missing or empty neighbours contribute 0.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the facing edges in {@link ConnectionSignature} layout.
+     */
+    private int facingEdges(int row, int col) {
+        int facing = 0;
+        if (row > 0) {
+            facing |= (cellAt(row - 1, col) >>> 4) & 3;
+        }
+        if (col < SIZE - 1) {
+            facing |= ((cellAt(row, col + 1) >>> 6) & 3) << 2;
+        }
+        if (row < SIZE - 1) {
+            facing |= (cellAt(row + 1, col) & 3) << 4;
+        }
+        if (col > 0) {
+            facing |= ((cellAt(row, col - 1) >>> 2) & 3) << 6;
+        }
+        return facing;
+    }
+
+    /**
+     * Builds the mask of the sides of a cell that have a neighbouring tile, bit {@code side} for each.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the mask of the occupied neighbours.
+     */
+    private int neighbourSides(int row, int col) {
+        int cell = row * SIZE + col;
+        int sides = 0;
+        if (row > 0) {
+            sides |= (int) (occupied >>> (cell - SIZE)) & 1;
+        }
+        if (col < SIZE - 1) {
+            sides |= ((int) (occupied >>> (cell + 1)) & 1) << 1;
+        }
+        if (row < SIZE - 1) {
+            sides |= ((int) (occupied >>> (cell + SIZE)) & 1) << 2;
+        }
+        if (col > 0) {
+            sides |= ((int) (occupied >>> (cell - 1)) & 1) << 3;
+        }
+        return sides;
+    }
+
+    /**
+     * Returns the packed signature stored in a cell, 0 if the cell is empty.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the packed signature of the cell.
+     */
+    private int cellAt(int row, int col) {
+        return (int) (rows[row] >>> (col << 3)) & 0xFF;
+    }
+
+    /**
+     * Places a tile on the board at the given position.
+     * Behaves exactly like {@link Board#placeTile(Position, Tile)}.
+     *
+     * @param pos the position where to place the tile.
+     * @param tile the tile to place.
+     * @return {@code true} if the tile was successfully placed, otherwise {@code false}.
+     */
+    public boolean placeTile(Position pos, Tile tile) {
+        int row = pos.getRow();
+        int col = pos.getCol();
+        int signature = tile.getSignature();
+        if (!isValidPlacement(row, col, signature)) return false;
+        rows[row] |= (long) signature << (col << 3);
+        occupied |= 1L << (row * SIZE + col);
+        tiles[row * SIZE + col] = tile.copy();
+        return true;
+    }
+
+    /**
+     * Gets the tile at a given position on the board.
+     *
+     * @param row the row of the tile.
+     * @param col the column of the tile.
+     * @return a copy of the tile at the specified position, or {@code null} if the cell is empty.
+     * @throws ArrayIndexOutOfBoundsException if the position is outside the board, as with {@link Board#getTileAt(int, int)}.
+     */
+    public Tile getTileAt(int row, int col) {
+        if (row < 0 || row >= SIZE || col < 0 || col >= SIZE) {
+            throw new ArrayIndexOutOfBoundsException("Position (" + row + ", " + col + ") is outside the board");
+        }
+        Tile tile = tiles[row * SIZE + col];
+        return tile == null ? null : tile.copy();
+    }
+
+    /**
+     * Returns the packed signature of the tile at a given cell.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the packed signature, or 0 if the cell is empty.
+     */
+    public int getSignatureAt(int row, int col) {
+        return cellAt(row, col);
+    }
+
+    /**
+     * Checks whether a cell holds a tile.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return {@code true} if the cell is occupied, otherwise {@code false}.
+     */
+    public boolean isOccupied(int row, int col) {
+        return (occupied & 1L << (row * SIZE + col)) != 0;
+    }
+}
@@ -0,0 +1,130 @@
+package projet;
+
+import java.util.Objects;
+
+/**
+ * Represents the placement of a tile: a position on the board, a tile type and an orientation.
+ * Placements are immutable and can be shared freely, unlike {@link Tile} objects.
+ */
+public final class Placement {
+
+	/**
+     * The position where the tile is placed.
+     */
+    private final Position position;
+
+    /**
+     * The type of the placed tile.
+     */
+    private final TileType type;
+
+    /**
+     * The orientation of the placed tile.
+     */
+    private final Orientation orientation;
+
+    /**
+     * Constructs a placement.
+     *
+     * @param position the position where the tile is placed
+     * @param type the type of the tile
+     * @param orientation the orientation of the tile
+     */
+    public Placement(Position position, TileType type, Orientation orientation) {
+        this.position = Objects.requireNonNull(position);
+        this.type = Objects.requireNonNull(type);
+        this.orientation = Objects.requireNonNull(orientation);
+    }
+
+    /**
+     * Constructs a placement from the arguments used by {@link GameManager#placeTile(TileType, String, int)}.
+     *
+     * @param type the type of the tile
+     * @param position the position in board notation (e.g., "A1")
+     * @param rotation the rotation of the tile in degrees (a multiple of 90)
+     */
+    public Placement(TileType type, String position, int rotation) {
+        this(Position.parse(position), type, Orientation.fromQuarterTurns(Math.max(rotation / 90, 0)));
+    }
+
+    /**
+     * Creates a new tile of this placement's type, rotated to this placement's orientation.
+     *
+     * @return the new tile
+     */
+    public Tile toTile() {
+        Tile tile = new Tile(type);
+        tile.setOrientation(orientation);
+        return tile;
+    }
+
+    /**
+     * Gets the position where the tile is placed.
+     *
+     * @return the position
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the type of the placed tile.
+     *
+     * @return the tile type
+     */
+    public TileType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the orientation of the placed tile.
+     *
+     * @return the orientation
+     */
+    public Orientation getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Gets the rotation of the placed tile in degrees.
+     *
+     * @return the rotation (0, 90, 180 or 270)
+     */
+    public int getRotation() {
+        return orientation.getDegrees();
+    }
+
+    /**
+     * Checks if two placements are equal based on their position, type and orientation.
+     *
+     * @param o the object to compare to
+     * @return true if the two placements are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Placement placement = (Placement) o;
+        return position.equals(placement.position) && type == placement.type && orientation == placement.orientation;
+    }
+
+    /**
+     * Returns a hash code for the Placement.
+     *
+     * @return the hash code of the Placement
+     */
+    @Override
+    public int hashCode() {
+        return (position.hashCode() * 31 + type.hashCode()) * 31 + orientation.hashCode();
+    }
+
+    /**
+     * Returns the placement as "TYPE@A1/90".
+     *
+     * @return a readable form of the placement
+     */
+    @Override
+    public String toString() {
+        return type + "@" + position.toBoardNotation() + "/" + getRotation();
+    }
+}
@@ -1,8 +1,9 @@
 package projet;
-import java.util.Objects;
 
 /**
  * Represents a position on the game board using a row and column.
+ * Positions are immutable: {@link #of(int, int)} and {@link #parse(String, int)} return shared instances
+ * for the cells of boards up to {@link #CACHED} x {@link #CACHED}, so the placement path allocates none.
  */
 public class Position {
 	
@@ -18,6 +19,22 @@ public class Position {
      */
     private final int col;
 
+    /**
+     * The number of rows and columns whose positions are pre-allocated.
+     */
+    public static final int CACHED = 64;
+
+    /**
+     * The shared positions, indexed by {@code row * CACHED + col}.
+     */
+    private static final Position[] CACHE = new Position[CACHED * CACHED];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new Position(i / CACHED, i % CACHED);
+        }
+    }
+
     /**
      * Constructs a Position using row and column values.
      *
@@ -29,6 +46,71 @@ public class Position {
         this.col = col;
     }
 
+    /**
+     * Returns the position of a cell, a shared instance when the cell is in the first {@link #CACHED} rows and columns.
+     *
+     * @param row the row index (0-based)
+     * @param col the column index (0-based)
+     * @return the position
+     */
+    public static Position of(int row, int col) {
+        if (row >= 0 && row < CACHED && col >= 0 && col < CACHED) {
+            return CACHE[row * CACHED + col];
+        }
+        return new Position(row, col);
+    }
+
+    /**
+     * Returns the position of a cell from its flat index on a board.
+     *
+     * @param cell the index {@code row * size + col} of the cell
+     * @param size the size of the board
+     * @return the position
+     */
+    public static Position fromIndex(int cell, int size) {
+        return of(cell / size, cell % size);
+    }
+
+    /**
+     * Returns the flat index of the position on a board.
+     *
+     * @param size the size of the board
+     * @return the index {@code row * size + col}
+     */
+    public int toIndex(int size) {
+        return row * size + col;
+    }
+
+    /**
+     * Returns the position of a notation on the standard board, without allocating it.
+     *
+     * @param positionNotation the notation of the position (e.g., "A1", "B3")
+     * @return the position
+     * @throws IllegalArgumentException if the notation is not letters followed by digits
+     */
+    public static Position parse(String positionNotation) {
+        return parse(positionNotation, Board.SIZE);
+    }
+
+    /**
+     * Returns the position of a notation on a board of a given size, a shared instance when it is in the cache.
+     *
+     * @param positionNotation the notation of the position, as in {@link #Position(String, int)}
+     * @param size the size of the board
+     * @return the position
+     * @throws IllegalArgumentException if the notation is not letters followed by digits
+     */
+    public static Position parse(String positionNotation, int size) {
+        // Cas courant : une lettre et un chiffre, lus sans boucle
+        if (positionNotation.length() == 2) {
+            int col = positionNotation.charAt(0) - 'A';
+            int number = positionNotation.charAt(1) - '0';
+            if (col >= 0 && col < 26 && number >= 0 && number <= 9) return of(size - number, col);
+        }
+        Position parsed = new Position(positionNotation, size);
+        return of(parsed.row, parsed.col);
+    }
+
     /**
      * Constructs a Position from a string notation (e.g., "A1", "B3").
      * The string is assumed to follow algebraic board notation.
@@ -36,8 +118,35 @@ public class Position {
      * @param positionNotation a string representing the position in board notation (e.g., "A1", "B3")
      */
     public Position(String positionNotation) {
-        this.col = positionNotation.charAt(0) - 'A';
-        this.row = 6 - (positionNotation.charAt(1) - '1');
+        this(positionNotation, Board.SIZE);
+    }
+
+    /**
+     * Constructs a Position from its notation on a board of a given size.
+     * Columns are letters counted in bijective base 26 ("A" to "Z", then "AA", "AB"...), rows are numbers
+     * counted from 1 on the bottom row, so "AB120" is column 27 of the 120th row from the bottom.
+     *
+     * @param positionNotation the notation of the position
+     * @param size the size of the board
+     * @throws IllegalArgumentException if the notation is not letters followed by digits
+     */
+    public Position(String positionNotation, int size) {
+        int letters = 0;
+        int column = 0;
+        while (letters < positionNotation.length() && positionNotation.charAt(letters) >= 'A' && positionNotation.charAt(letters) <= 'Z') {
+            column = column * 26 + positionNotation.charAt(letters++) - 'A' + 1;
+        }
+        if (letters == 0 || letters == positionNotation.length()) {
+            throw new IllegalArgumentException("Invalid position notation: " + positionNotation);
+        }
+        int number = 0;
+        for (int i = letters; i < positionNotation.length(); i++) {
+            char c = positionNotation.charAt(i);
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Invalid position notation: " + positionNotation);
+            number = number * 10 + c - '0';
+        }
+        this.col = column - 1;
+        this.row = size - number;
     }
 
     /**
@@ -46,7 +155,21 @@ public class Position {
      * @return the position in board notation as a string
      */
     public String toBoardNotation() {
-        return String.format("%c%d", (char)('A' + col), 7 - row);
+        return toBoardNotation(Board.SIZE);
+    }
+
+    /**
+     * Converts the Position to its notation on a board of a given size, the inverse of {@link #Position(String, int)}.
+     *
+     * @param size the size of the board
+     * @return the position in board notation as a string
+     */
+    public String toBoardNotation(int size) {
+        StringBuilder letters = new StringBuilder();
+        for (int n = col + 1; n > 0; n = (n - 1) / 26) {
+            letters.append((char) ('A' + (n - 1) % 26));
+        }
+        return letters.reverse().append(size - row).toString();
     }
 
     /**
@@ -70,7 +193,7 @@ public class Position {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        return 31 * row + col;
     }
     
     /**
@@ -0,0 +1,942 @@
+package projet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exact solver of the daily puzzle: place every tile of a fixed multiset on an empty standard board
+ * so that the final score is the highest possible.
+ * <p>
+ * The search is a branch and bound that grows the networks one edge at a time. Every undecided cell keeps a domain,
+ * the bitmask of the combinations of {@link RotationTable} that the rules, its neighbours and the remaining tiles
+ * still allow. The search picks the open end whose cell has the fewest combinations able to connect to it, then
+ * either connects a tile to it or leaves it open for good, which removes those combinations from the cell's domain.
+ * The use of each exit is decided first. When no end is left to connect, a new network is started at its lowest
+ * cell, so that each layout is built once and not once per order of its networks. A node is cut as soon as the
+ * remaining tiles no longer fit in the cells whose domain is not empty, or when {@link State#upperBound()}, which
+ * never underestimates the best score reachable from it, does not beat the best layout found so far. The search
+ * starts from the best of a few greedy games, and its first levels are split into fork/join tasks, which only share
+ * the best layout.
+ * <p>
+ * Puzzles of up to about eight tiles are usually solved in well under a second. The search space grows quickly
+ * beyond that, so a time limit can be given, after which the best layout found so far is returned.
+ */
+public final class PuzzleSolver {
+
+	/**
+     * The number of cells of the standard board, which fit in the bits of a {@code long}.
+     */
+    private static final int CELLS = Board.SIZE * Board.SIZE;
+
+    /**
+     * The depth down to which the children of a node are forked as separate tasks.
+     */
+    private static final int SPLIT_DEPTH = 2;
+
+    /**
+     * The number of greedy games played to find the first layout.
+     */
+    private static final int SEED_GAMES = 64;
+
+    /**
+     * The connection types.
+     */
+    private static final ConnectionType[] CONNECTIONS = ConnectionType.values();
+
+    /**
+     * The packed connections of each combination.
+     */
+    private static final int[] SIGNATURES = new int[RotationTable.COMBINATIONS];
+
+    /**
+     * The combinations that differ from every lower orientation of the same type, so that symmetric tiles,
+     * such as a straight turned by half a turn, are only tried once.
+     */
+    private static final long DISTINCT;
+
+    /**
+     * For each side and connection type, indexed by {@code side << 2 | ordinal}, the combinations having exactly
+     * that connection on that side.
+     */
+    private static final long[] SIDE_CONNECTION = new long[16];
+
+    /**
+     * The number of edges of each connection type of each tile type, indexed by {@code ordinal << 2 | connection}.
+     */
+    private static final int[] EDGES = new int[TileType.values().length << 2];
+
+    /**
+     * The sides having each connection type, one bit per side, for each tile type and connection type, indexed like
+     * {@link #EDGES}.
+     */
+    private static final int[] SIDES = new int[TileType.values().length << 2];
+
+    /**
+     * For each set of sides, one bit per side, and each number of them, the most pairs of neighbouring sides
+     * among that many of them: the most corners of cycles that a tile can make with that many connected edges.
+     */
+    private static final int[][] CORNERS = new int[16][5];
+
+    /**
+     * The cost, in unconnected edges, of each segment of the hulls of {@link #HULLS}, by decreasing gain per edge.
+     */
+    private static final int[] SEGMENT_COST;
+
+    /**
+     * The gain of each segment of the hulls of {@link #HULLS}, in the units of {@link #slack(int, int, int)}.
+     */
+    private static final int[] SEGMENT_GAIN;
+
+    /**
+     * For each variant of {@link #slack(int, int, int)} and each set of connectable sides of a tile, the segments
+     * of the upper hull of the gains of leaving its edges unconnected, by index in {@link #SEGMENT_COST}.
+     */
+    private static final int[][][] HULLS = new int[2][16][];
+
+    /**
+     * The outward side of each cell of the board, or -1 for a cell that is not an exit.
+     */
+    private static final int[] EXIT_SIDE = new int[CELLS];
+
+    /**
+     * The exit cells of the standard board.
+     */
+    private static final int[] EXIT_CELLS;
+
+    /**
+     * The fewest tiles of a network joining two exits: those of a shortest path between the two closest exits.
+     */
+    private static final int EXIT_SPAN;
+
+    static {
+        long distinct = 0;
+        for (int combination = 0; combination < RotationTable.COMBINATIONS; combination++) {
+            int signature = RotationTable.signature(RotationTable.typeOf(combination), RotationTable.orientationOf(combination));
+            SIGNATURES[combination] = signature;
+            boolean repeated = false;
+            for (int lower = combination & ~3; lower < combination; lower++) {
+                repeated |= SIGNATURES[lower] == signature;
+            }
+            if (!repeated) distinct |= 1L << combination;
+            for (int side = 0; side < 4; side++) {
+                SIDE_CONNECTION[side << 2 | ConnectionSignature.edgeCode(signature, side)] |= 1L << combination;
+            }
+            if ((combination & 3) == 0) {
+                for (int side = 0; side < 4; side++) {
+                    int edge = ConnectionSignature.edgeCode(signature, side);
+                    EDGES[combination | edge]++;
+                    SIDES[combination | edge] |= 1 << side;
+                }
+            }
+        }
+        DISTINCT = distinct;
+        Arrays.fill(EXIT_SIDE, -1);
+        int span = Integer.MAX_VALUE;
+        for (Position exit : Board.defaultExits(Board.SIZE)) {
+            int row = exit.getRow();
+            EXIT_SIDE[exit.toIndex(Board.SIZE)] = row == 0 ? ConnectionSignature.NORTH
+                    : row == Board.SIZE - 1 ? ConnectionSignature.SOUTH
+                    : exit.getCol() == 0 ? ConnectionSignature.WEST : ConnectionSignature.EAST;
+            for (Position other : Board.defaultExits(Board.SIZE)) {
+                if (other.equals(exit)) continue;
+                span = Math.min(span, Math.abs(row - other.getRow()) + Math.abs(exit.getCol() - other.getCol()) + 1);
+            }
+        }
+        EXIT_SPAN = span;
+        EXIT_CELLS = Board.defaultExits(Board.SIZE).stream().mapToInt(exit -> exit.toIndex(Board.SIZE)).sorted().toArray();
+        for (int subset = 0; subset < 16; subset++) {
+            int pairs = Integer.bitCount(subset & (subset >>> 1 | subset << 3));
+            for (int sides = subset; sides < 16; sides = sides + 1 | subset) {
+                CORNERS[sides][Integer.bitCount(subset)] = Math.max(CORNERS[sides][Integer.bitCount(subset)], pairs);
+            }
+        }
+        List<Integer> segments = new ArrayList<>();
+        for (int variant = 0; variant < 2; variant++) {
+            for (int sides = 0; sides < 16; sides++) {
+                // Enveloppe concave des points (bords laissés, gain) en partant de tous les bords raccordés
+                int top = Integer.bitCount(sides);
+                List<Integer> hull = new ArrayList<>();
+                int cost = 0;
+                int gain = 0;
+                while (cost < top) {
+                    int bestCost = 0;
+                    int bestGain = 0;
+                    for (int linked = top - cost - 1; linked >= 0; linked--) {
+                        int c = top - linked - cost;
+                        int g = slack(sides, top, variant) - slack(sides, linked, variant) - gain;
+                        if (bestCost == 0 || g * bestCost > bestGain * c) {
+                            bestCost = c;
+                            bestGain = g;
+                        }
+                    }
+                    if (bestGain <= 0) break;
+                    hull.add(bestCost << 8 | bestGain);
+                    if (!segments.contains(bestCost << 8 | bestGain)) segments.add(bestCost << 8 | bestGain);
+                    cost += bestCost;
+                    gain += bestGain;
+                }
+                HULLS[variant][sides] = hull.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        segments.sort((a, b) -> Integer.compare((b & 0xFF) * (a >>> 8), (a & 0xFF) * (b >>> 8)));
+        SEGMENT_COST = segments.stream().mapToInt(segment -> segment >>> 8).toArray();
+        SEGMENT_GAIN = segments.stream().mapToInt(segment -> segment & 0xFF).toArray();
+        for (int[][] hulls : HULLS) {
+            for (int[] hull : hulls) {
+                for (int i = 0; i < hull.length; i++) {
+                    hull[i] = segments.indexOf(hull[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The pool running the search.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a solver running on the common fork/join pool.
+     */
+    public PuzzleSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a solver running on the given pool.
+     *
+     * @param pool the pool running the search
+     */
+    public PuzzleSolver(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Finds a layout of the tiles with the highest score.
+     *
+     * @param tiles the tiles of the puzzle, in any order
+     * @return the best layout, or a solution without placements if the tiles cannot all be placed
+     * @throws IllegalArgumentException if there are more tiles than cells
+     */
+    public Solution solve(List<TileType> tiles) {
+        return solve(tiles, null);
+    }
+
+    /**
+     * Finds a layout of the tiles with the highest score, or the best one found within a time limit.
+     *
+     * @param tiles the tiles of the puzzle, in any order
+     * @param limit the longest time to search, or {@code null} to search until the best layout is proven
+     * @return the best layout found, or a solution without placements if none was found
+     * @throws IllegalArgumentException if there are more tiles than cells
+     */
+    public Solution solve(List<TileType> tiles, Duration limit) {
+        if (tiles.size() > CELLS) throw new IllegalArgumentException("Too many tiles for the board: " + tiles.size());
+        long start = System.nanoTime();
+        Incumbent incumbent = new Incumbent(start, limit == null ? Long.MAX_VALUE : limit.toNanos());
+        seed(tiles, incumbent);
+        pool.invoke(new Search(new State(tiles), 0, incumbent));
+        Best best = incumbent.best.get();
+        return new Solution(best.placements, best.score, !incumbent.expired, incumbent.nodes.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Finds good first layouts with greedy games, so the search starts with a tight bound.
+     *
+     * @param tiles the tiles of the puzzle
+     * @param incumbent the best layout, updated
+     */
+    private static void seed(List<TileType> tiles, Incumbent incumbent) {
+        Simulator.Policy greedy = Simulator.Policy.greedy();
+        SplittableRandom random = new SplittableRandom(tiles.hashCode());
+        List<TileType> order = new ArrayList<>(tiles);
+        for (int game = 0; game < SEED_GAMES; game++) {
+            Collections.shuffle(order, new Random(random.nextLong()));
+            Board board = new Board();
+            List<Placement> placements = new ArrayList<>();
+            for (TileType type : order) {
+                Placement placement = greedy.choose(board, type, random);
+                if (placement == null) break;
+                board.placeTile(placement.getPosition(), placement.toTile());
+                placements.add(placement);
+            }
+            if (placements.size() == tiles.size()) incumbent.offer(board.getScore().getTotal(), placements);
+        }
+    }
+
+    /**
+     * Returns the neighbouring cell on a side.
+     *
+     * @param cell the cell
+     * @param side the side
+     * @return the neighbouring cell, or -1 outside the board
+     */
+    private static int neighbour(int cell, int side) {
+        int row = cell / Board.SIZE;
+        int col = cell % Board.SIZE;
+        switch (side) {
+            case ConnectionSignature.NORTH:
+                return row > 0 ? cell - Board.SIZE : -1;
+            case ConnectionSignature.EAST:
+                return col < Board.SIZE - 1 ? cell + 1 : -1;
+            case ConnectionSignature.SOUTH:
+                return row < Board.SIZE - 1 ? cell + Board.SIZE : -1;
+            default:
+                return col > 0 ? cell - 1 : -1;
+        }
+    }
+
+    /**
+     * Returns the share of a tile in the cycles of a network: twice its connected edges, less four, less the
+     * corners of cycles it makes. A network has no more cycles than a quarter of its corners, since each cycle
+     * has at least four, so the shares of its tiles add up to at most -4.
+     *
+     * @param sides the connectable sides of the tile, one bit per side
+     * @param linked the number of connected edges
+     * @param variant 1 if the corners count, 0 if the network cannot have any cycle
+     * @return the share of the tile
+     */
+    private static int slack(int sides, int linked, int variant) {
+        return 2 * linked - 4 - variant * CORNERS[sides][linked];
+    }
+
+    /**
+     * A node of the search: the tiles placed so far, the domains of the other cells and the remaining tiles.
+     * It is changed in place and restored when the search backtracks, and copied when a child is forked.
+     */
+    static final class State {
+
+    	/** The combination in each cell, or -1 for a cell without a tile. */
+        private final int[] cells;
+
+        /** The combinations still allowed in each cell, before the connections of its neighbours are applied. */
+        private final long[] allowed;
+
+        /** The cells left empty for good. */
+        private long empty;
+
+        /** The number of remaining tiles of each type. */
+        private final int[] remaining;
+
+        /** The distinct combinations of the remaining tile types. */
+        private long remainingMask;
+
+        /** The number of remaining tiles. */
+        private int left;
+
+        /** The cells of the placed tiles, in placement order. */
+        private final int[] placed;
+
+        /** The number of placed tiles. */
+        private int placedCount;
+
+        /** The score of the placed tiles. */
+        private final NetworkScorer scorer;
+
+        /**
+         * Constructs the root of the search, an empty board.
+         *
+         * @param tiles the tiles to place
+         */
+        State(List<TileType> tiles) {
+            cells = new int[CELLS];
+            Arrays.fill(cells, -1);
+            allowed = new long[CELLS];
+            Arrays.fill(allowed, DISTINCT);
+            remaining = new int[TileType.values().length];
+            for (TileType type : tiles) {
+                remaining[type.ordinal()]++;
+                remainingMask |= 0xFL << (type.ordinal() << 2) & DISTINCT;
+            }
+            left = tiles.size();
+            placed = new int[CELLS];
+            scorer = new NetworkScorer(Board.SIZE, Board.defaultExits(Board.SIZE));
+        }
+
+        /**
+         * Constructs an independent copy of a node.
+         *
+         * @param other the node to copy
+         */
+        State(State other) {
+            cells = other.cells.clone();
+            allowed = other.allowed.clone();
+            empty = other.empty;
+            remaining = other.remaining.clone();
+            remainingMask = other.remainingMask;
+            left = other.left;
+            placed = other.placed.clone();
+            placedCount = other.placedCount;
+            scorer = new NetworkScorer(other.scorer);
+        }
+
+        /**
+         * Returns the domain of a cell.
+         *
+         * @param cell the cell
+         * @return the combinations of the remaining tiles that can still be placed in it, 0 if it is decided
+         */
+        long domain(int cell) {
+            if (cells[cell] >= 0 || (empty >>> cell & 1) != 0) return 0;
+            long domain = allowed[cell] & remainingMask;
+            for (int side = 0; side < 4 && domain != 0; side++) {
+                int neighbour = neighbour(cell, side);
+                if (neighbour < 0 || cells[neighbour] < 0) continue;
+                int facing = ConnectionSignature.edgeCode(SIGNATURES[cells[neighbour]], ConnectionSignature.opposite(side));
+                domain &= RotationTable.compatibleWith(side, CONNECTIONS[facing]);
+            }
+            return domain;
+        }
+
+        /**
+         * Places a tile.
+         *
+         * @param cell the cell, whose domain contains the combination
+         * @param combination the combination of the tile
+         */
+        void place(int cell, int combination) {
+            int type = combination >>> 2;
+            cells[cell] = combination;
+            if (--remaining[type] == 0) remainingMask &= ~(0xFL << (type << 2));
+            left--;
+            placed[placedCount++] = cell;
+            scorer.place(cell / Board.SIZE, cell % Board.SIZE, RotationTable.typeOf(combination), SIGNATURES[combination]);
+        }
+
+        /**
+         * Removes the last placed tile.
+         */
+        void removeLast() {
+            int cell = placed[--placedCount];
+            int type = cells[cell] >>> 2;
+            cells[cell] = -1;
+            if (remaining[type]++ == 0) remainingMask |= 0xFL << (type << 2) & DISTINCT;
+            left++;
+            scorer.undo();
+        }
+
+        /**
+         * Returns a score that no layout completing this node can exceed, or {@link Integer#MIN_VALUE} if the
+         * remaining tiles cannot all be placed any more, or if every layout completing it is matched by a better
+         * or equal one elsewhere in the tree.
+         * <p>
+         * The exit points are at most those of a single network through every exit still usable, which needs
+         * {@link #EXIT_SPAN} tiles to join two of them. Each longest network has at most one cell per tile, placed
+         * or remaining, having its kind of edge. The open ends are at least those that can no longer be connected:
+         * facing the border, a side without connection, a cell left empty, or a cell whose domain has no
+         * combination with the same connection on that side. For each connection type, every other open end needs
+         * an edge of a remaining tile, and the edges of the remaining tiles left over can only connect in pairs;
+         * besides, the edges of a type connect along a planar network, which has no more links than its tiles
+         * less one plus its cycles, see {@link #links(int[])}. Each usable exit spares one open end.
+         * <p>
+         * A layout that uses no exit can be shifted up and left, as a whole, without lowering its score, until it
+         * touches the first row and the first column: the layouts that cannot are left to their shifted copies.
+         *
+         * @return the upper bound of the final score
+         */
+        int upperBound() {
+            int highway = 0;
+            int railway = 0;
+            int exits = 0;
+            int freeExits = 0;
+            int fillableCells = 0;
+            boolean north = false;
+            boolean west = false;
+            long covered = 0;
+            int[] open = new int[4];
+            int[] permanent = new int[4];
+            int[] edges = new int[4];
+            int[][] connectable = new int[4][16];
+            for (int cell = 0; cell < CELLS; cell++) {
+                int combination = cells[cell];
+                if (combination < 0) {
+                    long domain = domain(cell);
+                    if (domain == 0) continue;
+                    fillableCells++;
+                    north |= cell < Board.SIZE;
+                    west |= cell % Board.SIZE == 0;
+                    covered |= domain;
+                    if (EXIT_SIDE[cell] >= 0 && (domain & ~SIDE_CONNECTION[EXIT_SIDE[cell] << 2]) != 0) {
+                        exits++;
+                        freeExits++;
+                    }
+                    continue;
+                }
+                north |= cell < Board.SIZE;
+                west |= cell % Board.SIZE == 0;
+                int signature = SIGNATURES[combination];
+                int[] sides = new int[4];
+                int present = 0;
+                for (int side = 0; side < 4; side++) {
+                    int edge = ConnectionSignature.edgeCode(signature, side);
+                    if (edge == 0) continue;
+                    present |= 1 << edge;
+                    edges[edge]++;
+                    int neighbour = neighbour(cell, side);
+                    int opposite = ConnectionSignature.opposite(side);
+                    if (neighbour < 0) {
+                        if (EXIT_SIDE[cell] == side) exits++;
+                        else permanent[edge]++;
+                    } else if (cells[neighbour] >= 0) {
+                        if (ConnectionSignature.edgeCode(SIGNATURES[cells[neighbour]], opposite) == 0) permanent[edge]++;
+                        else sides[edge] |= 1 << side;
+                    } else if ((domain(neighbour) & SIDE_CONNECTION[opposite << 2 | edge]) == 0) {
+                        permanent[edge]++;
+                    } else {
+                        open[edge]++;
+                        sides[edge] |= 1 << side;
+                    }
+                }
+                for (int edge = 1; edge < 4; edge++) {
+                    if ((present >>> edge & 1) != 0) connectable[edge][sides[edge]]++;
+                }
+                if ((present >>> ConnectionType.HIGHWAY.ordinal() & 1) != 0) highway++;
+                if ((present >>> ConnectionType.RAILWAY.ordinal() & 1) != 0) railway++;
+            }
+            if (fillableCells < left) return Integer.MIN_VALUE;
+            // Sans sortie, décaler toutes les tuiles vers le haut ou la gauche ne fait pas baisser le score
+            if (exits == 0 && !(north && west)) return Integer.MIN_VALUE;
+            for (int type = 0; type < remaining.length; type++) {
+                int count = remaining[type];
+                if (count == 0) continue;
+                if ((covered & 0xFL << (type << 2)) == 0) return Integer.MIN_VALUE;
+                for (int edge = 1; edge < 4; edge++) {
+                    int typeEdges = EDGES[type << 2 | edge];
+                    if (typeEdges == 0) continue;
+                    open[edge] -= count * typeEdges;
+                    edges[edge] += count * typeEdges;
+                    connectable[edge][SIDES[type << 2 | edge]] += count;
+                }
+                if (EDGES[type << 2 | ConnectionType.HIGHWAY.ordinal()] > 0) highway += count;
+                if (EDGES[type << 2 | ConnectionType.RAILWAY.ordinal()] > 0) railway += count;
+            }
+            int paired = 0;
+            int unconnected = 0;
+            for (int edge = 1; edge < 4; edge++) {
+                // Les bords en trop des tuiles restantes ne se raccordent que par paires
+                paired += permanent[edge] + (open[edge] > 0 ? open[edge] : -open[edge] & 1);
+                unconnected += edges[edge] - links(connectable[edge]);
+            }
+            int openEnds = Math.max(0, Math.max(paired - freeExits, unconnected - exits));
+            int joinable = placedCount + left < EXIT_SPAN ? Math.min(exits, 1) : exits;
+            return ScoreReport.exitPoints(joinable) + highway + railway - openEnds;
+        }
+
+        /**
+         * Returns the most edges of one connection type that can be connected, two per connection.
+         * Starting from every connectable edge connected, the edges left unconnected must bring the shares of
+         * {@link #slack(int, int, int)} down to -4; the cheapest way, with fractions of hull segments allowed,
+         * gives the bound. A network only has cycles if at least four tiles can make a corner.
+         *
+         * @param connectable the number of tiles by set of connectable sides of that connection type
+         * @return the most connected edges
+         */
+        private static int links(int[] connectable) {
+            int cornerTiles = 0;
+            for (int sides = 0; sides < 16; sides++) {
+                if (CORNERS[sides][Integer.bitCount(sides)] > 0) cornerTiles += connectable[sides];
+            }
+            int variant = cornerTiles >= 4 ? 1 : 0;
+            int linked = 0;
+            int excess = 4;
+            int[] available = new int[SEGMENT_COST.length];
+            for (int sides = 0; sides < 16; sides++) {
+                int count = connectable[sides];
+                if (count == 0) continue;
+                linked += count * Integer.bitCount(sides);
+                excess += count * slack(sides, Integer.bitCount(sides), variant);
+                for (int segment : HULLS[variant][sides]) {
+                    available[segment] += count;
+                }
+            }
+            double unlinked = 0;
+            for (int segment = 0; segment < available.length && excess > 0; segment++) {
+                int gain = Math.min(excess, available[segment] * SEGMENT_GAIN[segment]);
+                unlinked += (double) gain * SEGMENT_COST[segment] / SEGMENT_GAIN[segment];
+                excess -= gain;
+            }
+            linked -= (int) Math.ceil(unlinked - 1e-9);
+            return Math.max(0, linked) & ~1;
+        }
+
+        /**
+         * Returns the placements of the tiles.
+         *
+         * @return the placements, in placement order
+         */
+        List<Placement> placements() {
+            List<Placement> placements = new ArrayList<>(placedCount);
+            for (int i = 0; i < placedCount; i++) {
+                int combination = cells[placed[i]];
+                placements.add(new Placement(Position.fromIndex(placed[i], Board.SIZE),
+                        RotationTable.typeOf(combination), RotationTable.orientationOf(combination)));
+            }
+            return placements;
+        }
+    }
+
+    /**
+     * The best layout found so far and the state of the search, shared by every task.
+     */
+    private static final class Incumbent {
+
+    	/** The best layout. */
+        private final AtomicReference<Best> best = new AtomicReference<>(new Best(Integer.MIN_VALUE, List.of()));
+
+        /** The number of visited nodes. */
+        private final AtomicLong nodes = new AtomicLong();
+
+        /** The {@link System#nanoTime()} at the start of the search. */
+        private final long start;
+
+        /** The longest time to search, in nanoseconds. */
+        private final long limitNanos;
+
+        /** Whether the search stopped at its time limit. */
+        private volatile boolean expired;
+
+        /**
+         * Constructs the state of a search.
+         *
+         * @param start the {@link System#nanoTime()} at the start of the search
+         * @param limitNanos the longest time to search, in nanoseconds
+         */
+        Incumbent(long start, long limitNanos) {
+            this.start = start;
+            this.limitNanos = limitNanos;
+        }
+
+        /**
+         * Checks whether the search must stop.
+         *
+         * @return {@code true} once the time limit has passed
+         */
+        boolean expired() {
+            if (!expired && System.nanoTime() - start > limitNanos) expired = true;
+            return expired;
+        }
+
+        /**
+         * Keeps a layout if it beats the best one.
+         *
+         * @param score the score of the layout
+         * @param placements the placements of the layout
+         */
+        void offer(int score, List<Placement> placements) {
+            Best offered = new Best(score, List.copyOf(placements));
+            best.accumulateAndGet(offered, (current, candidate) -> candidate.score > current.score ? candidate : current);
+        }
+
+        /**
+         * Returns the score to beat.
+         *
+         * @return the best score found so far
+         */
+        int score() {
+            return best.get().score;
+        }
+    }
+
+    /**
+     * An immutable layout and its score.
+     */
+    private static final class Best {
+
+    	/** The score of the layout. */
+        private final int score;
+
+        /** The placements of the layout. */
+        private final List<Placement> placements;
+
+        /**
+         * Constructs a layout.
+         *
+         * @param score the score of the layout
+         * @param placements the placements of the layout
+         */
+        Best(int score, List<Placement> placements) {
+            this.score = score;
+            this.placements = placements;
+        }
+    }
+
+    /**
+     * Searches the subtree of a node. Below {@link #SPLIT_DEPTH} the children are forked as new tasks with a copy
+     * of the node, deeper they are searched depth first on the task's own node.
+     */
+    private static final class Search extends RecursiveAction {
+
+    	/** The version of the serialized form, never serialized in practice. */
+        private static final long serialVersionUID = 1L;
+
+        /** The node, owned by the task. */
+        private final State state;
+
+        /** The depth of the node. */
+        private final int depth;
+
+        /** The best layout, shared. */
+        private final Incumbent incumbent;
+
+        /** The children to fork, or {@code null} when they are searched in place. */
+        private List<Search> forks;
+
+        /** The number of nodes visited by the task. */
+        private long nodes;
+
+        /**
+         * Constructs the task searching a node.
+         *
+         * @param state the node, owned by the task
+         * @param depth the depth of the node
+         * @param incumbent the best layout
+         */
+        Search(State state, int depth, Incumbent incumbent) {
+            this.state = state;
+            this.depth = depth;
+            this.incumbent = incumbent;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth < SPLIT_DEPTH) forks = new ArrayList<>();
+            search();
+            incumbent.nodes.addAndGet(nodes);
+            if (forks != null) invokeAll(forks);
+        }
+
+        /**
+         * Searches the current node, which is restored on return.
+         */
+        private void search() {
+            if ((++nodes & 0x3FF) == 0) incumbent.expired();
+            if (incumbent.expired) return;
+            if (state.left == 0) {
+                int score = state.scorer.report().getTotal();
+                if (score > incumbent.score()) incumbent.offer(score, state.placements());
+                return;
+            }
+            if (state.upperBound() <= incumbent.score()) return;
+            for (int exit : EXIT_CELLS) {
+                long using = state.domain(exit) & ~SIDE_CONNECTION[EXIT_SIDE[exit] << 2];
+                if (using == 0) continue;
+                for (int combination : ordered(exit, using)) {
+                    state.place(exit, combination);
+                    child();
+                    state.removeLast();
+                }
+                // La sortie ne sert pas
+                long allowed = state.allowed[exit];
+                state.allowed[exit] &= SIDE_CONNECTION[EXIT_SIDE[exit] << 2];
+                child();
+                state.allowed[exit] = allowed;
+                return;
+            }
+            int target = -1;
+            long connecting = 0;
+            int sideConnection = 0;
+            int fewest = Integer.MAX_VALUE;
+            for (int i = 0; i < state.placedCount && fewest > 1; i++) {
+                int cell = state.placed[i];
+                int signature = SIGNATURES[state.cells[cell]];
+                for (int side = 0; side < 4; side++) {
+                    int edge = ConnectionSignature.edgeCode(signature, side);
+                    int neighbour = neighbour(cell, side);
+                    if (edge == 0 || neighbour < 0) continue;
+                    int opposite = ConnectionSignature.opposite(side);
+                    long domain = state.domain(neighbour) & SIDE_CONNECTION[opposite << 2 | edge];
+                    int size = Long.bitCount(domain);
+                    if (size == 0 || size >= fewest) continue;
+                    target = neighbour;
+                    connecting = domain;
+                    sideConnection = opposite << 2 | edge;
+                    fewest = size;
+                }
+            }
+            if (target >= 0) {
+                for (int combination : ordered(target, connecting)) {
+                    state.place(target, combination);
+                    child();
+                    state.removeLast();
+                }
+                // Le bout reste ouvert : la case ne pourra plus s'y raccorder
+                long allowed = state.allowed[target];
+                state.allowed[target] &= ~SIDE_CONNECTION[sideConnection];
+                child();
+                state.allowed[target] = allowed;
+                return;
+            }
+            long empty = state.empty;
+            for (int cell = 0; cell < CELLS; cell++) {
+                long domain = state.domain(cell);
+                if (domain == 0) continue;
+                for (int combination : ordered(cell, domain)) {
+                    state.place(cell, combination);
+                    child();
+                    state.removeLast();
+                }
+                // Les réseaux suivants commencent après cette case
+                state.empty |= 1L << cell;
+                if (state.upperBound() <= incumbent.score()) break;
+            }
+            state.empty = empty;
+        }
+
+        /**
+         * Searches the child reached by the last change of the node, or forks a task for it.
+         */
+        private void child() {
+            if (forks != null) {
+                forks.add(new Search(new State(state), depth + 1, incumbent));
+            } else {
+                search();
+            }
+        }
+
+        /**
+         * Lists combinations of a cell, those connecting to the most placed tiles first.
+         *
+         * @param cell the cell
+         * @param domain the combinations to list
+         * @return the combination indexes
+         */
+        private int[] ordered(int cell, long domain) {
+            int[] keys = new int[Long.bitCount(domain)];
+            int n = 0;
+            for (long rest = domain; rest != 0; rest &= rest - 1) {
+                int combination = Long.numberOfTrailingZeros(rest);
+                int links = 0;
+                for (int side = 0; side < 4; side++) {
+                    int neighbour = neighbour(cell, side);
+                    if (neighbour >= 0 && state.cells[neighbour] >= 0
+                            && ConnectionSignature.edgeCode(SIGNATURES[combination], side) != 0
+                            && ConnectionSignature.edgeCode(SIGNATURES[state.cells[neighbour]], ConnectionSignature.opposite(side)) != 0) {
+                        links++;
+                    }
+                }
+                keys[n++] = -links << 8 | combination;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < n; i++) {
+                keys[i] &= 0xFF;
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * The best layout of a puzzle and the cost of the search.
+     */
+    public static final class Solution {
+
+    	/** The placements of the best layout. */
+        private final List<Placement> placements;
+
+        /** The score of the best layout. */
+        private final int score;
+
+        /** Whether the layout is proven to be the best. */
+        private final boolean optimal;
+
+        /** The number of visited nodes. */
+        private final long nodes;
+
+        /** The duration of the search in nanoseconds. */
+        private final long elapsedNanos;
+
+        /**
+         * Constructs a solution.
+         *
+         * @param placements the placements of the best layout
+         * @param score the score of the best layout
+         * @param optimal whether the layout is proven to be the best
+         * @param nodes the number of visited nodes
+         * @param elapsedNanos the duration of the search in nanoseconds
+         */
+        Solution(List<Placement> placements, int score, boolean optimal, long nodes, long elapsedNanos) {
+            this.placements = placements;
+            this.score = score;
+            this.optimal = optimal;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the placements of the best layout.
+         *
+         * @return the placements, empty if the tiles cannot all be placed
+         */
+        public List<Placement> getPlacements() {
+            return placements;
+        }
+
+        /**
+         * Returns the score of the best layout.
+         *
+         * @return the total score
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Returns whether the search ran to its end, which proves that no layout scores more.
+         *
+         * @return {@code false} if the search stopped at its time limit
+         */
+        public boolean isOptimal() {
+            return optimal;
+        }
+
+        /**
+         * Returns the number of nodes of the search tree that were visited.
+         *
+         * @return the number of nodes
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns the duration of the search.
+         *
+         * @return the duration
+         */
+        public Duration getElapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s score %d in %.2f s, %d nodes: %s", optimal ? "best" : "time limit,", score,
+                    elapsedNanos / 1e9, nodes, placements);
+        }
+    }
+
+    /**
+     * Solves a puzzle within a minute and prints the best layout.
+     *
+     * @param args the tile types of the puzzle, a small sample puzzle by default
+     */
+    public static void main(String[] args) {
+        List<TileType> tiles = new ArrayList<>();
+        for (String arg : args) {
+            tiles.add(TileType.valueOf(arg));
+        }
+        if (tiles.isEmpty()) {
+            tiles.addAll(List.of(TileType.HIGHWAY_CURVE, TileType.HIGHWAY_CURVE, TileType.HIGHWAY_STRAIGHT,
+                    TileType.RAILWAY_CURVE, TileType.RAILWAY_STRAIGHT, TileType.STATION_STRAIGHT));
+        }
+        System.out.println(new PuzzleSolver().solve(tiles, Duration.ofMinutes(1)));
+    }
+}
@@ -0,0 +1,22 @@
+package projet;
+
+/**
+ * The reasons why a placement is refused by a {@link Board}.
+ */
+public enum RejectionReason {
+
+	/** The position is outside the board. */
+    OUT_OF_BOUNDS,
+
+    /** The cell already holds a tile. */
+    OCCUPIED,
+
+    /** Another placement of the same batch targets the same cell. */
+    DUPLICATE_IN_BATCH,
+
+    /** An edge of the tile does not match a tile already on the board. */
+    INCOMPATIBLE_NEIGHBOUR,
+
+    /** An edge of the tile does not match another placement of the same batch. */
+    INCOMPATIBLE_IN_BATCH
+}
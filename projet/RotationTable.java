@@ -0,0 +1,198 @@
+package projet;
+
+/**
+ * Precomputed connections of every {@link TileType} in every {@link Orientation}.
+ * The tables are built once, when the class is loaded, from the built-in edges of each type, and are never exposed
+ * directly: rotating a tile to any orientation is a single lookup followed by a copy.
+ */
+public final class RotationTable {
+
+	/**
+     * The number of type and orientation combinations, which all fit in the bits of a {@code long}.
+     */
+    public static final int COMBINATIONS = TileType.values().length * Orientation.values().length;
+
+    /**
+     * The mask with one bit set for every type and orientation combination.
+     */
+    public static final long ALL_COMBINATIONS = -1L >>> (Long.SIZE - COMBINATIONS);
+
+    /**
+     * The packed signature of each type and orientation, indexed by {@code type.ordinal() * 4 + orientation.ordinal()}.
+     */
+    private static final int[] SIGNATURES;
+
+    /**
+     * The connections of each type and orientation, with the same indexing as {@link #SIGNATURES}.
+     */
+    private static final ConnectionType[][] CONNECTIONS;
+
+    /**
+     * The connections of each tile type in the NORTH orientation, in the order NORTH, EAST, SOUTH, WEST.
+     * They are built into the class, so the tables never depend on a file being found.
+     */
+    private static final String[] BASE_EDGES = {
+        "HIGHWAY_STRAIGHT          HIGHWAY  NONE     HIGHWAY  NONE",
+        "HIGHWAY_CURVE             HIGHWAY  HIGHWAY  NONE     NONE",
+        "HIGHWAY_JUNCTION          HIGHWAY  HIGHWAY  HIGHWAY  HIGHWAY",
+        "HIGHWAY_CROSS             HIGHWAY  HIGHWAY  HIGHWAY  HIGHWAY",
+        "RAILWAY_STRAIGHT          RAILWAY  NONE     RAILWAY  NONE",
+        "RAILWAY_CURVE             RAILWAY  RAILWAY  NONE     NONE",
+        "RAILWAY_JUNCTION          RAILWAY  RAILWAY  RAILWAY  RAILWAY",
+        "RAILWAY_CROSS             RAILWAY  RAILWAY  RAILWAY  RAILWAY",
+        "STATION_STRAIGHT          STATION  NONE     STATION  NONE",
+        "STATION_CURVE             STATION  STATION  NONE     NONE",
+        "STATION_CROSS             STATION  STATION  STATION  STATION",
+        "STATION_REFLECT           STATION  STATION  STATION  STATION",
+        "STATION_HIGHWAY_JUNCTION  STATION  HIGHWAY  STATION  HIGHWAY",
+        "STATION_RAILWAY_JUNCTION  STATION  RAILWAY  STATION  RAILWAY",
+        "OVERPASS                  HIGHWAY  RAILWAY  HIGHWAY  RAILWAY",
+    };
+
+    /** Cached types, indexed by ordinal. */
+    private static final TileType[] TYPES = TileType.values();
+
+    /** Cached orientations, indexed by ordinal. */
+    private static final Orientation[] ORIENTATIONS = Orientation.values();
+
+    static {
+        TileType[] types = TileType.values();
+        Orientation[] orientations = Orientation.values();
+        SIGNATURES = new int[types.length * orientations.length];
+        CONNECTIONS = new ConnectionType[SIGNATURES.length][];
+        ConnectionType[][] base = baseConnections();
+        for (TileType type : types) {
+            int signature = ConnectionSignature.pack(base[type.ordinal()]);
+            for (Orientation orientation : orientations) {
+                int index = index(type, orientation);
+                SIGNATURES[index] = signature;
+                CONNECTIONS[index] = new ConnectionType[4];
+                for (int side = 0; side < 4; side++) {
+                    CONNECTIONS[index][side] = ConnectionSignature.edge(signature, side);
+                }
+                signature = ConnectionSignature.rotate(signature);
+            }
+        }
+    }
+
+    /**
+     * Private constructor, this class only holds static tables.
+     */
+    private RotationTable() {
+    }
+
+    /**
+     * Computes the combination index of a type and an orientation, used by the tables and the candidate masks.
+     *
+     * @param type the type of the tile
+     * @param orientation the orientation of the tile
+     * @return the index in the tables
+     */
+    public static int index(TileType type, Orientation orientation) {
+        return type.ordinal() << 2 | orientation.ordinal();
+    }
+
+    /**
+     * Returns the tile type of a combination index.
+     *
+     * @param index the index computed by {@link #index(TileType, Orientation)}
+     * @return the type of the combination
+     */
+    public static TileType typeOf(int index) {
+        return TYPES[index >>> 2];
+    }
+
+    /**
+     * Returns the orientation of a combination index.
+     *
+     * @param index the index computed by {@link #index(TileType, Orientation)}
+     * @return the orientation of the combination
+     */
+    public static Orientation orientationOf(int index) {
+        return ORIENTATIONS[index & 3];
+    }
+
+    /**
+     * Returns the combinations whose edge on a side is compatible with the connection facing it,
+     * under the {@link ConnectionRules#standard() standard rules}.
+     * Bit {@code i} of the result stands for the combination of index {@code i}.
+     *
+     * @param side the side of the tile to place (0 = North, 1 = East, 2 = South, 3 = West)
+     * @param facing the connection of the neighbouring tile facing that side
+     * @return the mask of compatible combinations
+     * @see ConnectionRules#compatibleWith(int, ConnectionType)
+     */
+    public static long compatibleWith(int side, ConnectionType facing) {
+        return ConnectionRules.standard().compatibleWith(side, facing);
+    }
+
+    /**
+     * Returns the packed connections of a tile type in a given orientation.
+     *
+     * @param type the type of the tile
+     * @param orientation the orientation of the tile
+     * @return the packed {@link ConnectionSignature}
+     */
+    public static int signature(TileType type, Orientation orientation) {
+        return SIGNATURES[index(type, orientation)];
+    }
+
+    /**
+     * Returns one connection of a tile type in a given orientation.
+     *
+     * @param type the type of the tile
+     * @param orientation the orientation of the tile
+     * @param side the side index (0 = North, 1 = East, 2 = South, 3 = West)
+     * @return the connection type on that side
+     */
+    public static ConnectionType connection(TileType type, Orientation orientation, int side) {
+        return CONNECTIONS[index(type, orientation)][side];
+    }
+
+    /**
+     * Returns the connections of a tile type in a given orientation, in the array shared by every tile of that type
+     * and orientation. The array must not be modified.
+     *
+     * @param type the type of the tile
+     * @param orientation the orientation of the tile
+     * @return the shared connections (NORTH, EAST, SOUTH, WEST)
+     */
+    static ConnectionType[] sharedConnections(TileType type, Orientation orientation) {
+        return CONNECTIONS[index(type, orientation)];
+    }
+
+    /**
+     * Copies the connections of a tile type in a given orientation into an existing array.
+     *
+     * @param type the type of the tile
+     * @param orientation the orientation of the tile
+     * @param destination the array receiving the connections (NORTH, EAST, SOUTH, WEST)
+     */
+    public static void copyConnections(TileType type, Orientation orientation, ConnectionType[] destination) {
+        System.arraycopy(CONNECTIONS[index(type, orientation)], 0, destination, 0, 4);
+    }
+
+    /**
+     * Builds the connections of every tile type in the NORTH orientation from {@link #BASE_EDGES}.
+     *
+     * @return the connections of each tile type, indexed by ordinal
+     * @throws IllegalStateException if a tile type is missing, defined twice or does not have four connections
+     */
+    private static ConnectionType[][] baseConnections() {
+        ConnectionType[][] base = new ConnectionType[TileType.values().length][];
+        for (String line : BASE_EDGES) {
+            String[] row = line.trim().split("\\s+");
+            TileType type = TileType.valueOf(row[0]);
+            if (row.length != 5) throw new IllegalStateException(type + " must have four connections");
+            if (base[type.ordinal()] != null) throw new IllegalStateException(type + " is defined twice");
+            base[type.ordinal()] = new ConnectionType[4];
+            for (int side = 0; side < 4; side++) {
+                base[type.ordinal()][side] = ConnectionType.valueOf(row[side + 1]);
+            }
+        }
+        for (TileType type : TileType.values()) {
+            if (base[type.ordinal()] == null) throw new IllegalStateException(type + " has no connections");
+        }
+        return base;
+    }
+}
@@ -0,0 +1,132 @@
+package projet;
+
+import java.util.Arrays;
+
+/**
+ * Immutable summary of the score of a board, produced by {@link NetworkScorer}.
+ * The total is the sum of the exit points and of the longest highway and railway, minus the open ends.
+ */
+public final class ScoreReport {
+
+	/**
+     * Points awarded to a network connecting a given number of exits, indexed by that number.
+     * A network must connect at least two exits to score.
+     */
+    private static final int[] EXIT_POINTS = {0, 0, 4, 8, 12, 16, 20, 24, 28, 32, 36, 40, 45};
+
+    /**
+     * The number of exits connected by each network touching at least one exit, in decreasing order.
+     */
+    private final int[] exitNetworks;
+
+    /**
+     * The number of cells of the largest highway network.
+     */
+    private final int longestHighway;
+
+    /**
+     * The number of cells of the largest railway network.
+     */
+    private final int longestRailway;
+
+    /**
+     * The number of edges leading nowhere.
+     */
+    private final int openEnds;
+
+    /**
+     * Constructs a score report.
+     *
+     * @param exitNetworks the number of exits connected by each network touching an exit
+     * @param longestHighway the number of cells of the largest highway network
+     * @param longestRailway the number of cells of the largest railway network
+     * @param openEnds the number of edges leading nowhere
+     */
+    ScoreReport(int[] exitNetworks, int longestHighway, int longestRailway, int openEnds) {
+        this.exitNetworks = exitNetworks;
+        this.longestHighway = longestHighway;
+        this.longestRailway = longestRailway;
+        this.openEnds = openEnds;
+    }
+
+    /**
+     * Returns the points awarded to a network connecting the given number of exits.
+     *
+     * @param exits the number of connected exits
+     * @return the points for that network
+     */
+    public static int exitPoints(int exits) {
+        return EXIT_POINTS[Math.min(exits, EXIT_POINTS.length - 1)];
+    }
+
+    /**
+     * Returns the number of exits connected by each network touching at least one exit.
+     *
+     * @return a copy of the exit counts, in decreasing order
+     */
+    public int[] getExitNetworks() {
+        return exitNetworks.clone();
+    }
+
+    /**
+     * Returns the points earned by connecting exits.
+     *
+     * @return the sum of the exit points of every network
+     */
+    public int getExitPoints() {
+        int points = 0;
+        for (int exits : exitNetworks) {
+            points += exitPoints(exits);
+        }
+        return points;
+    }
+
+    /**
+     * Returns the size of the largest highway network, the number of cells of its largest connected component.
+     * It is not the length of a path: a branching network counts every one of its cells.
+     *
+     * @return the number of cells of the largest highway network
+     */
+    public int getLongestHighway() {
+        return longestHighway;
+    }
+
+    /**
+     * Returns the size of the largest railway network, the number of cells of its largest connected component.
+     * It is not the length of a path: a branching network counts every one of its cells.
+     *
+     * @return the number of cells of the largest railway network
+     */
+    public int getLongestRailway() {
+        return longestRailway;
+    }
+
+    /**
+     * Returns the penalty for open ends.
+     *
+     * @return the number of edges leading to an empty cell, a blank edge or the border outside an exit
+     */
+    public int getOpenEnds() {
+        return openEnds;
+    }
+
+    /**
+     * Returns the total score.
+     *
+     * @return the exit points plus the longest highway and railway, minus the open ends
+     */
+    public int getTotal() {
+        return getExitPoints() + longestHighway + longestRailway - openEnds;
+    }
+
+    /**
+     * Returns the report as a readable string.
+     *
+     * @return the details of the score
+     */
+    @Override
+    public String toString() {
+        return "ScoreReport[exits=" + Arrays.toString(exitNetworks) + ", highway=" + longestHighway
+                + ", railway=" + longestRailway + ", openEnds=" + openEnds + ", total=" + getTotal() + "]";
+    }
+}
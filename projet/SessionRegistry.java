@@ -0,0 +1,197 @@
+package projet;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the {@link GameSession}s hosted by the server.
+ * Sessions are created, looked up by identifier, and evicted once they have been idle for too long.
+ * A removed or evicted session ends its game, so a recorded game gets its end event in the {@link EventLog}.
+ */
+public class SessionRegistry implements AutoCloseable {
+
+	/**
+     * The sessions, by identifier.
+     */
+    private final ConcurrentMap<String, GameSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * The executor draining the mailboxes of the sessions.
+     */
+    private final Executor executor;
+
+    /**
+     * The idle time after which a session is evicted, in nanoseconds.
+     */
+    private final long idleTimeout;
+
+    /**
+     * The executor created by the registry, shut down when it is closed, or {@code null} if it was given.
+     */
+    private final ExecutorService ownExecutor;
+
+    /**
+     * The scheduler running the evictions.
+     */
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * Constructs a registry with its own executor from {@link #newDefaultExecutor()}, shut down by {@link #close()}.
+     *
+     * @param idleTimeout the idle time after which a session is evicted
+     */
+    public SessionRegistry(Duration idleTimeout) {
+        this(newDefaultExecutor(), idleTimeout, true);
+    }
+
+    /**
+     * Constructs a registry.
+     *
+     * @param executor the executor draining the mailboxes of the sessions, left running by {@link #close()}
+     * @param idleTimeout the idle time after which a session is evicted
+     */
+    public SessionRegistry(Executor executor, Duration idleTimeout) {
+        this(executor, idleTimeout, false);
+    }
+
+    /**
+     * Constructs a registry.
+     *
+     * @param executor the executor draining the mailboxes of the sessions
+     * @param idleTimeout the idle time after which a session is evicted
+     * @param owned whether the registry shuts the executor down when it is closed
+     */
+    private SessionRegistry(Executor executor, Duration idleTimeout, boolean owned) {
+        this.executor = executor;
+        this.ownExecutor = owned ? (ExecutorService) executor : null;
+        this.idleTimeout = idleTimeout.toNanos();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeout.toMillis() / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the executor used when none is given: one virtual thread per task when the runtime
+     * supports it (Java 21 and later), a cached pool of daemon threads otherwise.
+     * Each call creates a new executor, which the caller must shut down.
+     *
+     * @return a new executor
+     */
+    public static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "session-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Creates a new session with an empty board. The game is built around its board and never reads the tile
+     * images, so sessions are created headless whatever the images available.
+     *
+     * @return the new session
+     */
+    public GameSession create() {
+        String id = UUID.randomUUID().toString();
+        GameSession session = new GameSession(id, new GameManager(new Board()), executor);
+        sessions.put(id, session);
+        return session;
+    }
+
+    /**
+     * Looks up a session.
+     *
+     * @param id the identifier of the session
+     * @return the session, or an empty optional if it does not exist or was evicted
+     */
+    public Optional<GameSession> get(String id) {
+        return Optional.ofNullable(sessions.get(id));
+    }
+
+    /**
+     * Removes a session.
+     *
+     * @param id the identifier of the session
+     * @return {@code true} if the session existed
+     */
+    public boolean remove(String id) {
+        GameSession session = sessions.remove(id);
+        if (session == null) return false;
+        end(session);
+        return true;
+    }
+
+    /**
+     * Evicts the sessions that received no command during the idle timeout.
+     *
+     * @return the number of evicted sessions
+     */
+    public int evictIdle() {
+        long limit = System.nanoTime() - idleTimeout;
+        int evicted = 0;
+        for (GameSession session : sessions.values()) {
+            if (session.getLastAccess() - limit < 0 && sessions.remove(session.getId(), session)) {
+                end(session);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Ends the game of a session that left the registry, through its mailbox so it runs after the pending commands.
+     *
+     * @param session the removed session
+     */
+    private static void end(GameSession session) {
+        session.submit(game -> {
+            game.endRecording();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the hosted sessions.
+     *
+     * @return an unmodifiable view of the sessions
+     */
+    public Collection<GameSession> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    /**
+     * Returns the number of hosted sessions.
+     *
+     * @return the number of sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Stops the evictions, and the executor of the registry if it created it.
+     */
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        if (ownExecutor != null) ownExecutor.shutdown();
+    }
+}
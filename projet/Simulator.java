@@ -0,0 +1,440 @@
+package projet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates many complete games to measure how the tile distributions play out.
+ * Each round, every die draws a tile type from its {@link TileDistribution} and a {@link Policy} places it on the board;
+ * a tile that cannot be placed is a failure. The games are independent and spread over a {@link ForkJoinPool}:
+ * each one has its own {@link Board} and its own generator seeded from the run seed and the game number, so the
+ * results only depend on the seed, whatever the number of threads. Each task fills its own statistics, which are
+ * merged when the tasks join, so no mutable state is shared between threads.
+ */
+public final class Simulator {
+
+	/**
+     * The tile types.
+     */
+    private static final TileType[] TYPES = TileType.values();
+
+    /**
+     * The number of rounds of a standard game.
+     */
+    public static final int STANDARD_ROUNDS = 7;
+
+    /**
+     * The number of rounds of a game.
+     */
+    private final int rounds;
+
+    /**
+     * The dice rolled each round.
+     */
+    private final List<TileDistribution> dice;
+
+    /**
+     * The policy placing the tiles.
+     */
+    private final Policy policy;
+
+    /**
+     * The pool running the games.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a simulator.
+     *
+     * @param rounds the number of rounds of a game
+     * @param dice the dice rolled each round, one tile per die
+     * @param policy the policy placing the tiles, called concurrently from several threads
+     * @param pool the pool running the games
+     */
+    public Simulator(int rounds, List<TileDistribution> dice, Policy policy, ForkJoinPool pool) {
+        if (rounds <= 0 || dice.isEmpty()) throw new IllegalArgumentException("A game needs at least one round and one die");
+        this.rounds = rounds;
+        this.dice = List.copyOf(dice);
+        this.policy = Objects.requireNonNull(policy);
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Constructs a simulator of standard games, {@link #STANDARD_ROUNDS} rounds of the {@link #standardDice()},
+     * running on the common fork/join pool.
+     *
+     * @param policy the policy placing the tiles, called concurrently from several threads
+     */
+    public Simulator(Policy policy) {
+        this(STANDARD_ROUNDS, standardDice(), policy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the dice of a standard game: three route dice with the highway and railway tiles,
+     * and one die with the stations and the overpass.
+     *
+     * @return the four dice
+     */
+    public static List<TileDistribution> standardDice() {
+        TileDistribution route = TileDistribution.parse("HIGHWAY_STRAIGHT=1,HIGHWAY_CURVE=1,HIGHWAY_JUNCTION=1,"
+                + "RAILWAY_STRAIGHT=1,RAILWAY_CURVE=1,RAILWAY_JUNCTION=1");
+        TileDistribution special = TileDistribution.parse("OVERPASS=2,STATION_STRAIGHT=2,STATION_CURVE=2");
+        return List.of(route, route, route, special);
+    }
+
+    /**
+     * Plays a number of games.
+     *
+     * @param games the number of games
+     * @param seed the seed of the run; the same seed gives the same results
+     * @return the statistics of the games
+     */
+    public Result run(long games, long seed) {
+        long start = System.nanoTime();
+        long threshold = Math.max(1, games / (pool.getParallelism() * 8L));
+        Statistics statistics = pool.invoke(new Games(seed, 0, games, threshold));
+        return new Result(statistics, System.nanoTime() - start);
+    }
+
+    /**
+     * Plays one game.
+     *
+     * @param seed the seed of the run
+     * @param game the number of the game
+     * @param statistics the statistics of the current task
+     */
+    private void play(long seed, long game, Statistics statistics) {
+        SplittableRandom random = new SplittableRandom(mix(seed + game * 0x9E3779B97F4A7C15L));
+        Board board = new Board();
+        boolean failed = false;
+        for (int round = 0; round < rounds; round++) {
+            for (TileDistribution die : dice) {
+                TileType type = die.draw(random);
+                statistics.drawn[type.ordinal()]++;
+                Placement placement = policy.choose(board, type, random);
+                if (placement == null || placement.getType() != type
+                        || !board.placeTile(placement.getPosition(), placement.toTile())) {
+                    statistics.failed[type.ordinal()]++;
+                    failed = true;
+                }
+            }
+        }
+        statistics.scores.record(board.getScore().getTotal());
+        statistics.games++;
+        if (failed) statistics.failedGames++;
+    }
+
+    /**
+     * Mixes the bits of a value, so that consecutive games get unrelated seeds.
+     *
+     * @param z the value
+     * @return the mixed value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Chooses where to place the drawn tiles. A policy is shared by every thread of the run,
+     * so it keeps no mutable state and only uses the generator it is given.
+     */
+    public interface Policy {
+
+    	/**
+         * Chooses where to place a tile.
+         *
+         * @param board the board of the game, which the policy may change as long as it restores it
+         * @param type the type of the drawn tile
+         * @param random the generator of the game
+         * @return a legal placement of a tile of that type, or {@code null} if the tile cannot be placed
+         */
+        Placement choose(Board board, TileType type, SplittableRandom random);
+
+        /**
+         * Returns the policy placing each tile at a legal position and orientation chosen uniformly.
+         *
+         * @return the random policy
+         */
+        static Policy random() {
+            return (board, type, random) -> {
+                long typeMask = 0xFL << RotationTable.index(type, Orientation.NORTH);
+                int size = board.getSize();
+                int total = 0;
+                for (int cell = 0; cell < size * size; cell++) {
+                    total += Long.bitCount(board.getCandidates(cell / size, cell % size) & typeMask);
+                }
+                if (total == 0) return null;
+                int pick = random.nextInt(total);
+                for (int cell = 0; cell < size * size; cell++) {
+                    long mask = board.getCandidates(cell / size, cell % size) & typeMask;
+                    int count = Long.bitCount(mask);
+                    if (pick < count) {
+                        for (; pick > 0; pick--) {
+                            mask &= mask - 1;
+                        }
+                        return new Placement(Position.of(cell / size, cell % size), type,
+                                RotationTable.orientationOf(Long.numberOfTrailingZeros(mask)));
+                    }
+                    pick -= count;
+                }
+                throw new AssertionError();
+            };
+        }
+
+        /**
+         * Returns the policy placing each tile where it gives the best score right away, ties broken at random.
+         * Each candidate is tried on the board and undone.
+         *
+         * @return the greedy policy
+         */
+        static Policy greedy() {
+            return (board, type, random) -> {
+                long typeMask = 0xFL << RotationTable.index(type, Orientation.NORTH);
+                int size = board.getSize();
+                Placement best = null;
+                int bestScore = Integer.MIN_VALUE;
+                int ties = 0;
+                for (int cell = 0; cell < size * size; cell++) {
+                    for (long mask = board.getCandidates(cell / size, cell % size) & typeMask; mask != 0; mask &= mask - 1) {
+                        Placement candidate = new Placement(Position.of(cell / size, cell % size), type,
+                                RotationTable.orientationOf(Long.numberOfTrailingZeros(mask)));
+                        board.placeTile(candidate.getPosition(), candidate.toTile());
+                        int score = board.getScore().getTotal();
+                        board.undo();
+                        if (score > bestScore) {
+                            best = candidate;
+                            bestScore = score;
+                            ties = 1;
+                        } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                            best = candidate; // Tirage uniforme parmi les ex aequo
+                        }
+                    }
+                }
+                return best;
+            };
+        }
+
+        /**
+         * Returns a policy by name.
+         *
+         * @param name {@code random} or {@code greedy}
+         * @return the policy
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        static Policy named(String name) {
+            switch (name) {
+                case "random":
+                    return random();
+                case "greedy":
+                    return greedy();
+                default:
+                    throw new IllegalArgumentException("Unknown policy: " + name);
+            }
+        }
+    }
+
+    /**
+     * Plays a range of games, splitting it across the pool.
+     */
+    private final class Games extends RecursiveTask<Statistics> {
+
+    	/** The version of the serialized form, never serialized in practice. */
+        private static final long serialVersionUID = 1L;
+
+        /** The seed of the run. */
+        private final long seed;
+
+        /** The first game of the range. */
+        private final long from;
+
+        /** The end of the range, exclusive. */
+        private final long to;
+
+        /** The largest range played without splitting. */
+        private final long threshold;
+
+        Games(long seed, long from, long to, long threshold) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Statistics compute() {
+            if (to - from > threshold) {
+                long middle = (from + to) >>> 1;
+                Games right = new Games(seed, middle, to, threshold);
+                right.fork();
+                Statistics statistics = new Games(seed, from, middle, threshold).compute();
+                statistics.merge(right.join());
+                return statistics;
+            }
+            Statistics statistics = new Statistics();
+            for (long game = from; game < to; game++) {
+                play(seed, game, statistics);
+            }
+            return statistics;
+        }
+    }
+
+    /**
+     * The statistics filled by one task, merged into those of its parent.
+     */
+    private static final class Statistics {
+
+    	/** The final scores. */
+        private final Histogram scores = new Histogram();
+
+        /** The number of drawn tiles of each type. */
+        private final long[] drawn = new long[TYPES.length];
+
+        /** The number of tiles of each type that could not be placed. */
+        private final long[] failed = new long[TYPES.length];
+
+        /** The number of games. */
+        private long games;
+
+        /** The number of games with at least one tile that could not be placed. */
+        private long failedGames;
+
+        /**
+         * Adds the statistics of another task.
+         *
+         * @param other the statistics to add
+         */
+        void merge(Statistics other) {
+            scores.merge(other.scores);
+            for (int i = 0; i < TYPES.length; i++) {
+                drawn[i] += other.drawn[i];
+                failed[i] += other.failed[i];
+            }
+            games += other.games;
+            failedGames += other.failedGames;
+        }
+    }
+
+    /**
+     * The results of a run.
+     */
+    public static final class Result {
+
+    	/** The merged statistics. */
+        private final Statistics statistics;
+
+        /** The duration of the run in nanoseconds. */
+        private final long elapsedNanos;
+
+        Result(Statistics statistics, long elapsedNanos) {
+            this.statistics = statistics;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of games played.
+         *
+         * @return the number of games
+         */
+        public long getGames() {
+            return statistics.games;
+        }
+
+        /**
+         * Returns the histogram of the final scores. It must not be modified.
+         *
+         * @return the scores
+         */
+        public Histogram getScores() {
+            return statistics.scores;
+        }
+
+        /**
+         * Returns the share of the drawn tiles that could not be placed.
+         *
+         * @return the failure rate, between 0 and 1
+         */
+        public double getFailureRate() {
+            return (double) Arrays.stream(statistics.failed).sum() / Arrays.stream(statistics.drawn).sum();
+        }
+
+        /**
+         * Returns the share of the drawn tiles of a type that could not be placed.
+         *
+         * @param type the type
+         * @return the failure rate, or {@code NaN} if no tile of that type was drawn
+         */
+        public double getFailureRate(TileType type) {
+            long drawn = statistics.drawn[type.ordinal()];
+            return drawn == 0 ? Double.NaN : (double) statistics.failed[type.ordinal()] / drawn;
+        }
+
+        /**
+         * Returns the share of the games in which at least one tile could not be placed.
+         *
+         * @return the rate, between 0 and 1
+         */
+        public double getFailedGameRate() {
+            return (double) statistics.failedGames / statistics.games;
+        }
+
+        /**
+         * Returns the number of games played per second of the run.
+         *
+         * @return the throughput
+         */
+        public double getGamesPerSecond() {
+            return statistics.games * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the failure rate of each type that was drawn.
+         *
+         * @return the rates, in the order of the types
+         */
+        public Map<TileType, Double> getFailureRates() {
+            Map<TileType, Double> rates = new EnumMap<>(TileType.class);
+            for (TileType type : TYPES) {
+                if (statistics.drawn[type.ordinal()] > 0) rates.put(type, getFailureRate(type));
+            }
+            return rates;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games in %.2f s (%.0f games/s)%nscores: %s%nfailed tiles: %.2f %%, failed games: %.2f %%",
+                    getGames(), elapsedNanos / 1e9, getGamesPerSecond(), getScores(),
+                    100 * getFailureRate(), 100 * getFailedGameRate());
+        }
+    }
+
+    /**
+     * Runs a simulation and prints its results.
+     *
+     * @param args the number of games (100000 by default), the policy ({@code random} by default), the seed
+     * (42 by default), then optionally the distribution of each die as parsed by {@link TileDistribution#parse(String)}
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        Policy policy = Policy.named(args.length > 1 ? args[1] : "random");
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        List<TileDistribution> dice = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            dice.add(TileDistribution.parse(args[i]));
+        }
+        Simulator simulator = new Simulator(STANDARD_ROUNDS, dice.isEmpty() ? standardDice() : dice, policy,
+                ForkJoinPool.commonPool());
+        simulator.run(Math.min(games, 1000), seed); // Préchauffage
+        Result result = simulator.run(games, seed);
+        System.out.println(result);
+        result.getFailureRates().forEach((type, rate) -> System.out.printf("  %-26s %.2f %%%n", type, 100 * rate));
+    }
+}
@@ -0,0 +1,161 @@
+package projet;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Fan-out test of {@link SpectatorServer}: starts a server in the same JVM, connects many spectators with the JDK
+ * WebSocket client, then plays random games on the board while every spectator rebuilds it from the messages.
+ * Reports the throughput of the writer and of the pushes, how much the deltas were coalesced, and checks that every
+ * spectator ends with the same board as the writer.
+ */
+public class SpectatorLoadGenerator {
+
+	/**
+     * A spectator rebuilding the board from the messages it receives.
+     */
+    private static final class Spectator implements WebSocket.Listener {
+
+    	/**
+         * The full state rebuilt so far, or {@code null} before the first message.
+         */
+        private ByteBuffer state;
+
+        /**
+         * The parts of the message being received.
+         */
+        private ByteBuffer partial = ByteBuffer.allocate(BoardCodec.fullLength(Board.SIZE));
+
+        /**
+         * The number of messages received.
+         */
+        private volatile long messages;
+
+        /**
+         * The version of the rebuilt state.
+         */
+        private volatile int version = -1;
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            if (partial.remaining() < data.remaining()) {
+                partial = ByteBuffer.allocate(2 * (partial.position() + data.remaining())).put(partial.flip());
+            }
+            partial.put(data);
+            if (last) {
+                ByteBuffer message = partial.flip();
+                if (message.get(1) == BoardCodec.FULL) {
+                    state = ByteBuffer.allocate(message.remaining()).put(message).flip();
+                } else {
+                    BoardCodec.applyDelta(message, state);
+                }
+                partial.clear();
+                messages++;
+                version = BoardCodec.version(state);
+            }
+            webSocket.request(1);
+            return null;
+        }
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args the number of spectators (2000 by default), the number of games played (50 by default) and the
+     *        placements per second of the writer (1000 by default, 0 for as fast as possible)
+     * @throws Exception if the server cannot be started or a spectator cannot connect
+     */
+    public static void main(String[] args) throws Exception {
+        int spectators = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        ConcurrentBoard board = new ConcurrentBoard();
+        try (SpectatorServer server = new SpectatorServer(0, board)) {
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            URI uri = URI.create("ws://localhost:" + server.getPort() + "/");
+
+            long start = System.nanoTime();
+            List<Spectator> listeners = new ArrayList<>();
+            List<CompletableFuture<WebSocket>> connected = new ArrayList<>();
+            for (int i = 0; i < spectators; i++) {
+                Spectator spectator = new Spectator();
+                listeners.add(spectator);
+                connected.add(client.newWebSocketBuilder().buildAsync(uri, spectator));
+            }
+            List<WebSocket> sockets = new ArrayList<>();
+            for (CompletableFuture<WebSocket> socket : connected) {
+                sockets.add(socket.join());
+            }
+            double connectionSeconds = (System.nanoTime() - start) / 1e9;
+
+            // Parties jouées d'avance, pour ne mesurer que les poses et leur diffusion
+            Random random = new Random(42);
+            List<List<Placement>> played = new ArrayList<>();
+            for (int g = 0; g < games; g++) {
+                Board game = new Board();
+                List<Placement> moves = new ArrayList<>();
+                while (true) {
+                    List<Placement> legal = game.legalMoves().collect(Collectors.toList());
+                    if (legal.isEmpty()) break;
+                    Placement move = legal.get(random.nextInt(legal.size()));
+                    game.placeTile(move.getPosition(), move.toTile());
+                    moves.add(move);
+                }
+                played.add(moves);
+            }
+
+            AtomicInteger published = new AtomicInteger();
+            board.addSnapshotListener(snapshot -> published.incrementAndGet());
+            long sentBefore = server.getMessagesSent();
+            long bytesBefore = server.getBytesSent();
+            int placements = 0;
+            start = System.nanoTime();
+            for (List<Placement> moves : played) {
+                long mark = board.mark();
+                for (Placement move : moves) {
+                    if (rate > 0) LockSupport.parkNanos(start + placements * 1_000_000_000L / rate - System.nanoTime());
+                    board.placeTile(move.getPosition(), move.toTile());
+                    placements++;
+                }
+                board.rollbackTo(mark);
+            }
+            double writerSeconds = (System.nanoTime() - start) / 1e9;
+            int finalVersion = board.snapshot().getVersion();
+            for (Spectator spectator : listeners) {
+                while (spectator.version != finalVersion) {
+                    Thread.sleep(1);
+                }
+            }
+            double fanOutSeconds = (System.nanoTime() - start) / 1e9;
+
+            ByteBuffer expected = ByteBuffer.allocate(BoardCodec.fullLength(Board.SIZE));
+            BoardCodec.encode(board.snapshot(), expected);
+            expected.flip();
+            long mismatches = listeners.stream().filter(spectator -> !spectator.state.equals(expected)).count();
+            long messages = server.getMessagesSent() - sentBefore;
+            long received = listeners.stream().mapToLong(spectator -> spectator.messages).sum();
+            for (WebSocket socket : sockets) {
+                socket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+            }
+
+            System.out.printf("%d spectators connected in %.2f s%n", spectators, connectionSeconds);
+            System.out.printf("%d placements and %d snapshots in %.2f s (%.0f placements/s)%n",
+                    placements, published.get(), writerSeconds, placements / writerSeconds);
+            System.out.printf("%d messages in %.2f s (%.0f messages/s, %.1f MB/s), %.1f%% of the snapshots sent%n",
+                    messages, fanOutSeconds, messages / fanOutSeconds, (server.getBytesSent() - bytesBefore) / fanOutSeconds / 1e6,
+                    100.0 * messages / ((double) published.get() * spectators));
+            System.out.printf("%d messages received, %d spectators with a different board%n", received, mismatches);
+        }
+    }
+}
@@ -0,0 +1,609 @@
+package projet;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket server pushing the changes of a {@link ConcurrentBoard} to any number of spectators, for the JavaScript
+ * front end.
+ * <p>
+ * A client connects to {@code ws://localhost:port/} and only receives binary messages: first the full state of the
+ * board, then a delta after every change, both in the {@link BoardCodec} format. Every message is a complete
+ * encoding, which the client applies with the same rules as {@link BoardCodec#applyDelta(ByteBuffer, ByteBuffer)}.
+ * Anything the client sends, apart from pings and the closing handshake, is ignored.
+ * <p>
+ * A single thread runs a {@link Selector} over every connection. The writer of the board only flags the new
+ * snapshot and wakes the selector, it never writes to a socket. Each connection has at most one message in flight:
+ * a client that reads slowly is not sent anything more until its socket drains, and then receives a single delta
+ * from the last version it was sent to the latest one. So a slow spectator costs no memory on the server and never
+ * delays the others; it only sees fewer, larger deltas. The messages are encoded once per version pair and shared by
+ * every connection at the same version.
+ */
+public final class SpectatorServer implements AutoCloseable {
+
+	/**
+     * The GUID appended to the key of the client to compute the handshake answer, defined by RFC 6455.
+     */
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    /**
+     * The opcode of a binary message.
+     */
+    private static final int BINARY = 0x2;
+
+    /**
+     * The opcode of a close frame.
+     */
+    private static final int CLOSE = 0x8;
+
+    /**
+     * The opcode of a ping frame.
+     */
+    private static final int PING = 0x9;
+
+    /**
+     * The opcode of a pong frame.
+     */
+    private static final int PONG = 0xA;
+
+    /**
+     * The size of the buffer receiving the handshake and the frames of a client.
+     */
+    private static final int READ_BUFFER = 2048;
+
+    /**
+     * The key of the full state in the cache of messages.
+     */
+    private static final int FULL_STATE = -1;
+
+    /**
+     * The board whose changes are pushed.
+     */
+    private final ConcurrentBoard board;
+
+    /**
+     * The selector of the connections.
+     */
+    private final Selector selector;
+
+    /**
+     * The listening socket.
+     */
+    private final ServerSocketChannel server;
+
+    /**
+     * The listener flagging the published snapshots.
+     */
+    private final Consumer<BoardSnapshot> listener;
+
+    /**
+     * Whether a snapshot was published since the selector last looked.
+     */
+    private final AtomicBoolean published = new AtomicBoolean();
+
+    /**
+     * The thread running the selector.
+     */
+    private final Thread thread;
+
+    /**
+     * Whether the server is running.
+     */
+    private volatile boolean running;
+
+    /**
+     * The latest snapshot seen by the selector thread.
+     */
+    private BoardSnapshot latest;
+
+    /**
+     * The messages leading to {@link #latest}, by version of the client, only used by the selector thread.
+     */
+    private final Map<Integer, ByteBuffer> messages = new HashMap<>();
+
+    /**
+     * The number of open WebSocket connections, only written by the selector thread.
+     */
+    private volatile int connections;
+
+    /**
+     * The number of board messages sent, only written by the selector thread.
+     */
+    private volatile long messagesSent;
+
+    /**
+     * The number of bytes written to the sockets, only written by the selector thread.
+     */
+    private volatile long bytesSent;
+
+    /**
+     * Constructs a server listening on the loopback interface.
+     *
+     * @param port the port to listen on, 0 for any free port
+     * @param board the board whose changes are pushed
+     * @throws IOException if the server cannot be bound
+     */
+    public SpectatorServer(int port, ConcurrentBoard board) throws IOException {
+        this.board = board;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.listener = snapshot -> {
+            if (published.compareAndSet(false, true)) selector.wakeup();
+        };
+        this.thread = new Thread(this::run, "spectator-server");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts pushing the changes of the board.
+     */
+    public void start() {
+        running = true;
+        board.addSnapshotListener(listener);
+        thread.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of spectators connected.
+     *
+     * @return the number of open WebSocket connections
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns the number of board messages sent since the start, full states and deltas.
+     *
+     * @return the number of messages
+     */
+    public long getMessagesSent() {
+        return messagesSent;
+    }
+
+    /**
+     * Returns the number of bytes written to the sockets since the start, handshakes and frame headers included.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Stops the server and closes every connection, without a closing handshake.
+     */
+    @Override
+    public void close() {
+        board.removeSnapshotListener(listener);
+        running = false;
+        selector.wakeup();
+        if (thread.isAlive() && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+            server.close();
+        } catch (IOException e) {
+            // Rien à faire, le serveur s'arrête
+        }
+    }
+
+    /**
+     * Runs the selector until the server is closed.
+     */
+    private void run() {
+        latest = board.snapshot();
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                break;
+            }
+            if (published.getAndSet(false)) pushAll();
+            for (SelectionKey key : selector.selectedKeys()) {
+                try {
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) read(connection);
+                        if (key.isValid() && key.isWritable()) flush(connection);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Une connexion défaillante ne doit jamais arrêter le sélecteur des autres
+                    if (key.attachment() != null) close((Connection) key.attachment());
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    /**
+     * Accepts the pending connections.
+     *
+     * @throws IOException if the listening socket fails
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    /**
+     * Sends the latest snapshot to every connection that has nothing in flight.
+     * The others get it, merged with any later change, once their socket drains.
+     */
+    private void pushAll() {
+        BoardSnapshot snapshot = board.snapshot();
+        if (snapshot == latest) return;
+        latest = snapshot;
+        messages.clear();
+        for (SelectionKey key : selector.keys()) {
+            Connection connection = (Connection) key.attachment();
+            if (connection == null || connection.out != null || !key.isValid()) continue;
+            try {
+                flush(connection);
+            } catch (IOException | RuntimeException e) {
+                close(connection);
+            }
+        }
+    }
+
+    /**
+     * Reads what a client sent: the handshake, then frames.
+     *
+     * @param connection the connection
+     * @throws IOException if the socket fails
+     */
+    private void read(Connection connection) throws IOException {
+        int read = connection.channel.read(connection.in);
+        if (read < 0) {
+            close(connection);
+            return;
+        }
+        if (!connection.upgraded) {
+            handshake(connection);
+        } else {
+            frames(connection);
+        }
+    }
+
+    /**
+     * Answers the opening handshake of a client once its request is complete, then sends it the full state.
+     *
+     * @param connection the connection
+     * @throws IOException if the socket fails
+     */
+    private void handshake(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        int end = -1;
+        for (int i = 3; i < in.position(); i++) {
+            if (in.get(i - 3) == '\r' && in.get(i - 2) == '\n' && in.get(i - 1) == '\r' && in.get(i) == '\n') {
+                end = i + 1;
+                break;
+            }
+        }
+        if (end < 0) {
+            if (!in.hasRemaining()) reject(connection);
+            return;
+        }
+        String[] lines = new String(in.array(), 0, end, StandardCharsets.ISO_8859_1).split("\r\n");
+        String key = null;
+        boolean upgrade = false;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon < 0) continue;
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+            if (name.equals("sec-websocket-key")) key = value;
+            if (name.equals("upgrade")) upgrade = value.equalsIgnoreCase("websocket");
+        }
+        if (!lines[0].startsWith("GET ") || key == null || !upgrade) {
+            reject(connection);
+            return;
+        }
+        in.flip().position(end);
+        in.compact();
+        connection.upgraded = true;
+        connections++;
+        connection.control.add(ascii("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept(key) + "\r\n\r\n"));
+        flush(connection);
+        if (connection.in.position() > 0) frames(connection);
+    }
+
+    /**
+     * Answers a request that is not a WebSocket handshake, then closes the connection.
+     *
+     * @param connection the connection
+     * @throws IOException if the socket fails
+     */
+    private void reject(Connection connection) throws IOException {
+        connection.control.add(ascii("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"));
+        connection.closing = true;
+        flush(connection);
+    }
+
+    /**
+     * Handles the complete frames received from a client: answers the pings and the closing handshake.
+     *
+     * @param connection the connection
+     * @throws IOException if the socket fails
+     */
+    private void frames(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (!connection.closing && in.remaining() >= 2) {
+            int start = in.position();
+            int opcode = in.get(start) & 0x0F;
+            boolean masked = (in.get(start + 1) & 0x80) != 0;
+            long length = in.get(start + 1) & 0x7F;
+            int header = 2;
+            if (length == 126) {
+                if (in.remaining() < 4) break;
+                length = in.getShort(start + 2) & 0xFFFF;
+                header = 4;
+            } else if (length == 127) {
+                if (in.remaining() < 10) break;
+                length = in.getLong(start + 2);
+                header = 10;
+            }
+            if (!masked || length < 0) {
+                // Les trames d'un client doivent être masquées, et la longueur sur 64 bits positive (RFC 6455, 5.2)
+                closeWith(connection, 1002);
+                break;
+            }
+            if (length > in.capacity() - header - 4) {
+                closeWith(connection, 1009);
+                break;
+            }
+            if (in.remaining() < header + 4 + length) break;
+            byte[] payload = new byte[(int) length];
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] = (byte) (in.get(start + header + 4 + i) ^ in.get(start + header + (i & 3)));
+            }
+            in.position(start + header + 4 + payload.length);
+            if (opcode == PING) {
+                connection.control.add(frame(PONG, payload));
+            } else if (opcode == CLOSE) {
+                connection.control.add(frame(CLOSE, payload.length >= 2 ? new byte[] {payload[0], payload[1]} : payload));
+                connection.closing = true;
+            }
+        }
+        in.compact();
+        flush(connection);
+    }
+
+    /**
+     * Starts the closing handshake with a status code, after which nothing more is sent or read.
+     *
+     * @param connection the connection
+     * @param status the status code of RFC 6455
+     */
+    private static void closeWith(Connection connection, int status) {
+        connection.control.add(frame(CLOSE, new byte[] {(byte) (status >> 8), (byte) status}));
+        connection.closing = true;
+    }
+
+    /**
+     * Writes what a connection has to send until its socket is full: the message in flight, the control frames,
+     * then a message bringing the client to the latest snapshot.
+     * Waits for the socket to drain if it is full, and closes the connection once its closing frame is sent.
+     *
+     * @param connection the connection
+     * @throws IOException if the socket fails
+     */
+    private void flush(Connection connection) throws IOException {
+        while (true) {
+            if (connection.out == null) {
+                connection.out = connection.control.poll();
+                if (connection.out == null && connection.upgraded && !connection.closing) {
+                    connection.out = nextMessage(connection);
+                }
+                if (connection.out == null) {
+                    if (connection.closing) {
+                        close(connection);
+                    } else {
+                        connection.key.interestOps(SelectionKey.OP_READ);
+                    }
+                    return;
+                }
+            }
+            bytesSent += connection.channel.write(connection.out);
+            if (connection.out.hasRemaining()) {
+                connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.out = null;
+        }
+    }
+
+    /**
+     * Returns the message bringing a client from the last snapshot it was sent to the latest one.
+     *
+     * @param connection the connection
+     * @return a buffer of its own over the shared message, or {@code null} if the client is up to date
+     */
+    private ByteBuffer nextMessage(Connection connection) {
+        BoardSnapshot sent = connection.sent;
+        if (sent == latest) return null;
+        int key = sent == null ? FULL_STATE : sent.getVersion();
+        ByteBuffer message = messages.get(key);
+        if (message == null) {
+            ByteBuffer payload;
+            if (sent == null) {
+                payload = ByteBuffer.allocate(BoardCodec.fullLength(latest.getSize()));
+                BoardCodec.encode(latest, payload);
+            } else {
+                int[] cells = latest.changedCells(sent);
+                payload = ByteBuffer.allocate(BoardCodec.deltaLength(cells.length));
+                BoardCodec.encodeDelta(sent.getVersion(), latest, cells, payload);
+            }
+            message = frame(BINARY, payload.array()).asReadOnlyBuffer();
+            messages.put(key, message);
+        }
+        connection.sent = latest;
+        messagesSent++;
+        return message.duplicate();
+    }
+
+    /**
+     * Closes a connection.
+     *
+     * @param connection the connection
+     */
+    private void close(Connection connection) {
+        if (connection.key != null) connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Déjà fermée
+        }
+        if (connection.upgraded) {
+            connection.upgraded = false;
+            connections--;
+        }
+    }
+
+    /**
+     * Builds an unmasked, unfragmented frame.
+     *
+     * @param opcode the opcode
+     * @param payload the payload
+     * @return the frame, ready to be written
+     */
+    private static ByteBuffer frame(int opcode, byte[] payload) {
+        int header = payload.length < 126 ? 2 : payload.length <= 0xFFFF ? 4 : 10;
+        ByteBuffer frame = ByteBuffer.allocate(header + payload.length);
+        frame.put((byte) (0x80 | opcode));
+        if (header == 2) {
+            frame.put((byte) payload.length);
+        } else if (header == 4) {
+            frame.put((byte) 126).putShort((short) payload.length);
+        } else {
+            frame.put((byte) 127).putLong(payload.length);
+        }
+        return frame.put(payload).flip();
+    }
+
+    /**
+     * Encodes a text in ASCII.
+     *
+     * @param text the text
+     * @return the buffer, ready to be written
+     */
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Computes the answer to the key of a client handshake.
+     *
+     * @param key the value of its {@code Sec-WebSocket-Key} header
+     * @return the value of the {@code Sec-WebSocket-Accept} header
+     */
+    private static String accept(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(sha1.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is required by every Java platform", e);
+        }
+    }
+
+    /**
+     * The state of one client, only used by the selector thread.
+     */
+    private static final class Connection {
+
+    	/**
+         * The socket of the client.
+         */
+        final SocketChannel channel;
+
+        /**
+         * The selection key of the socket.
+         */
+        SelectionKey key;
+
+        /**
+         * The bytes received and not handled yet, in write mode.
+         */
+        final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+
+        /**
+         * The handshake answer and control frames waiting to be sent, before any other message.
+         */
+        final Queue<ByteBuffer> control = new ArrayDeque<>();
+
+        /**
+         * The frame being written, or {@code null} if nothing is in flight.
+         */
+        ByteBuffer out;
+
+        /**
+         * The last snapshot sent to the client, or {@code null} before the full state.
+         */
+        BoardSnapshot sent;
+
+        /**
+         * Whether the handshake succeeded.
+         */
+        boolean upgraded;
+
+        /**
+         * Whether the connection closes once its control frames are sent.
+         */
+        boolean closing;
+
+        /**
+         * Constructs the state of a new client.
+         *
+         * @param channel the socket of the client
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package projet;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Every tile sprite, in every orientation, pre-rotated and scaled into a single ARGB pixel array.
+ * The sprite of combination {@code c} of {@link RotationTable#index(TileType, Orientation)} is in row {@code c / 4}
+ * and column {@code c % 4} of the atlas, so a tile is drawn by copying its rows, without any {@link Graphics2D}.
+ * An atlas is immutable once built and can be shared by any number of rendering threads.
+ */
+public final class SpriteAtlas {
+
+	/**
+     * The number of sprites per row of the atlas, one per orientation.
+     */
+    private static final int COLUMNS = 4;
+
+    /**
+     * The size of a sprite in pixels.
+     */
+    private final int tileSize;
+
+    /**
+     * The width of the atlas in pixels.
+     */
+    private final int width;
+
+    /**
+     * The ARGB pixels of the atlas, row after row.
+     */
+    private final int[] pixels;
+
+    /**
+     * Builds an atlas from the {@link TileSprites}, scaled to a tile size.
+     *
+     * @param tileSize the size of a sprite in pixels
+     * @throws java.io.UncheckedIOException if an image cannot be read
+     */
+    public SpriteAtlas(int tileSize) {
+        if (tileSize <= 0) throw new IllegalArgumentException("The tile size must be positive: " + tileSize);
+        this.tileSize = tileSize;
+        this.width = COLUMNS * tileSize;
+        int rows = RotationTable.COMBINATIONS / COLUMNS;
+        BufferedImage atlas = new BufferedImage(width, rows * tileSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        for (int code = 0; code < RotationTable.COMBINATIONS; code++) {
+            BufferedImage sprite = TileSprites.get(RotationTable.typeOf(code), RotationTable.orientationOf(code));
+            g.drawImage(sprite, code % COLUMNS * tileSize, code / COLUMNS * tileSize, tileSize, tileSize, null);
+        }
+        g.dispose();
+        this.pixels = ((DataBufferInt) atlas.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Returns the size of a sprite.
+     *
+     * @return the size in pixels
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Copies the sprite of a combination into an ARGB pixel array.
+     *
+     * @param code the combination index of {@link RotationTable#index(TileType, Orientation)}
+     * @param target the pixels of the target image, row after row
+     * @param targetWidth the width of the target image
+     * @param x the left of the sprite in the target
+     * @param y the top of the sprite in the target
+     */
+    public void draw(int code, int[] target, int targetWidth, int x, int y) {
+        int source = code / COLUMNS * tileSize * width + code % COLUMNS * tileSize;
+        int destination = y * targetWidth + x;
+        for (int row = 0; row < tileSize; row++) {
+            System.arraycopy(pixels, source, target, destination, tileSize);
+            source += width;
+            destination += targetWidth;
+        }
+    }
+}
@@ -1,12 +1,9 @@
 package projet;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import javax.imageio.ImageIO;
 
 /**
  * Represents a tile on the game board. The tile has a type, an orientation, and connections to other tiles.
- * Each tile is also associated with an image.
+ * Each tile is also associated with an image, shared through {@link TileSprites}.
  */
 public class Tile {
 	
@@ -20,84 +17,55 @@ public class Tile {
      */
     private Orientation orientation;
     
-    /**
-     * The image representing the tile.
-     */
-    private final BufferedImage image;
-    
     /**
      * The connections of the tile in each direction (North, East, South, West).
      * The possible connection types are HIGHWAY, RAILWAY, STATION, or NONE.
+     * The array is shared by every tile of the same type and orientation, see {@link RotationTable}, and never modified.
      */
-    private final ConnectionType[] connections; // [NORTH, EAST, SOUTH, WEST]
+    private ConnectionType[] connections; // [NORTH, EAST, SOUTH, WEST]
 
     /**
      * Constructs a tile with a specific type, initializes its orientation to NORTH,
-     * loads its image, and sets up its connections based on the tile type.
+     * and sets up its connections based on the tile type.
+     * No image is read here, the sprite is looked up in {@link TileSprites} when needed.
      *
      * @param type the type of the tile (e.g., HIGHWAY, RAILWAY, STATION)
-     * @throws IOException if there is an issue loading the tile image
      */
-    public Tile(TileType type) throws IOException {
+    public Tile(TileType type) {
         this.type = type;
         this.orientation = Orientation.NORTH;
-        this.image = ImageIO.read(new File(type.getImagePath()));
-        this.connections = initializeConnections();
+        this.connections = RotationTable.sharedConnections(type, orientation);
     }
 
     /**
-     * Initializes the connections of the tile based on its type.
-     * Each tile type has predefined connections in each of the four directions: NORTH, EAST, SOUTH, and WEST.
+     * Creates an independent copy of the tile, with the same type, orientation and connections.
      *
-     * @return an array of ConnectionType representing the tile's connections
+     * @return the new tile
      */
-    private ConnectionType[] initializeConnections() {
-        switch (type) {
-            case HIGHWAY_STRAIGHT:
-                return new ConnectionType[]{ConnectionType.HIGHWAY, ConnectionType.NONE, ConnectionType.HIGHWAY, ConnectionType.NONE};
-            case HIGHWAY_CURVE:
-                return new ConnectionType[]{ConnectionType.HIGHWAY, ConnectionType.HIGHWAY, ConnectionType.NONE, ConnectionType.NONE};
-            case HIGHWAY_JUNCTION:
-                return new ConnectionType[]{ConnectionType.HIGHWAY, ConnectionType.HIGHWAY, ConnectionType.HIGHWAY, ConnectionType.HIGHWAY};
-            case HIGHWAY_CROSS:
-                return new ConnectionType[]{ConnectionType.HIGHWAY, ConnectionType.HIGHWAY, ConnectionType.HIGHWAY, ConnectionType.HIGHWAY};
-            case RAILWAY_STRAIGHT:
-                return new ConnectionType[]{ConnectionType.RAILWAY, ConnectionType.NONE, ConnectionType.RAILWAY, ConnectionType.NONE};
-            case RAILWAY_CURVE:
-                return new ConnectionType[]{ConnectionType.RAILWAY, ConnectionType.RAILWAY, ConnectionType.NONE, ConnectionType.NONE};
-            case RAILWAY_JUNCTION:
-                return new ConnectionType[]{ConnectionType.RAILWAY, ConnectionType.RAILWAY, ConnectionType.RAILWAY, ConnectionType.RAILWAY};
-            case RAILWAY_CROSS:
-                return new ConnectionType[]{ConnectionType.RAILWAY, ConnectionType.RAILWAY, ConnectionType.RAILWAY, ConnectionType.RAILWAY};
-            case STATION_STRAIGHT:
-                return new ConnectionType[]{ConnectionType.STATION, ConnectionType.NONE, ConnectionType.STATION, ConnectionType.NONE};
-            case STATION_CURVE:
-                return new ConnectionType[]{ConnectionType.STATION, ConnectionType.STATION, ConnectionType.NONE, ConnectionType.NONE};
-            case STATION_CROSS:
-                return new ConnectionType[]{ConnectionType.STATION, ConnectionType.STATION, ConnectionType.STATION, ConnectionType.STATION};
-            case STATION_REFLECT:
-                return new ConnectionType[]{ConnectionType.STATION, ConnectionType.STATION, ConnectionType.STATION, ConnectionType.STATION};
-            case STATION_HIGHWAY_JUNCTION:
-                return new ConnectionType[]{ConnectionType.STATION, ConnectionType.HIGHWAY, ConnectionType.STATION, ConnectionType.HIGHWAY};
-            case STATION_RAILWAY_JUNCTION:
-                return new ConnectionType[]{ConnectionType.STATION, ConnectionType.RAILWAY, ConnectionType.STATION, ConnectionType.RAILWAY};
-            case OVERPASS:
-                return new ConnectionType[]{ConnectionType.HIGHWAY, ConnectionType.RAILWAY, ConnectionType.HIGHWAY, ConnectionType.RAILWAY};
-            default:
-                return new ConnectionType[]{ConnectionType.NONE, ConnectionType.NONE, ConnectionType.NONE, ConnectionType.NONE}; // Connexions par défaut
-        }
+    public Tile copy() {
+        Tile copy = new Tile(type);
+        copy.orientation = orientation;
+        copy.connections = connections;
+        return copy;
     }
 
     /**
      * Rotates the tile 90 degrees clockwise and adjusts the connections accordingly.
+     * The connections are looked up in {@link RotationTable}, so the cost does not depend on the orientation.
      */
     public void rotate() {
-        orientation = orientation.rotate();
-        ConnectionType temp = connections[0];
-        for (int i = 0; i < 3; i++) {
-            connections[i] = connections[i + 1];
-        }
-        connections[3] = temp;
+        setOrientation(orientation.rotate());
+    }
+
+    /**
+     * Sets the orientation of the tile directly and adjusts the connections accordingly.
+     * This is equivalent to calling {@link #rotate()} until the tile reaches the given orientation.
+     *
+     * @param orientation the new orientation of the tile
+     */
+    public void setOrientation(Orientation orientation) {
+        this.orientation = orientation;
+        this.connections = RotationTable.sharedConnections(type, orientation);
     }
     
     /**
@@ -119,21 +87,42 @@ public class Tile {
     }
 
     /**
-     * Returns the array of connections for the tile.
+     * Returns a copy of the connections of the tile, so that callers cannot change the tile through it.
      *
      * @return an array of ConnectionType representing the connections (NORTH, EAST, SOUTH, WEST)
      */
     public ConnectionType[] getConnections() {
-        return connections;
+        return connections.clone();
+    }
+
+    /**
+     * Returns the connection of the tile on one side, without copying the connections.
+     *
+     * @param side the side (0 = North, 1 = East, 2 = South, 3 = West)
+     * @return the connection on that side
+     */
+    public ConnectionType getConnection(int side) {
+        return connections[side];
+    }
+
+    /**
+     * Returns the connections of the tile as a packed {@link ConnectionSignature}.
+     *
+     * @return the packed connections for the current type and orientation
+     */
+    public int getSignature() {
+        return RotationTable.signature(type, orientation);
     }
     
     /**
-     * Returns the image representing the tile.
+     * Returns the image representing the tile in its current orientation.
+     * The image is shared with every tile of the same type and orientation and must not be modified.
      *
      * @return the image of the tile
+     * @throws java.io.UncheckedIOException if the image of the tile type cannot be read
      */
     public BufferedImage getImage() {
-        return image;
+        return TileSprites.get(type, orientation);
     }
 
 }
\ No newline at end of file
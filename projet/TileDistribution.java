@@ -0,0 +1,110 @@
+package projet;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A weighted distribution of tile types, such as the faces of a die.
+ * A distribution is immutable, so it can be shared between threads; each thread draws with its own generator.
+ */
+public final class TileDistribution {
+
+	/**
+     * The tile types.
+     */
+    private static final TileType[] TYPES = TileType.values();
+
+    /**
+     * The cumulative weights, {@code cumulative[i]} being the sum of the weights of the types up to {@code i} included.
+     */
+    private final int[] cumulative;
+
+    /**
+     * Constructs a distribution from the weight of each type.
+     *
+     * @param weights the weight of each type, the missing types having a weight of 0
+     * @throws IllegalArgumentException if a weight is negative or if every weight is 0
+     */
+    public TileDistribution(Map<TileType, Integer> weights) {
+        cumulative = new int[TYPES.length];
+        int total = 0;
+        for (TileType type : TYPES) {
+            int weight = weights.getOrDefault(type, 0);
+            if (weight < 0) throw new IllegalArgumentException("Negative weight for " + type + ": " + weight);
+            total = Math.addExact(total, weight);
+            cumulative[type.ordinal()] = total;
+        }
+        if (total == 0) throw new IllegalArgumentException("The distribution has no tile type");
+    }
+
+    /**
+     * Returns the distribution in which every tile type has the same weight.
+     *
+     * @return the uniform distribution
+     */
+    public static TileDistribution uniform() {
+        Map<TileType, Integer> weights = new EnumMap<>(TileType.class);
+        for (TileType type : TYPES) {
+            weights.put(type, 1);
+        }
+        return new TileDistribution(weights);
+    }
+
+    /**
+     * Parses a distribution written as comma-separated {@code TYPE=weight} pairs,
+     * for instance {@code HIGHWAY_STRAIGHT=2,RAILWAY_CURVE=1}.
+     *
+     * @param text the distribution
+     * @return the distribution
+     * @throws IllegalArgumentException if the text is malformed
+     */
+    public static TileDistribution parse(String text) {
+        Map<TileType, Integer> weights = new EnumMap<>(TileType.class);
+        for (String pair : text.split(",")) {
+            int equals = pair.indexOf('=');
+            if (equals < 0) throw new IllegalArgumentException("Expected TYPE=weight: " + pair);
+            TileType type = TileType.valueOf(pair.substring(0, equals).trim());
+            weights.merge(type, Integer.parseInt(pair.substring(equals + 1).trim()), Integer::sum);
+        }
+        return new TileDistribution(weights);
+    }
+
+    /**
+     * Draws a tile type.
+     *
+     * @param random the generator of the current thread
+     * @return the drawn type
+     */
+    public TileType draw(SplittableRandom random) {
+        int pick = random.nextInt(cumulative[cumulative.length - 1]);
+        int i = 0;
+        while (cumulative[i] <= pick) {
+            i++;
+        }
+        return TYPES[i];
+    }
+
+    /**
+     * Returns the probability of drawing a tile type.
+     *
+     * @param type the type
+     * @return the probability, between 0 and 1
+     */
+    public double probability(TileType type) {
+        int i = type.ordinal();
+        return (double) (cumulative[i] - (i == 0 ? 0 : cumulative[i - 1])) / cumulative[cumulative.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < TYPES.length; i++) {
+            int weight = cumulative[i] - (i == 0 ? 0 : cumulative[i - 1]);
+            if (weight == 0) continue;
+            if (builder.length() > 0) builder.append(',');
+            builder.append(TYPES[i]).append('=').append(weight);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package projet;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.imageio.ImageIO;
+
+/**
+ * Shared, thread-safe registry of tile sprites.
+ * Each tile image is decoded once, the first time it is needed, and its four rotated variants are
+ * rendered at the same time. Tiles of the same type and orientation all share the same image.
+ * <p>
+ * The images are read from a single atlas on the classpath, {@value #ATLAS_RESOURCE}, streamed and decoded the
+ * first time a sprite is needed; without it, each image is read from the {@code graphics/} directory.
+ * Nothing is read until a sprite is asked for, so the game model, the server and the simulator run headless
+ * without any image. The atlas is built from the directory with {@link #main(String[])}.
+ */
+public final class TileSprites {
+
+	/**
+     * The sprites of each tile type, indexed by {@link Orientation#ordinal()}.
+     */
+    private static final ConcurrentMap<TileType, BufferedImage[]> SPRITES = new ConcurrentHashMap<>();
+
+    /**
+     * The classpath resource of the atlas: the image of every tile type side by side, in the order of {@link TileType},
+     * each one square and unrotated.
+     */
+    public static final String ATLAS_RESOURCE = "/projet/tiles.png";
+
+    /**
+     * The decoded atlas, or {@code null} until it is needed.
+     */
+    private static volatile BufferedImage atlas;
+
+    /**
+     * Whether the atlas was looked for, so a missing atlas is only looked for once.
+     */
+    private static volatile boolean atlasLoaded;
+
+    /**
+     * Private constructor, this class only holds static helpers.
+     */
+    private TileSprites() {
+    }
+
+    /**
+     * Returns the sprite of a tile type in a given orientation, decoding it on first use.
+     *
+     * @param type the type of the tile.
+     * @param orientation the orientation of the tile.
+     * @return the shared sprite, rotated so that its edges match {@link Tile#getConnections()}.
+     * @throws UncheckedIOException if the image of the tile type cannot be read.
+     */
+    public static BufferedImage get(TileType type, Orientation orientation) {
+        return SPRITES.computeIfAbsent(type, TileSprites::load)[orientation.ordinal()];
+    }
+
+    /**
+     * Decodes the sprites of every tile type, so that later calls to {@link #get(TileType, Orientation)} never read a file.
+     *
+     * @throws IOException if one of the tile images cannot be read.
+     */
+    public static void preload() throws IOException {
+        try {
+            for (TileType type : TileType.values()) {
+                SPRITES.computeIfAbsent(type, TileSprites::load);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads the image of a tile type and renders its four orientations.
+     *
+     * @param type the type of the tile.
+     * @return the sprites indexed by {@link Orientation#ordinal()}.
+     * @throws UncheckedIOException if the image cannot be read.
+     */
+    private static BufferedImage[] load(TileType type) {
+        BufferedImage image;
+        BufferedImage packed = atlas();
+        if (packed != null) {
+            int size = packed.getHeight();
+            image = packed.getSubimage(type.ordinal() * size, 0, size, size);
+        } else {
+            try {
+                image = ImageIO.read(new File(type.getImagePath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + type.getImagePath(), e);
+            }
+            if (image == null) {
+                throw new UncheckedIOException(new IOException("Unsupported image format: " + type.getImagePath()));
+            }
+        }
+        Orientation[] orientations = Orientation.values();
+        BufferedImage[] sprites = new BufferedImage[orientations.length];
+        for (Orientation orientation : orientations) {
+            sprites[orientation.ordinal()] = rotate(image, orientation.ordinal());
+        }
+        return sprites;
+    }
+
+    /**
+     * Returns the atlas of the classpath, decoding it on first use.
+     *
+     * @return the atlas, or {@code null} if there is none on the classpath.
+     * @throws UncheckedIOException if the atlas cannot be read.
+     */
+    private static BufferedImage atlas() {
+        if (!atlasLoaded) {
+            synchronized (TileSprites.class) {
+                if (!atlasLoaded) {
+                    atlas = readAtlas();
+                    atlasLoaded = true;
+                }
+            }
+        }
+        return atlas;
+    }
+
+    /**
+     * Streams and decodes the atlas of the classpath.
+     *
+     * @return the atlas, or {@code null} if there is none on the classpath.
+     * @throws UncheckedIOException if the atlas cannot be read or does not hold one square image per tile type.
+     */
+    private static BufferedImage readAtlas() {
+        try (InputStream in = TileSprites.class.getResourceAsStream(ATLAS_RESOURCE)) {
+            if (in == null) return null;
+            BufferedImage image = ImageIO.read(new BufferedInputStream(in, 1 << 16));
+            if (image == null || image.getWidth() != image.getHeight() * TileType.values().length) {
+                throw new IOException("Not an atlas of " + TileType.values().length + " square tiles");
+            }
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + ATLAS_RESOURCE, e);
+        }
+    }
+
+    /**
+     * Packs the images of the {@code graphics/} directory into an atlas, to put on the classpath as {@value #ATLAS_RESOURCE}.
+     *
+     * @param args the path of the atlas to write, {@code projet/tiles.png} by default
+     * @throws IOException if an image cannot be read or the atlas cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path target = Paths.get(args.length > 0 ? args[0] : "projet/tiles.png");
+        TileType[] types = TileType.values();
+        BufferedImage first = ImageIO.read(new File(types[0].getImagePath()));
+        if (first == null) throw new IOException("Unsupported image format: " + types[0].getImagePath());
+        int size = first.getHeight();
+        BufferedImage packed = new BufferedImage(size * types.length, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = packed.createGraphics();
+        for (TileType type : types) {
+            BufferedImage image = ImageIO.read(new File(type.getImagePath()));
+            if (image == null) throw new IOException("Unsupported image format: " + type.getImagePath());
+            g.drawImage(image, type.ordinal() * size, 0, size, size, null);
+        }
+        g.dispose();
+        if (target.getParent() != null) Files.createDirectories(target.getParent());
+        if (!ImageIO.write(packed, "png", target.toFile())) throw new IOException("No PNG writer");
+        System.out.println("Packed " + types.length + " tiles of " + size + " pixels into " + target);
+    }
+
+    /**
+     * Renders an image rotated by quarter turns.
+     * {@link Tile#rotate()} moves the East connection to the North, so the image is turned counter-clockwise.
+     *
+     * @param image the source image.
+     * @param quarterTurns the number of quarter turns.
+     * @return a new image holding the rotated source.
+     */
+    static BufferedImage rotate(BufferedImage image, int quarterTurns) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = (quarterTurns & 1) != 0;
+        BufferedImage rotated = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = rotated.createGraphics();
+        g.translate(rotated.getWidth() / 2.0, rotated.getHeight() / 2.0);
+        g.rotate(-quarterTurns * Math.PI / 2);
+        g.translate(-width / 2.0, -height / 2.0);
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rotated;
+    }
+}
@@ -0,0 +1,311 @@
+package projet;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size cache of evaluation results, keyed by the {@link Zobrist} hash of a board.
+ * The table is split into buckets of {@link #WAYS} entries; a bucket belongs to one of a fixed number of stripes,
+ * and each stripe has its own lock, so threads working on different positions rarely wait for each other.
+ * When a bucket is full, the {@link Eviction} policy chooses which entry is replaced.
+ */
+public class TranspositionTable {
+
+	/**
+     * The number of entries of a bucket.
+     */
+    public static final int WAYS = 4;
+
+    /**
+     * The depth marking an empty entry.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Policies choosing the entry replaced when a bucket is full.
+     */
+    public enum Eviction {
+
+    	/** Always store the new entry, replacing the oldest one of the bucket. */
+        ALWAYS_REPLACE,
+
+        /** Replace the entry of lowest depth, unless the new entry is shallower than all of them. */
+        DEPTH_PREFERRED,
+
+        /** Keep the stored entries, new positions are only stored in free entries. */
+        KEEP_EXISTING
+    }
+
+    /** The hash of each entry. */
+    private final long[] keys;
+
+    /** The value of each entry. */
+    private final double[] values;
+
+    /** The depth of each entry, or {@link #EMPTY}. */
+    private final int[] depths;
+
+    /** The write stamp of each entry, to find the oldest one of a bucket. */
+    private final long[] stamps;
+
+    /** The locks of the stripes. */
+    private final Object[] locks;
+
+    /** The mask selecting a bucket. */
+    private final int bucketMask;
+
+    /** The mask selecting a stripe. */
+    private final int stripeMask;
+
+    /** The eviction policy. */
+    private final Eviction eviction;
+
+    /** The number of writes of each stripe, used as stamps and only updated under the stripe's lock. */
+    private final long[] clocks;
+
+    /** The number of successful lookups. */
+    private final LongAdder hits = new LongAdder();
+
+    /** The number of failed lookups. */
+    private final LongAdder misses = new LongAdder();
+
+    /** The number of entries written. */
+    private final LongAdder stores = new LongAdder();
+
+    /** The number of entries replaced by another position. */
+    private final LongAdder evictions = new LongAdder();
+
+    /** The number of entries dropped by the eviction policy. */
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Constructs a table.
+     *
+     * @param capacity the minimum number of entries, rounded up to a power of two
+     * @param stripes the minimum number of locks, rounded up to a power of two
+     * @param eviction the eviction policy
+     */
+    public TranspositionTable(int capacity, int stripes, Eviction eviction) {
+        int buckets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS - 1) << 1);
+        int stripeCount = Math.min(buckets, Integer.highestOneBit(Math.max(1, stripes - 1) << 1));
+        this.keys = new long[buckets * WAYS];
+        this.values = new double[buckets * WAYS];
+        this.depths = new int[buckets * WAYS];
+        this.stamps = new long[buckets * WAYS];
+        Arrays.fill(depths, EMPTY);
+        this.clocks = new long[stripeCount];
+        this.locks = new Object[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            locks[i] = new Object();
+        }
+        this.bucketMask = buckets - 1;
+        this.stripeMask = stripeCount - 1;
+        this.eviction = eviction;
+    }
+
+    /**
+     * Returns the bucket of a hash. The high bits are folded into the low ones, for keys that are not Zobrist hashes.
+     *
+     * @param key the hash
+     * @return the index of the bucket
+     */
+    private int bucket(long key) {
+        return (int) (key ^ key >>> 32) & bucketMask;
+    }
+
+    /**
+     * Looks up the value stored for a position.
+     *
+     * @param key the hash of the position
+     * @return the stored value, or {@link Double#NaN} if the position is not in the table
+     */
+    public double get(long key) {
+        return get(key, 0);
+    }
+
+    /**
+     * Looks up the value stored for a position, only if it was evaluated deeply enough.
+     *
+     * @param key the hash of the position
+     * @param minDepth the minimum depth of a usable entry
+     * @return the stored value, or {@link Double#NaN} if no usable entry is in the table
+     */
+    public double get(long key, int minDepth) {
+        int bucket = bucket(key);
+        int first = bucket * WAYS;
+        synchronized (locks[bucket & stripeMask]) {
+            for (int i = first; i < first + WAYS; i++) {
+                if (depths[i] != EMPTY && keys[i] == key && depths[i] >= minDepth) {
+                    hits.increment();
+                    return values[i];
+                }
+            }
+        }
+        misses.increment();
+        return Double.NaN;
+    }
+
+    /**
+     * Stores the value of a position. An entry of the same position is updated if the new depth is at least as large.
+     *
+     * @param key the hash of the position
+     * @param value the evaluation of the position
+     * @param depth the depth, or number of samples, behind the evaluation, never negative
+     * @throws IllegalArgumentException if the depth is negative
+     */
+    public void put(long key, double value, int depth) {
+        if (depth < 0) throw new IllegalArgumentException("The depth must not be negative: " + depth);
+        int bucket = bucket(key);
+        int first = bucket * WAYS;
+        synchronized (locks[bucket & stripeMask]) {
+            int victim = EMPTY;
+            for (int i = first; i < first + WAYS; i++) {
+                if (depths[i] != EMPTY && keys[i] == key) {
+                    if (depth >= depths[i]) write(i, key, value, depth);
+                    return;
+                }
+                if (depths[i] == EMPTY && victim == EMPTY) victim = i;
+            }
+            if (victim == EMPTY) {
+                victim = victim(first, depth);
+                if (victim == EMPTY) {
+                    rejections.increment();
+                    return;
+                }
+                evictions.increment();
+            }
+            write(victim, key, value, depth);
+        }
+    }
+
+    /**
+     * Chooses the entry of a full bucket replaced by a new position, according to the policy.
+     *
+     * @param first the first entry of the bucket
+     * @param depth the depth of the new entry
+     * @return the entry to replace, or {@link #EMPTY} to drop the new entry
+     */
+    private int victim(int first, int depth) {
+        int victim = first;
+        switch (eviction) {
+            case ALWAYS_REPLACE:
+                for (int i = first + 1; i < first + WAYS; i++) {
+                    if (stamps[i] < stamps[victim]) victim = i;
+                }
+                return victim;
+            case DEPTH_PREFERRED:
+                for (int i = first + 1; i < first + WAYS; i++) {
+                    if (depths[i] < depths[victim] || depths[i] == depths[victim] && stamps[i] < stamps[victim]) victim = i;
+                }
+                return depth >= depths[victim] ? victim : EMPTY;
+            default:
+                return EMPTY;
+        }
+    }
+
+    /**
+     * Writes an entry.
+     *
+     * @param index the index of the entry
+     * @param key the hash of the position
+     * @param value the evaluation
+     * @param depth the depth of the evaluation
+     */
+    private void write(int index, long key, double value, int depth) {
+        keys[index] = key;
+        values[index] = value;
+        depths[index] = depth;
+        stamps[index] = ++clocks[index / WAYS & stripeMask];
+        stores.increment();
+    }
+
+    /**
+     * Removes every entry. The counters are kept.
+     */
+    public void clear() {
+        for (int stripe = 0; stripe < locks.length; stripe++) {
+            synchronized (locks[stripe]) {
+                // Les seaux d'une bande sont vidés sous son verrou
+                for (int bucket = stripe; bucket <= bucketMask; bucket += locks.length) {
+                    Arrays.fill(depths, bucket * WAYS, bucket * WAYS + WAYS, EMPTY);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries of the table.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the number of successful lookups.
+     *
+     * @return the hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of failed lookups.
+     *
+     * @return the misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the ratio of successful lookups.
+     *
+     * @return the hit rate between 0 and 1, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * Returns the number of entries written, including updates.
+     *
+     * @return the stores
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * Returns the number of entries replaced by another position.
+     *
+     * @return the evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of new entries dropped by the eviction policy.
+     *
+     * @return the rejections
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Returns a summary of the counters.
+     *
+     * @return the counters as a readable string
+     */
+    @Override
+    public String toString() {
+        return String.format("TranspositionTable[capacity=%d, hits=%d, misses=%d, hitRate=%.3f, stores=%d, evictions=%d, rejections=%d]",
+                capacity(), getHits(), getMisses(), getHitRate(), getStores(), getEvictions(), getRejections());
+    }
+}
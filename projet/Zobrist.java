@@ -0,0 +1,47 @@
+package projet;
+
+/**
+ * Zobrist keys of board positions.
+ * Each (cell, tile type, orientation) triple has a fixed pseudo-random 64-bit key, and the hash of a board is the
+ * exclusive or of the keys of its tiles, so placing or removing a tile updates it in O(1) whatever the order of the moves.
+ * The keys are derived from their triple with the SplitMix64 finalizer instead of a table, so any board size is supported.
+ */
+public final class Zobrist {
+
+	/**
+     * The seed mixed into every key, fixed so that hashes are stable between runs.
+     */
+    private static final long SEED = 0x5A0B_215E_7C3D_1F2AL;
+
+    /**
+     * Private constructor, this class only holds static helpers.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of a tile in a cell.
+     *
+     * @param cell the index {@code row * size + col} of the cell
+     * @param type the type of the tile
+     * @param orientation the orientation of the tile
+     * @return the 64-bit key
+     */
+    public static long key(int cell, TileType type, Orientation orientation) {
+        return key(cell, RotationTable.index(type, orientation));
+    }
+
+    /**
+     * Returns the key of a combination index in a cell.
+     *
+     * @param cell the index {@code row * size + col} of the cell
+     * @param combination the combination index of {@link RotationTable#index(TileType, Orientation)}
+     * @return the 64-bit key
+     */
+    public static long key(int cell, int combination) {
+        long z = SEED + ((long) cell * RotationTable.COMBINATIONS + combination + 1) * 0x9E37_79B9_7F4A_7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+        return z ^ (z >>> 31);
+    }
+}